@@ -0,0 +1,80 @@
+package com.mybank.accounts.config;
+
+import com.mybank.accounts.datasource.ReadReplicaRoutingDataSource;
+import com.mybank.accounts.datasource.RecentWritesGuard;
+import com.mybank.accounts.datasource.ReplicaHealthMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Пул реплики и маршрутизация read-only транзакций на неё ({@code application.datasource.replica.enabled=true}).
+ * Primary по-прежнему настраивается через {@code spring.datasource.*}, реплика — через
+ * {@code application.datasource.replica.*} (url, username, password, hikari.*).
+ * Без флага приложение работает с одним пулом из автоконфигурации.
+ * <p>
+ * У пула реплики короткий connection-timeout по умолчанию ({@link #REPLICA_CONNECTION_TIMEOUT_MS}):
+ * недоступная реплика должна быстро уводить чтения на primary, а не держать запрос 30 секунд.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    static final long REPLICA_CONNECTION_TIMEOUT_MS = 500;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("accounts-primary");
+        return ds;
+    }
+
+    @Bean
+    @ConfigurationProperties("application.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${application.datasource.replica.url}") String url,
+            @Value("${application.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${application.datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(url);
+        ds.setUsername(username);
+        ds.setPassword(password);
+        ds.setReadOnly(true);
+        ds.setPoolName("accounts-replica");
+        // application.datasource.replica.hikari.* привязывается после и может переопределить
+        ds.setConnectionTimeout(REPLICA_CONNECTION_TIMEOUT_MS);
+        ds.setValidationTimeout(REPLICA_CONNECTION_TIMEOUT_MS / 2);
+        return ds;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaHealthMonitor replicaHealthMonitor(
+            @Qualifier("replicaDataSource") DataSource replica,
+            @Value("${application.datasource.replica.max-lag:PT2S}") Duration maxLag,
+            @Value("${application.datasource.replica.health-check-ms:2000}") long healthCheckMs,
+            MeterRegistry meterRegistry) {
+        return new ReplicaHealthMonitor(replica, maxLag, Duration.ofMillis(healthCheckMs), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaHealthMonitor health,
+                                 RecentWritesGuard recentWrites) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadReplicaRoutingDataSource(primary, replica, health, recentWrites));
+    }
+}
@@ -27,8 +27,12 @@ public class SecurityConfig {
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/accounts/me").hasAuthority("ROLE_accounts.read")
                         .requestMatchers(HttpMethod.PUT, "/accounts/me").hasAuthority("ROLE_accounts.write")
-                        .requestMatchers(HttpMethod.GET, "/accounts/all").hasAuthority("ROLE_accounts.read")
+                        .requestMatchers(HttpMethod.GET, "/accounts/me/balance").hasAuthority("ROLE_accounts.read")
+                        .requestMatchers(HttpMethod.GET, "/accounts/me/statement").hasAuthority("ROLE_accounts.read")
+                        .requestMatchers(HttpMethod.GET, "/accounts/directory").hasAuthority("ROLE_accounts.read")
+                        .requestMatchers(HttpMethod.GET, "/accounts/dashboard").hasAuthority("ROLE_accounts.read")
                         .requestMatchers(HttpMethod.POST, "/accounts/balance").hasAuthority("ROLE_balance.write")
+                        .requestMatchers(HttpMethod.POST, "/accounts/balance/batch").hasAuthority("ROLE_balance.write")
                         .requestMatchers(HttpMethod.POST, "/accounts/transfer").hasAuthority("ROLE_balance.transfer")
                         .anyRequest().authenticated()
                 )
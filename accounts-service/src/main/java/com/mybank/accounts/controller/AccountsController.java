@@ -2,15 +2,27 @@ package com.mybank.accounts.controller;
 
 import com.mybank.accounts.dto.*;
 import com.mybank.accounts.service.AccountsService;
+import com.mybank.accounts.service.BalanceBatchService;
+import com.mybank.accounts.service.BalanceGroupCommitWriter;
 import com.mybank.accounts.service.CashService;
+import com.mybank.accounts.service.LedgerService;
+import com.mybank.accounts.service.StatementExportService;
 import com.mybank.accounts.service.TransferService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -21,6 +33,11 @@ public class AccountsController {
     private final AccountsService accountsService;
     private final CashService cashService;
     private final TransferService transferService;
+    private final BalanceBatchService balanceBatchService;
+    private final LedgerService ledgerService;
+    private final StatementExportService statementExportService;
+    // Есть только при application.balance.group-commit.enabled=true
+    private final ObjectProvider<BalanceGroupCommitWriter> groupCommitWriter;
 
     @GetMapping("/me")
     public AccountMeResponse me(@AuthenticationPrincipal Jwt jwt) {
@@ -36,10 +53,68 @@ public class AccountsController {
         return ResponseEntity.noContent().build();
     }
 
-    @GetMapping("/all")
-    public List<AccountSummaryResponse> others(@AuthenticationPrincipal Jwt jwt) {
+    /**
+     * Баланс на момент {@code at} (ISO, без зоны) по журналу; без {@code at} — текущий.
+     */
+    @GetMapping("/me/balance")
+    public BalanceAtResponse balanceAt(@AuthenticationPrincipal Jwt jwt,
+                                       @RequestParam(name = "at", required = false)
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
         String username = extractUsername(jwt);
-        return accountsService.getAllOthers(username);
+        return ledgerService.balanceAt(username, at);
+    }
+
+    /**
+     * Выписка за {@code [from, to)} (ISO, без зоны) в CSV или NDJSON. Тело пишется из курсора БД по мере чтения,
+     * без сборки выписки в памяти, в потоке MVC async ({@code spring.mvc.async.request-timeout}).
+     */
+    @GetMapping("/me/statement")
+    public ResponseEntity<StreamingResponseBody> statement(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "format", defaultValue = "csv") String format) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        StatementExportService.Format statementFormat;
+        try {
+            statementFormat = StatementExportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format);
+        }
+        String username = extractUsername(jwt);
+        long accountId = statementExportService.accountId(username);
+
+        StreamingResponseBody body = out -> statementExportService.write(accountId, from, to, statementFormat, out);
+        return ResponseEntity.ok()
+                .contentType(statementFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("statement-" + username + "." + statementFormat.extension())
+                        .build().toString())
+                .body(body);
+    }
+
+    /**
+     * Справочник получателей: поиск по началу логина, имени или фамилии и постраничный вывод по курсору
+     * ({@code after} = {@code nextCursor} предыдущей страницы).
+     */
+    @GetMapping("/directory")
+    public AccountDirectoryPage directory(@AuthenticationPrincipal Jwt jwt,
+                                          @RequestParam(name = "q", required = false) String query,
+                                          @RequestParam(name = "after", required = false) String after,
+                                          @RequestParam(name = "limit", required = false) Integer limit) {
+        String username = extractUsername(jwt);
+        return accountsService.searchDirectory(username, query, after, limit);
+    }
+
+    /**
+     * Данные главной страницы (профиль + получатели) одним запросом.
+     */
+    @GetMapping("/dashboard")
+    public AccountDashboardResponse dashboard(@AuthenticationPrincipal Jwt jwt) {
+        String username = extractUsername(jwt);
+        return accountsService.getDashboard(username);
     }
 
     @PostMapping("/balance")
@@ -48,17 +123,43 @@ public class AccountsController {
             @Valid @RequestBody BalanceUpdateRequest req
     ) {
         String clientId = extractClientId(jwt);
-        cashService.applyBalance(req, clientId);
+        BalanceGroupCommitWriter writer = groupCommitWriter.getIfAvailable();
+        if (writer != null) {
+            writer.submitAndAwait(BalanceCommand.of(req, clientId));
+        } else {
+            cashService.applyBalance(req, clientId);
+        }
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Пакетное изменение баланса (до 1000 операций) в одной транзакции.
+     * Ошибка отдельной операции не отменяет остальные и возвращается в её результате.
+     */
+    @PostMapping("/balance/batch")
+    public BalanceBatchResponse balanceBatch(
+            @AuthenticationPrincipal Jwt jwt,
+            @Valid @RequestBody BalanceBatchRequest req
+    ) {
+        String clientId = extractClientId(jwt);
+        List<BalanceCommand> commands = req.operations().stream()
+                .map(op -> BalanceCommand.of(op, clientId))
+                .toList();
+        return new BalanceBatchResponse(balanceBatchService.applyAll(commands));
+    }
+
     @PostMapping("/transfer")
     public ResponseEntity<Void> transfer(
             @AuthenticationPrincipal Jwt jwt,
             @Valid @RequestBody TransferConsumeRequest req
     ) {
         String clientId = extractClientId(jwt);
-        transferService.transfer(req, clientId);
+        BalanceGroupCommitWriter writer = groupCommitWriter.getIfAvailable();
+        if (writer != null) {
+            writer.submitAndAwait(BalanceCommand.of(req, clientId));
+        } else {
+            transferService.transfer(req, clientId);
+        }
         return ResponseEntity.noContent().build();
     }
 
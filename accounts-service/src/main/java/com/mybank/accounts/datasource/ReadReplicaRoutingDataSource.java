@@ -0,0 +1,67 @@
+package com.mybank.accounts.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Read-only транзакции — на реплику, всё остальное — на primary. На primary остаются и read-only чтения,
+ * если реплика нездорова ({@link ReplicaHealthMonitor}) или пользователь только что менял свой счёт
+ * ({@link RecentWritesGuard}). Не выдала соединение — чтение уходит на primary, реплика помечается нездоровой.
+ * <p>
+ * Флаг read-only выставляется после того, как менеджер транзакций взял соединение, поэтому источник
+ * оборачивается в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: физическое
+ * соединение берётся на первом SQL-запросе, когда транзакция уже известна.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final DataSource primary;
+    private final ReplicaHealthMonitor health;
+    private final RecentWritesGuard recentWrites;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                        ReplicaHealthMonitor health, RecentWritesGuard recentWrites) {
+        this.primary = primary;
+        this.health = health;
+        this.recentWrites = recentWrites;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && health.isHealthy()
+                && !recentWrites.currentUserWroteRecently()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == primary) {
+            return primary.getConnection();
+        }
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            health.markUnhealthy(e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTargetDataSource().getConnection(username, password);
+    }
+}
@@ -0,0 +1,88 @@
+package com.mybank.accounts.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-your-writes для реплики: после коммита, изменившего счёт пользователя, его чтения
+ * {@code application.datasource.replica.read-your-writes-window} идут на primary — реплика могла ещё
+ * не применить изменение. Окно должно быть больше {@code max-lag}: реплику с большим отставанием
+ * {@link ReplicaHealthMonitor} и так выключает.
+ * <p>
+ * Состояние — в памяти экземпляра; чтения пользователя обычно приходят на тот же экземпляр через gateway,
+ * на другом экземпляре он увидит свою запись не позже, чем через {@code max-lag}.
+ */
+@Component
+public class RecentWritesGuard {
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWriters;
+
+    public RecentWritesGuard(@Value("${application.datasource.replica.enabled:false}") boolean enabled,
+                             @Value("${application.datasource.replica.read-your-writes-window:PT5S}") Duration window,
+                             @Value("${application.datasource.replica.read-your-writes-max-users:100000}") long maxUsers) {
+        this.enabled = enabled;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void recordWrite(String... usernames) {
+        recordWrite(List.of(usernames));
+    }
+
+    /**
+     * Отмечает пользователей после коммита текущей транзакции (или сразу, если транзакции нет):
+     * окно отсчитывается от момента, когда изменение стало видно на primary.
+     */
+    public void recordWrite(Collection<String> usernames) {
+        if (!enabled || usernames.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            usernames.forEach(u -> recentWriters.put(u, Boolean.TRUE));
+            return;
+        }
+        List<String> written = List.copyOf(usernames);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    written.forEach(u -> recentWriters.put(u, Boolean.TRUE));
+                }
+            }
+        });
+    }
+
+    public boolean wroteRecently(String username) {
+        return username != null && recentWriters.getIfPresent(username) != null;
+    }
+
+    /**
+     * Пользователь текущего запроса (claim {@code preferred_username}, иначе имя аутентификации) писал недавно.
+     * Вне запроса пользователя (планировщик, outbox) — false.
+     */
+    public boolean currentUserWroteRecently() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) {
+            return false;
+        }
+        String username = auth instanceof JwtAuthenticationToken jwt
+                && jwt.getToken().getClaimAsString("preferred_username") != null
+                ? jwt.getToken().getClaimAsString("preferred_username")
+                : auth.getName();
+        return wroteRecently(username);
+    }
+}
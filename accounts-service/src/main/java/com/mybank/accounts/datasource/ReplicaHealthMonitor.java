@@ -0,0 +1,109 @@
+package com.mybank.accounts.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически проверяет реплику: отвечает ли она, находится ли в recovery и насколько отстаёт
+ * от primary. Пока проверка не прошла (в том числе до первой проверки после старта) или отставание больше
+ * {@code application.datasource.replica.max-lag}, чтения идут на primary.
+ * <p>
+ * Отставание считается по времени последней применённой транзакции, только если реплика получила WAL,
+ * который ещё не применила: на простаивающем primary «время с последней транзакции» растёт, но реплика не отстаёт.
+ * Метрики — {@code accounts.datasource.replica.healthy} (1/0) и {@code accounts.datasource.replica.lag} (секунды).
+ * <p>
+ * Проверка идёт в собственном потоке, а не в общем планировщике {@code @Scheduled}: зависшая реплика
+ * не задерживает outbox и снимки журнала, а их долгие проходы — переключение чтений на primary.
+ * Запрос проверки ограничен {@link #CHECK_TIMEOUT_SECONDS}, получение соединения — connection-timeout пула реплики.
+ */
+public class ReplicaHealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    private static final String LAG_SQL = """
+            SELECT pg_is_in_recovery(),
+                   CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+    static final int CHECK_TIMEOUT_SECONDS = 1;
+
+    private final DataSource replica;
+    private final Duration maxLag;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean healthy;
+    private volatile double lagSeconds = -1;
+
+    public ReplicaHealthMonitor(DataSource replica, Duration maxLag, Duration interval, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLag = maxLag;
+        this.interval = interval;
+        Gauge.builder("accounts.datasource.replica.healthy", this, m -> m.healthy ? 1 : 0)
+                .register(meterRegistry);
+        Gauge.builder("accounts.datasource.replica.lag", this, m -> m.lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-health").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::check, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Реплика не выдала соединение — до следующей успешной проверки чтения идут на primary.
+     */
+    public void markUnhealthy(Exception cause) {
+        if (healthy) {
+            log.warn("⚠️ Replica marked unhealthy: {}", cause.toString());
+        }
+        healthy = false;
+    }
+
+    public void check() {
+        boolean ok;
+        try (Connection c = replica.getConnection();
+             Statement st = c.createStatement()) {
+            st.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+            ResultSet rs = st.executeQuery(LAG_SQL);
+            rs.next();
+            boolean inRecovery = rs.getBoolean(1);
+            lagSeconds = rs.getDouble(2);
+            ok = inRecovery && lagSeconds * 1000 <= maxLag.toMillis();
+            if (!ok && healthy) {
+                log.warn("⚠️ Replica disabled: inRecovery={}, lag={}s (max {})", inRecovery, lagSeconds, maxLag);
+            }
+        } catch (Exception e) {
+            ok = false;
+            lagSeconds = -1;
+            if (healthy) {
+                log.warn("⚠️ Replica unavailable: {}", e.toString());
+            }
+        }
+        if (ok && !healthy) {
+            log.info("✅ Replica healthy, lag={}s", lagSeconds);
+        }
+        healthy = ok;
+    }
+}
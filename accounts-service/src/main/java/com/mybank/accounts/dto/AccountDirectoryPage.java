@@ -0,0 +1,12 @@
+package com.mybank.accounts.dto;
+
+import java.util.List;
+
+/**
+ * Страница справочника получателей. {@code nextCursor} передаётся в {@code after} за следующей страницей;
+ * {@code null} — страниц больше нет.
+ */
+public record AccountDirectoryPage(
+        List<AccountSummaryResponse> items,
+        String nextCursor
+) {}
@@ -0,0 +1,14 @@
+package com.mybank.accounts.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Профиль счёта без баланса — то, что можно отдавать из {@link com.mybank.accounts.service.AccountProfileCache}.
+ */
+public record AccountProfile(
+        Long id,
+        String username,
+        String firstName,
+        String lastName,
+        LocalDate dateOfBirth
+) {}
@@ -0,0 +1,9 @@
+package com.mybank.accounts.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Баланс счёта на момент {@code at} по журналу (GET /accounts/me/balance?at=...).
+ */
+public record BalanceAtResponse(String username, LocalDateTime at, BigDecimal balance) {}
@@ -0,0 +1,13 @@
+package com.mybank.accounts.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BalanceBatchRequest(
+        @NotEmpty(message = "Список операций не должен быть пустым")
+        @Size(max = 1000, message = "Не более 1000 операций в одном запросе")
+        List<@Valid BalanceUpdateRequest> operations
+) {}
@@ -0,0 +1,8 @@
+package com.mybank.accounts.dto;
+
+import java.util.List;
+
+/**
+ * Результаты пакетного изменения баланса — по одному на каждую операцию, в порядке запроса.
+ */
+public record BalanceBatchResponse(List<BalanceCommandResult> results) {}
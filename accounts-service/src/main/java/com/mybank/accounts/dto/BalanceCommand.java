@@ -0,0 +1,31 @@
+package com.mybank.accounts.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Единая команда изменения баланса для пакетной обработки:
+ * зачисление, списание или перевод (recipient заполнен только для перевода).
+ */
+public record BalanceCommand(
+        Kind kind,
+        long operationId,
+        String clientId,
+        String username,
+        String recipient,
+        BigDecimal amount
+) {
+
+    public enum Kind { DEPOSIT, WITHDRAW, TRANSFER }
+
+    public static BalanceCommand of(BalanceUpdateRequest req, String clientId) {
+        Kind kind = switch (req.cashOperationType()) {
+            case DEPOSIT -> Kind.DEPOSIT;
+            case WITHDRAW -> Kind.WITHDRAW;
+        };
+        return new BalanceCommand(kind, req.operationId(), clientId, req.username(), null, req.amount());
+    }
+
+    public static BalanceCommand of(TransferConsumeRequest req, String clientId) {
+        return new BalanceCommand(Kind.TRANSFER, req.operationId(), clientId, req.username(), req.recipient(), req.amount());
+    }
+}
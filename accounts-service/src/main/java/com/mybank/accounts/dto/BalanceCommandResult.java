@@ -0,0 +1,25 @@
+package com.mybank.accounts.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат применения одной команды в пакете.
+ *
+ * @param username пользователь операции; для ACCOUNT_NOT_FOUND — ненайденный счёт
+ * @param status   CONFLICT — ключ уже занят операцией другого пользователя
+ * @param balance  для APPLIED — новый баланс пользователя, для INSUFFICIENT_FUNDS — текущий баланс
+ */
+public record BalanceCommandResult(
+        Long operationId,
+        String username,
+        Status status,
+        BigDecimal balance,
+        String message
+) {
+
+    public enum Status { APPLIED, DUPLICATE, ACCOUNT_NOT_FOUND, INSUFFICIENT_FUNDS, REJECTED, CONFLICT }
+
+    public boolean isSuccess() {
+        return status == Status.APPLIED || status == Status.DUPLICATE;
+    }
+}
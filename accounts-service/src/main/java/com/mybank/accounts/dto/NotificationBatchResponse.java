@@ -0,0 +1,5 @@
+package com.mybank.accounts.dto;
+
+import java.util.List;
+
+public record NotificationBatchResponse(List<NotificationBatchResult> results) {}
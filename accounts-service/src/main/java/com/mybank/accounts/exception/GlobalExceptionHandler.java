@@ -1,8 +1,10 @@
 package com.mybank.accounts.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -28,4 +30,22 @@ public class GlobalExceptionHandler {
         problem.setProperty("requestedAmount", ex.getRequestedAmount());
         return problem;
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(OperationConflictException.class)
+    public ProblemDetail handleOperationConflict(OperationConflictException ex) {
+        log.warn("Operation conflict: {}", ex.getMessage());
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
+        problem.setTitle("Operation Conflict");
+        return problem;
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleOverloaded(ServiceOverloadedException ex) {
+        log.warn("Service overloaded: {}", ex.getMessage());
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        problem.setTitle("Service Overloaded");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(problem);
+    }
+}
@@ -0,0 +1,12 @@
+package com.mybank.accounts.exception;
+
+/**
+ * Ключ операции уже занят операцией другого пользователя того же сервиса.
+ * Отдаётся как 409: повтор с этим ключом не может быть применён.
+ */
+public class OperationConflictException extends RuntimeException {
+
+    public OperationConflictException(long operationId, String clientId) {
+        super("OperationId " + operationId + " (client=" + clientId + ") принадлежит другому пользователю");
+    }
+}
@@ -0,0 +1,16 @@
+package com.mybank.accounts.exception;
+
+/**
+ * Сервис временно не принимает операции (переполнена очередь, не дождались коммита).
+ * Отдаётся как 503: вызывающие сервисы повторяют запрос, а не считают его ошибкой сервера.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+
+    public ServiceOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
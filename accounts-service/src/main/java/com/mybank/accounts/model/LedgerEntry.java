@@ -0,0 +1,21 @@
+package com.mybank.accounts.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Новая запись журнала баланса (accounts.ledger_entries): изменение {@code delta} и баланс после него.
+ *
+ * @param operationId ключ операции источника; null только у начальной записи
+ * @param source      сервис-источник (clientId из токена)
+ */
+public record LedgerEntry(
+        long accountId,
+        Long operationId,
+        String source,
+        Kind kind,
+        BigDecimal delta,
+        BigDecimal balanceAfter
+) {
+
+    public enum Kind { OPENING, DEPOSIT, WITHDRAW, TRANSFER_OUT, TRANSFER_IN }
+}
@@ -0,0 +1,54 @@
+package com.mybank.accounts.outbox;
+
+import com.mybank.accounts.client.notifications.NotificationsClient;
+import com.mybank.accounts.dto.NotificationRequest;
+import com.mybank.outbox.BatchOutboxHandler;
+import com.mybank.outbox.OutboxTable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbox операций со счётом: accounts.account_operations → notifications-service.
+ */
+@Component
+@RequiredArgsConstructor
+public class AccountsOutboxHandler implements BatchOutboxHandler<NotificationRequest> {
+
+    public static final OutboxTable TABLE = OutboxTable.builder()
+            .name("accounts.account_operations")
+            .keyColumns(List.of(OutboxTable.KeyColumn.bigint("operation_id")))
+            .channel("accounts_outbox")
+            .build();
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD = new TypeReference<>() {};
+
+    private final NotificationsClient notificationsClient;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public OutboxTable table() {
+        return TABLE;
+    }
+
+    @Override
+    public NotificationRequest map(ResultSet rs) throws SQLException {
+        String json = rs.getString("payload");
+        Map<String, Object> payload = json != null ? objectMapper.readValue(json, PAYLOAD) : Map.of();
+        return new NotificationRequest(rs.getLong("operation_id"), rs.getString("username"), payload);
+    }
+
+    /**
+     * Кусок захваченного пакета (до batch-chunk-size записей) уходит одним POST /notifications/batch.
+     */
+    @Override
+    public List<Boolean> sendAll(List<NotificationRequest> messages) {
+        return notificationsClient.sendBatch(messages);
+    }
+}
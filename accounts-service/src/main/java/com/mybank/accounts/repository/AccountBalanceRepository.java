@@ -0,0 +1,91 @@
+package com.mybank.accounts.repository;
+
+import com.mybank.accounts.model.LedgerEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC-доступ к балансам для пакетной обработки и переводов (без загрузки сущностей в контекст Hibernate).
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountBalanceRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Блокирует счета (SELECT ... FOR UPDATE) в порядке возрастания id.
+     * Единый порядок захвата блокировок исключает взаимоблокировки встречных переводов A→B / B→A.
+     *
+     * @return заблокированные счета по имени пользователя, в порядке блокировки
+     */
+    public Map<String, LockedAccount> lockAll(Collection<String> usernames) {
+        Map<String, LockedAccount> locked = new LinkedHashMap<>();
+        if (usernames.isEmpty()) {
+            return locked;
+        }
+        jdbc.query("""
+                SELECT id, user_name, balance
+                  FROM users
+                 WHERE user_name = ANY (?)
+                 ORDER BY id
+                   FOR UPDATE
+                """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", usernames.toArray())),
+                rs -> {
+                    locked.put(rs.getString("user_name"),
+                            new LockedAccount(rs.getLong("id"), rs.getString("user_name"), rs.getBigDecimal("balance")));
+                });
+        return locked;
+    }
+
+    /**
+     * Записывает новые балансы и добавляет записи журнала одним запросом (UPDATE в CTE + INSERT из массивов):
+     * журнал не может разойтись с балансом, а пакет любого размера — один round trip.
+     * Записи вставляются в порядке списка, внутри счёта это порядок изменений.
+     */
+    public void applyChanges(List<LockedAccount> accounts, List<LedgerEntry> entries) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        jdbc.update("""
+                WITH updated AS (
+                    UPDATE users u
+                       SET balance = v.balance
+                      FROM unnest(?::bigint[], ?::numeric[]) AS v(id, balance)
+                     WHERE u.id = v.id
+                )
+                INSERT INTO ledger_entries (account_id, operation_id, source, kind, delta, balance_after)
+                SELECT e.account_id, e.operation_id, e.source, e.kind, e.delta, e.balance_after
+                  FROM unnest(?::bigint[], ?::bigint[], ?::varchar[], ?::varchar[], ?::numeric[], ?::numeric[])
+                       WITH ORDINALITY AS e(account_id, operation_id, source, kind, delta, balance_after, n)
+                 ORDER BY e.n
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("bigint", accounts.stream().map(LockedAccount::id).toArray()));
+                    ps.setArray(2, c.createArrayOf("numeric", accounts.stream().map(LockedAccount::balance).toArray()));
+                    ps.setArray(3, c.createArrayOf("bigint", entries.stream().map(LedgerEntry::accountId).toArray()));
+                    ps.setArray(4, c.createArrayOf("bigint", entries.stream().map(LedgerEntry::operationId).toArray()));
+                    ps.setArray(5, c.createArrayOf("varchar", entries.stream().map(LedgerEntry::source).toArray()));
+                    ps.setArray(6, c.createArrayOf("varchar", entries.stream().map(e -> e.kind().name()).toArray()));
+                    ps.setArray(7, c.createArrayOf("numeric", entries.stream().map(LedgerEntry::delta).toArray()));
+                    ps.setArray(8, c.createArrayOf("numeric", entries.stream().map(LedgerEntry::balanceAfter).toArray()));
+                });
+    }
+
+    public record LockedAccount(long id, String username, BigDecimal balance) {
+
+        public LockedAccount withBalance(BigDecimal newBalance) {
+            return new LockedAccount(id, username, newBalance);
+        }
+    }
+}
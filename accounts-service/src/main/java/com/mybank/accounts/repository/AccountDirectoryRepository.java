@@ -0,0 +1,80 @@
+package com.mybank.accounts.repository;
+
+import com.mybank.accounts.dto.AccountSummaryResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Справочник получателей: только логин и имя, сразу в DTO (сущности и баланс не читаются).
+ * Страницы — по возрастанию user_name, следующая начинается после последнего логина предыдущей (keyset),
+ * поэтому глубина листания не влияет на стоимость запроса.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountDirectoryRepository {
+
+    private static final RowMapper<AccountSummaryResponse> SUMMARY = (rs, i) -> new AccountSummaryResponse(
+            rs.getString("user_name"), rs.getString("first_name") + " " + rs.getString("last_name"));
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Пользователи, кроме {@code excludeUsername}, с логином больше {@code afterUsername}.
+     * <p>
+     * Одно слово в {@code query} ищется как начало логина, имени или фамилии; два слова — как начало имени
+     * и фамилии ("ivan vas"). Регистр не важен, для каждого поля есть индекс {@code lower(col) text_pattern_ops}.
+     *
+     * @param query         пустая строка или null — без фильтра
+     * @param afterUsername курсор предыдущей страницы; null — с начала
+     */
+    public List<AccountSummaryResponse> search(String excludeUsername, String query, String afterUsername, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT user_name, first_name, last_name
+                  FROM accounts.users
+                 WHERE user_name <> ?
+                """);
+        List<Object> args = new ArrayList<>();
+        args.add(excludeUsername);
+
+        String[] terms = (query == null || query.isBlank())
+                ? new String[0]
+                : query.trim().toLowerCase(Locale.ROOT).split("\\s+", 2);
+        if (terms.length == 1) {
+            String prefix = likePrefix(terms[0]);
+            sql.append("""
+                       AND (lower(user_name) LIKE ? OR lower(first_name) LIKE ? OR lower(last_name) LIKE ?)
+                    """);
+            args.add(prefix);
+            args.add(prefix);
+            args.add(prefix);
+        } else if (terms.length == 2) {
+            sql.append("""
+                       AND lower(first_name) LIKE ? AND lower(last_name) LIKE ?
+                    """);
+            args.add(likePrefix(terms[0]));
+            args.add(likePrefix(terms[1]));
+        }
+
+        if (afterUsername != null && !afterUsername.isEmpty()) {
+            sql.append("   AND user_name > ?\n");
+            args.add(afterUsername);
+        }
+        sql.append(" ORDER BY user_name\n LIMIT ?");
+        args.add(limit);
+
+        return jdbc.query(sql.toString(), SUMMARY, args.toArray());
+    }
+
+    /**
+     * Экранирует спецсимволы LIKE (экранирующий символ по умолчанию — обратная косая черта).
+     */
+    private static String likePrefix(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
@@ -1,13 +1,63 @@
 package com.mybank.accounts.repository;
 
-import com.mybank.accounts.model.AccountOperation;
 import com.mybank.accounts.model.UserAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.List;
+import java.math.BigDecimal;
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<UserAccount, Long> {
     Optional<UserAccount> findByUserName(String username);
-    List<UserAccount> findAllByUserNameNot(String username);
+
+    /**
+     * Только баланс — профиль берётся из {@link com.mybank.accounts.service.AccountProfileCache}.
+     */
+    @Query("select a.balance from UserAccount a where a.userName = :username")
+    Optional<BigDecimal> findBalanceByUserName(@Param("username") String username);
+
+    /**
+     * Атомарно применяет изменение баланса за один round trip:
+     * idempotency insert в service_operations, условный UPDATE баланса и запись в журнал ledger_entries.
+     * UPDATE выполняется только если операция новая и на счёте не меньше {@code required};
+     * запись журнала появляется только вместе с ним.
+     *
+     * @param operationId ID операции
+     * @param clientId    ID клиента (сервиса), от которого пришёл запрос
+     * @param username    пользователь
+     * @param delta       изменение баланса (отрицательное для списания)
+     * @param required    минимальный баланс до списания (0 для зачисления)
+     * @param kind        вид записи журнала ({@link com.mybank.accounts.model.LedgerEntry.Kind})
+     */
+    @Query(value = """
+            WITH applied AS (
+                INSERT INTO service_operations(operation_id, username, service)
+                VALUES (:operationId, :username, :clientId)
+                ON CONFLICT (service, operation_id) DO NOTHING
+                RETURNING operation_id
+            ),
+            updated AS (
+                UPDATE users
+                   SET balance = balance + :delta
+                 WHERE user_name = :username
+                   AND balance >= :required
+                   AND EXISTS (SELECT 1 FROM applied)
+                RETURNING id, balance
+            ),
+            ledger AS (
+                INSERT INTO ledger_entries(account_id, operation_id, source, kind, delta, balance_after)
+                SELECT id, :operationId, :clientId, :kind, :delta, balance
+                  FROM updated
+            )
+            SELECT EXISTS (SELECT 1 FROM applied)                        AS "applied",
+                   (SELECT balance FROM updated)                         AS "balance",
+                   (SELECT balance FROM users WHERE user_name = :username) AS "current"
+            """, nativeQuery = true)
+    BalanceMutation applyBalanceChange(@Param("operationId") long operationId,
+                                       @Param("clientId") String clientId,
+                                       @Param("username") String username,
+                                       @Param("delta") BigDecimal delta,
+                                       @Param("required") BigDecimal required,
+                                       @Param("kind") String kind);
 }
@@ -0,0 +1,36 @@
+package com.mybank.accounts.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат атомарного изменения баланса (idempotency insert + условный UPDATE в одном запросе).
+ */
+public interface BalanceMutation {
+
+    /**
+     * @return true если операция применяется впервые (запись в service_operations вставлена)
+     */
+    Boolean getApplied();
+
+    /**
+     * @return новый баланс, если UPDATE прошёл; null если аккаунт не найден или не хватило средств
+     */
+    BigDecimal getBalance();
+
+    /**
+     * @return баланс на момент запроса; null если аккаунт не найден
+     */
+    BigDecimal getCurrent();
+
+    default boolean firstTime() {
+        return Boolean.TRUE.equals(getApplied());
+    }
+
+    default boolean balanceChanged() {
+        return getBalance() != null;
+    }
+
+    default boolean accountMissing() {
+        return getCurrent() == null;
+    }
+}
@@ -0,0 +1,128 @@
+package com.mybank.accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Чтения журнала баланса (accounts.ledger_entries) и снимки (accounts.balance_snapshots).
+ * Записи журнала добавляются вместе с изменением баланса — в {@link AccountRepository#applyBalanceChange}
+ * и {@link AccountBalanceRepository#applyChanges}.
+ * <p>
+ * Внутри счёта записи упорядочены по {@code (created_at, entry_id)}: оба диапазона ниже —
+ * диапазоны индекса {@code idx_ledger_entries_account_time}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Баланс счёта на момент {@code at}: последний снимок не позже {@code at} плюс изменения после него.
+     * Читается O(записей с последнего снимка), а не весь журнал. Счёт без записей — 0.
+     */
+    public BigDecimal balanceAt(long accountId, LocalDateTime at) {
+        return jdbc.queryForObject("""
+                SELECT COALESCE(s.balance, 0) + COALESCE((
+                           SELECT sum(e.delta)
+                             FROM accounts.ledger_entries e
+                            WHERE e.account_id = ?
+                              AND (e.created_at, e.entry_id) > (COALESCE(s.as_of, '-infinity'), COALESCE(s.entry_id, 0))
+                              AND e.created_at <= ?), 0)
+                  FROM (SELECT 1) one
+                  LEFT JOIN LATERAL (
+                       SELECT entry_id, balance, as_of
+                         FROM accounts.balance_snapshots
+                        WHERE account_id = ?
+                          AND as_of <= ?
+                        ORDER BY as_of DESC, entry_id DESC
+                        LIMIT 1
+                  ) s ON true
+                """, BigDecimal.class, accountId, at, accountId, at);
+    }
+
+    /**
+     * Записи счёта из {@code [from, to)} в порядке журнала, построчно в {@code handler}, без списка в памяти.
+     * Запрос forward-only с {@code fetchSize}: при выключенном autocommit драйвер PostgreSQL читает
+     * серверный курсор порциями по {@code fetchSize} строк. Вне транзакции драйвер вычитал бы весь результат
+     * сразу, поэтому вызывать только внутри транзакции.
+     * <p>
+     * Колонки: entry_id, created_at, kind, operation_id, source, delta, balance_after.
+     */
+    public void streamEntries(long accountId, LocalDateTime from, LocalDateTime to, int fetchSize,
+                              RowCallbackHandler handler) {
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    SELECT entry_id, created_at, kind, operation_id, source, delta, balance_after
+                      FROM accounts.ledger_entries
+                     WHERE account_id = ?
+                       AND created_at >= ?
+                       AND created_at < ?
+                     ORDER BY created_at, entry_id
+                    """, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, accountId);
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Следующая порция счетов после {@code afterAccountId} для построения снимков.
+     *
+     * @return наибольший id порции; null — счетов больше нет
+     */
+    public Long nextAccountBatch(long afterAccountId, int batchSize) {
+        return jdbc.queryForObject("""
+                SELECT max(id)
+                  FROM (SELECT id FROM accounts.users WHERE id > ? ORDER BY id LIMIT ?) batch
+                """, Long.class, afterAccountId, batchSize);
+    }
+
+    /**
+     * Снимки по последней записи для счетов из {@code (fromAccountId, toAccountId]}, у которых с прошлого снимка
+     * накопилось не меньше {@code minEntries} записей (считается не дальше {@code minEntries}).
+     * Повторный снимок той же записи (два экземпляра одновременно) пропускается.
+     *
+     * @return сколько снимков создано
+     */
+    public int snapshot(long fromAccountId, long toAccountId, int minEntries) {
+        return jdbc.update("""
+                INSERT INTO accounts.balance_snapshots (account_id, entry_id, balance, as_of)
+                SELECT u.id, e.entry_id, e.balance_after, e.created_at
+                  FROM accounts.users u
+                  LEFT JOIN LATERAL (
+                       SELECT entry_id, as_of
+                         FROM accounts.balance_snapshots
+                        WHERE account_id = u.id
+                        ORDER BY as_of DESC, entry_id DESC
+                        LIMIT 1
+                  ) s ON true
+                  CROSS JOIN LATERAL (
+                       SELECT le.entry_id, le.balance_after, le.created_at
+                         FROM accounts.ledger_entries le
+                        WHERE le.account_id = u.id
+                          AND (le.created_at, le.entry_id) > (COALESCE(s.as_of, '-infinity'), COALESCE(s.entry_id, 0))
+                        ORDER BY le.created_at DESC, le.entry_id DESC
+                        LIMIT 1
+                  ) e
+                 WHERE u.id > ? AND u.id <= ?
+                   AND (SELECT count(*)
+                          FROM (SELECT 1
+                                  FROM accounts.ledger_entries c
+                                 WHERE c.account_id = u.id
+                                   AND (c.created_at, c.entry_id) > (COALESCE(s.as_of, '-infinity'), COALESCE(s.entry_id, 0))
+                                 LIMIT ?) since) >= ?
+                ON CONFLICT (account_id, entry_id) DO NOTHING
+                """, fromAccountId, toAccountId, minEntries, minEntries);
+    }
+}
@@ -4,10 +4,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 @Repository
 @RequiredArgsConstructor
 public class ServiceOperationsRepository {
 
+    /** Строк в одном multi-row INSERT (3 параметра на строку, лимит PostgreSQL — 65535) */
+    private static final int INSERT_CHUNK = 1000;
+
     private final JdbcTemplate jdbc;
 
     /**
@@ -26,4 +35,86 @@ public class ServiceOperationsRepository {
         """, operationId, username, clientId);
         return updated == 1;
     }
-}
\ No newline at end of file
+
+    /**
+     * Пакетная запись операций для идемпотентности: один multi-row INSERT ... ON CONFLICT на каждые 1000 строк.
+     *
+     * @param operations операции в порядке поступления
+     * @return флаги в том же порядке: true если операция новая; повтор внутри пакета считается уже применённым
+     */
+    public List<Boolean> insertAllIfAbsent(List<AppliedOperation> operations) {
+        Set<AppliedOperation> inserted = new HashSet<>();
+        for (int from = 0; from < operations.size(); from += INSERT_CHUNK) {
+            List<AppliedOperation> chunk = operations.subList(from, Math.min(from + INSERT_CHUNK, operations.size()));
+
+            StringBuilder sql = new StringBuilder("INSERT INTO service_operations(operation_id, username, service) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (int i = 0; i < chunk.size(); i++) {
+                AppliedOperation op = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+                args.add(op.operationId());
+                args.add(op.username());
+                args.add(op.service());
+            }
+            sql.append(" ON CONFLICT (service, operation_id) DO NOTHING RETURNING operation_id, username, service");
+
+            inserted.addAll(jdbc.query(sql.toString(),
+                    (rs, n) -> new AppliedOperation(rs.getLong("operation_id"), rs.getString("username"), rs.getString("service")),
+                    args.toArray()));
+        }
+
+        List<Boolean> result = new ArrayList<>(operations.size());
+        for (AppliedOperation op : operations) {
+            // remove: только первое вхождение одной и той же операции считается новым
+            result.add(inserted.remove(op));
+        }
+        return result;
+    }
+
+    /**
+     * Владелец уже записанной операции — чтобы отличить повтор от чужого ключа.
+     */
+    public Optional<String> findUsername(long operationId, String clientId) {
+        return jdbc.query("""
+            SELECT username FROM service_operations WHERE service = ? AND operation_id = ?
+        """, (rs, n) -> rs.getString("username"), clientId, operationId).stream().findFirst();
+    }
+
+    /**
+     * Записи идемпотентности с теми же ключами (service, operation_id), что у {@code operations},
+     * вместе с их владельцами. Повтор своей операции есть в результате целиком, чужой ключ — с другим username.
+     */
+    public Set<AppliedOperation> findStored(List<AppliedOperation> operations) {
+        if (operations.isEmpty()) {
+            return Set.of();
+        }
+        String[] services = operations.stream().map(AppliedOperation::service).toArray(String[]::new);
+        Long[] ids = operations.stream().map(AppliedOperation::operationId).toArray(Long[]::new);
+        return new HashSet<>(jdbc.query("""
+            SELECT s.operation_id, s.username, s.service
+              FROM service_operations s
+              JOIN unnest(?::text[], ?::bigint[]) AS k(service, operation_id)
+                ON s.service = k.service AND s.operation_id = k.operation_id
+        """, (rs, n) -> new AppliedOperation(rs.getLong("operation_id"), rs.getString("username"), rs.getString("service")),
+                services, ids));
+    }
+
+    /**
+     * Удаляет записи идемпотентности (для операций пакета, которые не удалось применить).
+     */
+    public void deleteAll(List<AppliedOperation> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate("DELETE FROM service_operations WHERE service = ? AND operation_id = ?",
+                operations, operations.size(), (ps, op) -> {
+                    ps.setString(1, op.service());
+                    ps.setLong(2, op.operationId());
+                });
+    }
+
+    /**
+     * Ключ записи идемпотентности.
+     */
+    public record AppliedOperation(long operationId, String username, String service) {}
+}
@@ -0,0 +1,82 @@
+package com.mybank.accounts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mybank.accounts.dto.AccountProfile;
+import com.mybank.accounts.model.UserAccount;
+import com.mybank.accounts.repository.AccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Профили счетов (id, имя, дата рождения) по username в памяти экземпляра: ограничен по размеру
+ * ({@code application.cache.account-profile.max-size}) и по времени жизни записи
+ * ({@code application.cache.account-profile.ttl}). Баланс здесь не хранится — его всегда читают из БД,
+ * а проверки достаточности средств идут под блокировкой строки.
+ * <p>
+ * После {@code PUT /accounts/me} запись удаляется на этом экземпляре; на остальных профиль может
+ * оставаться старым не дольше ttl. Метрики — {@code cache.gets{result=hit|miss}}, {@code cache.evictions},
+ * {@code cache.size} с тегом {@code cache=account.profile}.
+ */
+@Component
+public class AccountProfileCache {
+
+    static final String CACHE_NAME = "account.profile";
+
+    private final AccountRepository accountRepository;
+    private final Cache<String, AccountProfile> profiles;
+
+    public AccountProfileCache(AccountRepository accountRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.cache.account-profile.max-size:10000}") long maxSize,
+                               @Value("${application.cache.account-profile.ttl:PT1M}") Duration ttl) {
+        this.accountRepository = accountRepository;
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, CACHE_NAME);
+    }
+
+    /**
+     * Профиль из кэша; при промахе — один запрос в БД. Отсутствующие пользователи не кэшируются.
+     */
+    public Optional<AccountProfile> get(String username) {
+        return Optional.ofNullable(profiles.get(username, this::load));
+    }
+
+    /**
+     * Удаляет профиль после завершения текущей транзакции (или сразу, если транзакции нет): удаление до коммита
+     * не помогло бы — параллельное чтение успело бы положить в кэш ещё не изменённую строку.
+     */
+    public void evictAfterTransaction(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            profiles.invalidate(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                profiles.invalidate(username);
+            }
+        });
+    }
+
+    private AccountProfile load(String username) {
+        return accountRepository.findByUserName(username)
+                .map(AccountProfileCache::toProfile)
+                .orElse(null);
+    }
+
+    private static AccountProfile toProfile(UserAccount u) {
+        return new AccountProfile(u.getId(), u.getUserName(), u.getFirstName(), u.getLastName(), u.getDateOfBirth());
+    }
+}
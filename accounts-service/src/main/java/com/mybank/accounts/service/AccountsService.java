@@ -1,20 +1,30 @@
 package com.mybank.accounts.service;
 
 import com.mybank.accounts.client.notifications.NotificationsClient;
+import com.mybank.accounts.datasource.RecentWritesGuard;
+import com.mybank.accounts.dto.AccountDashboardResponse;
+import com.mybank.accounts.dto.AccountDirectoryPage;
 import com.mybank.accounts.dto.AccountMeResponse;
+import com.mybank.accounts.dto.AccountProfile;
 import com.mybank.accounts.dto.AccountSummaryResponse;
 import com.mybank.accounts.dto.AccountUpdateRequest;
 import com.mybank.accounts.model.AccountOperation;
 import com.mybank.accounts.model.OperationStatus;
 import com.mybank.accounts.model.UserAccount;
+import com.mybank.accounts.outbox.AccountsOutboxHandler;
+import com.mybank.accounts.repository.AccountDirectoryRepository;
 import com.mybank.accounts.repository.AccountRepository;
 import com.mybank.accounts.repository.AccountOperationRepository;
+import com.mybank.common.id.PooledIdAllocator;
+import com.mybank.outbox.OutboxMetrics;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.HashMap;
@@ -29,30 +39,46 @@ public class AccountsService {
     private final AccountRepository repo;
     private final NotificationsClient notificationsClient;
     private final AccountOperationRepository accountOperationRepository;
+    private final OutboxMetrics outboxMetrics;
+    private final PooledIdAllocator operationIdAllocator;
+    private final AccountProfileCache profileCache;
+    private final AccountDirectoryRepository directoryRepository;
+    private final RecentWritesGuard recentWrites;
 
-    private static AccountMeResponse toMeResponse(UserAccount u) {
+    @Value("${application.directory.page-size:20}")
+    private int directoryPageSize;
+
+    @Value("${application.directory.max-page-size:100}")
+    private int directoryMaxPageSize;
+
+    private static AccountMeResponse toMeResponse(AccountProfile p, BigDecimal balance) {
         return AccountMeResponse.builder()
-                .username(u.getUserName())
-                .firstName(u.getFirstName())
-                .lastName(u.getLastName())
-                .dateOfBirth(u.getDateOfBirth())
-                .balance(u.getBalance())
+                .username(p.username())
+                .firstName(p.firstName())
+                .lastName(p.lastName())
+                .dateOfBirth(p.dateOfBirth())
+                .balance(balance)
                 .build();
     }
 
+    /**
+     * Профиль — из {@link AccountProfileCache}, в БД только за балансом (он не кэшируется).
+     * Read-only транзакция: при включённой реплике читается с неё, если пользователь не менял счёт только что.
+     */
     @Transactional(readOnly = true)
     public AccountMeResponse getMe(String username) {
-        UserAccount u = repo.findByUserName(username)
+        AccountProfile profile = profileCache.get(username)
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
-
-        return toMeResponse(u);
+        BigDecimal balance = repo.findBalanceByUserName(username)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
+        return toMeResponse(profile, balance);
     }
 
     @Transactional
     public void updateMe(String username, AccountUpdateRequest req) {
         validateAdult(req.dateOfBirth());
 
-        long opId = (req.operationId() != null) ? req.operationId() : accountOperationRepository.nextOperationId();
+        long opId = (req.operationId() != null) ? req.operationId() : operationIdAllocator.nextId();
         AccountOperation op = accountOperationRepository.findById(opId).orElseGet(() -> {
             var x = new AccountOperation();
             x.setOperationId(opId);
@@ -70,7 +96,13 @@ public class AccountsService {
         u.setLastName(req.lastName());
         u.setDateOfBirth(req.dateOfBirth());
         repo.save(u);
+        profileCache.evictAfterTransaction(username);
+        recentWrites.recordWrite(username);
 
+        if (op.getStatus() == OperationStatus.RECEIVED) {
+            outboxMetrics.transition(AccountsOutboxHandler.TABLE, OperationStatus.RECEIVED.name(),
+                    OperationStatus.UPDATED.name(), op.getCreatedAt());
+        }
         op.setStatus(OperationStatus.UPDATED);
         op.setError(null);
         op.touch();
@@ -86,11 +118,30 @@ public class AccountsService {
         return payload;
     }
 
+    /**
+     * Профиль (из кэша), баланс и первая страница справочника получателей одной read-only транзакцией —
+     * главной странице хватает одного запроса, остальных получателей форма ищет через {@link #searchDirectory}.
+     */
     @Transactional(readOnly = true)
-    public List<AccountSummaryResponse> getAllOthers(String username) {
-        return repo.findAllByUserNameNot(username).stream()
-                .map(u -> new AccountSummaryResponse(u.getUserName(), u.getFirstName() + " " + u.getLastName()))
-                .toList();
+    public AccountDashboardResponse getDashboard(String username) {
+        return new AccountDashboardResponse(getMe(username), searchDirectory(username, null, null, null).items());
+    }
+
+    /**
+     * Страница справочника получателей (все пользователи, кроме {@code username}).
+     *
+     * @param limit null — {@code application.directory.page-size}; больше {@code max-page-size} не отдаётся
+     */
+    @Transactional(readOnly = true)
+    public AccountDirectoryPage searchDirectory(String username, String query, String after, Integer limit) {
+        int pageSize = (limit == null || limit < 1) ? directoryPageSize : Math.min(limit, directoryMaxPageSize);
+        // Лишняя строка только показывает, что следующая страница есть
+        List<AccountSummaryResponse> rows = directoryRepository.search(username, query, after, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new AccountDirectoryPage(rows, null);
+        }
+        List<AccountSummaryResponse> page = rows.subList(0, pageSize);
+        return new AccountDirectoryPage(List.copyOf(page), page.getLast().username());
     }
 
     private void validateAdult(LocalDate dob) {
@@ -0,0 +1,194 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.datasource.RecentWritesGuard;
+import com.mybank.accounts.dto.BalanceCommand;
+import com.mybank.accounts.dto.BalanceCommandResult;
+import com.mybank.accounts.dto.BalanceCommandResult.Status;
+import com.mybank.accounts.model.LedgerEntry;
+import com.mybank.accounts.model.LedgerEntry.Kind;
+import com.mybank.accounts.repository.AccountBalanceRepository;
+import com.mybank.accounts.repository.AccountBalanceRepository.LockedAccount;
+import com.mybank.accounts.repository.ServiceOperationsRepository;
+import com.mybank.accounts.repository.ServiceOperationsRepository.AppliedOperation;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Применяет пакет команд изменения баланса в одной транзакции:
+ * <ol>
+ *     <li>идемпотентность — один multi-row INSERT ... ON CONFLICT в service_operations;</li>
+ *     <li>блокировка всех затронутых счетов одним SELECT ... FOR UPDATE в порядке id;</li>
+ *     <li>расчёт в памяти по порядку команд, с отдельным результатом для каждой;</li>
+ *     <li>запись изменённых балансов и журнала ({@code ledger_entries}) одним запросом.</li>
+ * </ol>
+ * Ошибка одной команды (нет средств, нет счёта) не откатывает остальные:
+ * для неё удаляется запись идемпотентности, чтобы операцию можно было повторить.
+ * Повтор ключа, который уже занят операцией другого пользователя, получает CONFLICT, а не DUPLICATE.
+ * Повтор внутри пакета получает исход первой копии: DUPLICATE, если она применена, и ту же ошибку, если отклонена.
+ */
+@Service
+@RequiredArgsConstructor
+public class BalanceBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceBatchService.class);
+    private final ServiceOperationsRepository appliedRepo;
+    private final AccountBalanceRepository balanceRepository;
+    private final RecentWritesGuard recentWrites;
+
+    @Transactional
+    public List<BalanceCommandResult> applyAll(List<BalanceCommand> commands) {
+        List<AppliedOperation> operations = commands.stream()
+                .map(c -> new AppliedOperation(c.operationId(), c.username(), c.clientId()))
+                .toList();
+        List<Boolean> firstTime = appliedRepo.insertAllIfAbsent(operations);
+
+        // Блокируем все счета пакета в стабильном порядке
+        Set<String> usernames = new HashSet<>();
+        for (int i = 0; i < commands.size(); i++) {
+            if (firstTime.get(i)) {
+                usernames.add(commands.get(i).username());
+                if (commands.get(i).recipient() != null) {
+                    usernames.add(commands.get(i).recipient());
+                }
+            }
+        }
+        Map<String, LockedAccount> accounts = balanceRepository.lockAll(usernames);
+        Map<String, LockedAccount> changed = new LinkedHashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+
+        List<BalanceCommandResult> results = new ArrayList<>(commands.size());
+        List<AppliedOperation> rejected = new ArrayList<>();
+
+        Set<AppliedOperation> stored = appliedRepo.findStored(duplicates(operations, firstTime));
+        // Исход первой копии операции в этом пакете: повтор внутри пакета получает его же
+        Map<AppliedOperation, BalanceCommandResult> outcomes = new HashMap<>();
+
+        for (int i = 0; i < commands.size(); i++) {
+            BalanceCommand command = commands.get(i);
+            if (!firstTime.get(i)) {
+                BalanceCommandResult first = outcomes.get(operations.get(i));
+                if (first != null && !first.isSuccess()) {
+                    // Первая копия отклонена и её запись идемпотентности будет удалена — это не повтор
+                    results.add(first);
+                    continue;
+                }
+                results.add(stored.contains(operations.get(i))
+                        ? new BalanceCommandResult(command.operationId(), command.username(), Status.DUPLICATE, null,
+                                "Операция уже применена")
+                        : failure(command, Status.CONFLICT, null, "OperationId принадлежит другому пользователю"));
+                continue;
+            }
+            BalanceCommandResult result = apply(command, accounts, changed, entries);
+            outcomes.put(operations.get(i), result);
+            if (!result.isSuccess()) {
+                // удаляем только свою, только что вставленную запись
+                rejected.add(operations.get(i));
+            }
+            results.add(result);
+        }
+
+        appliedRepo.deleteAll(rejected);
+        balanceRepository.applyChanges(List.copyOf(changed.values()), entries);
+        recentWrites.recordWrite(changed.keySet());
+
+        log.info("📦 Пакет применён: commands={}, accounts={}, rejected={}",
+                commands.size(), changed.size(), rejected.size());
+        return results;
+    }
+
+    private static List<AppliedOperation> duplicates(List<AppliedOperation> operations, List<Boolean> firstTime) {
+        List<AppliedOperation> duplicates = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (!firstTime.get(i)) {
+                duplicates.add(operations.get(i));
+            }
+        }
+        return duplicates;
+    }
+
+    private BalanceCommandResult apply(BalanceCommand command,
+                                       Map<String, LockedAccount> accounts,
+                                       Map<String, LockedAccount> changed,
+                                       List<LedgerEntry> entries) {
+        LockedAccount account = accounts.get(command.username());
+        if (account == null) {
+            return accountNotFound(command, command.username());
+        }
+
+        switch (command.kind()) {
+            case DEPOSIT -> {
+                LockedAccount updated = put(accounts, changed, account.withBalance(account.balance().add(command.amount())));
+                entries.add(entry(command, updated, Kind.DEPOSIT, command.amount()));
+                return success(command, updated);
+            }
+            case WITHDRAW -> {
+                if (account.balance().compareTo(command.amount()) < 0) {
+                    return insufficientFunds(command, account.balance());
+                }
+                LockedAccount updated = put(accounts, changed, account.withBalance(account.balance().subtract(command.amount())));
+                entries.add(entry(command, updated, Kind.WITHDRAW, command.amount().negate()));
+                return success(command, updated);
+            }
+            case TRANSFER -> {
+                if (command.username().equals(command.recipient())) {
+                    return failure(command, Status.REJECTED, null, "Нельзя переводить самому себе");
+                }
+                LockedAccount recipient = accounts.get(command.recipient());
+                if (recipient == null) {
+                    return accountNotFound(command, command.recipient());
+                }
+                if (account.balance().compareTo(command.amount()) < 0) {
+                    return insufficientFunds(command, account.balance());
+                }
+                LockedAccount sender = put(accounts, changed, account.withBalance(account.balance().subtract(command.amount())));
+                LockedAccount credited = put(accounts, changed, recipient.withBalance(recipient.balance().add(command.amount())));
+                entries.add(entry(command, sender, Kind.TRANSFER_OUT, command.amount().negate()));
+                entries.add(entry(command, credited, Kind.TRANSFER_IN, command.amount()));
+                return success(command, sender);
+            }
+            default -> throw new IllegalArgumentException("Unknown command kind: " + command.kind());
+        }
+    }
+
+    private static LockedAccount put(Map<String, LockedAccount> accounts,
+                                     Map<String, LockedAccount> changed,
+                                     LockedAccount account) {
+        accounts.put(account.username(), account);
+        changed.put(account.username(), account);
+        return account;
+    }
+
+    private static LedgerEntry entry(BalanceCommand command, LockedAccount account, Kind kind, BigDecimal delta) {
+        return new LedgerEntry(account.id(), command.operationId(), command.clientId(), kind, delta, account.balance());
+    }
+
+    private static BalanceCommandResult success(BalanceCommand command, LockedAccount account) {
+        return new BalanceCommandResult(command.operationId(), command.username(), Status.APPLIED, account.balance(), null);
+    }
+
+    private static BalanceCommandResult insufficientFunds(BalanceCommand command, BigDecimal currentBalance) {
+        return failure(command, Status.INSUFFICIENT_FUNDS, currentBalance,
+                String.format("Недостаточно средств. Баланс: %s, запрошено: %s", currentBalance, command.amount()));
+    }
+
+    private static BalanceCommandResult accountNotFound(BalanceCommand command, String missing) {
+        return new BalanceCommandResult(command.operationId(), missing, Status.ACCOUNT_NOT_FOUND, null,
+                "Аккаунт не найден: " + missing);
+    }
+
+    private static BalanceCommandResult failure(BalanceCommand command, Status status, BigDecimal balance, String message) {
+        return new BalanceCommandResult(command.operationId(), command.username(), status, balance, message);
+    }
+}
@@ -0,0 +1,182 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.dto.BalanceCommand;
+import com.mybank.accounts.dto.BalanceCommandResult;
+import com.mybank.accounts.exception.AccountNotFoundException;
+import com.mybank.accounts.exception.InsufficientFundsException;
+import com.mybank.accounts.exception.OperationConflictException;
+import com.mybank.accounts.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit для POST /accounts/balance и /accounts/transfer.
+ * Конкурентные запросы копятся в очереди не дольше linger-micros (или до max-batch-size),
+ * затем применяются одной транзакцией через {@link BalanceBatchService}.
+ * HTTP-поток каждого запроса освобождается после коммита пакета.
+ * <p>
+ * Включается свойством {@code application.balance.group-commit.enabled=true}.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "application.balance.group-commit", name = "enabled", havingValue = "true")
+public class BalanceGroupCommitWriter {
+
+    private final BalanceBatchService batchService;
+    private final BlockingQueue<Pending> queue;
+    private final DistributionSummary batchSize;
+    private final DistributionSummary batchFill;
+    private final Timer commitTimer;
+
+    @Value("${application.balance.group-commit.max-batch-size:128}")
+    private int maxBatchSize;
+
+    @Value("${application.balance.group-commit.linger-micros:500}")
+    private long lingerMicros;
+
+    @Value("${application.balance.group-commit.await-timeout-ms:5000}")
+    private long awaitTimeoutMs;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public BalanceGroupCommitWriter(BalanceBatchService batchService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${application.balance.group-commit.queue-capacity:10000}") int queueCapacity) {
+        this.batchService = batchService;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSize = DistributionSummary.builder("accounts.balance.group-commit.batch.size")
+                .description("Количество команд в одном group commit")
+                .baseUnit("commands")
+                .register(meterRegistry);
+        this.batchFill = DistributionSummary.builder("accounts.balance.group-commit.batch.fill")
+                .description("Заполненность пакета относительно max-batch-size")
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("accounts.balance.group-commit.commit")
+                .description("Время применения и коммита пакета")
+                .register(meterRegistry);
+        Gauge.builder("accounts.balance.group-commit.queue", queue, BlockingQueue::size)
+                .description("Команды, ожидающие group commit")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("balance-group-commit").daemon().start(this::drainLoop);
+        log.info("🧺 Group commit включён: maxBatchSize={}, lingerMicros={}", maxBatchSize, lingerMicros);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Ставит команду в очередь и ждёт коммита её пакета.
+     * Неуспешный результат пробрасывается теми же исключениями, что и в одиночном режиме.
+     *
+     * @throws ServiceOverloadedException очередь переполнена или пакет не закоммичен за await-timeout-ms
+     */
+    public BalanceCommandResult submitAndAwait(BalanceCommand command) {
+        CompletableFuture<BalanceCommandResult> future = new CompletableFuture<>();
+        if (!queue.offer(new Pending(command, future))) {
+            throw new ServiceOverloadedException("Очередь group commit переполнена");
+        }
+
+        BalanceCommandResult result;
+        try {
+            result = future.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Ожидание group commit прервано", e);
+        } catch (TimeoutException e) {
+            throw new ServiceOverloadedException("Group commit не завершился за " + awaitTimeoutMs + " мс", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return switch (result.status()) {
+            case APPLIED, DUPLICATE -> result;
+            case ACCOUNT_NOT_FOUND -> throw new AccountNotFoundException(result.username());
+            case INSUFFICIENT_FUNDS -> throw new InsufficientFundsException(result.balance(), command.amount());
+            case REJECTED -> throw new IllegalArgumentException(result.message());
+            case CONFLICT -> throw new OperationConflictException(command.operationId(), command.clientId());
+        };
+    }
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.forEach(p -> p.future().completeExceptionally(
+                        new ServiceOverloadedException("Group commit остановлен")));
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        batchSize.record(batch.size());
+        batchFill.record((double) batch.size() / maxBatchSize);
+
+        List<BalanceCommand> commands = batch.stream().map(Pending::command).toList();
+        Timer.Sample sample = Timer.start();
+        try {
+            List<BalanceCommandResult> results = batchService.applyAll(commands);
+            sample.stop(commitTimer);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            sample.stop(commitTimer);
+            log.error("💥 Group commit пакета из {} команд не удался", batch.size(), e);
+            batch.forEach(p -> p.future().completeExceptionally(e));
+        }
+    }
+
+    private record Pending(BalanceCommand command, CompletableFuture<BalanceCommandResult> future) {}
+}
@@ -1,10 +1,13 @@
 package com.mybank.accounts.service;
 
+import com.mybank.accounts.datasource.RecentWritesGuard;
 import com.mybank.accounts.dto.BalanceUpdateRequest;
 import com.mybank.accounts.exception.AccountNotFoundException;
 import com.mybank.accounts.exception.InsufficientFundsException;
-import com.mybank.accounts.model.UserAccount;
+import com.mybank.accounts.exception.OperationConflictException;
+import com.mybank.accounts.model.LedgerEntry;
 import com.mybank.accounts.repository.AccountRepository;
+import com.mybank.accounts.repository.BalanceMutation;
 import com.mybank.accounts.repository.ServiceOperationsRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -19,54 +22,71 @@ import java.math.BigDecimal;
 public class CashService {
 
     private static final Logger log = LoggerFactory.getLogger(CashService.class);
-    private final ServiceOperationsRepository appliedRepo;
     private final AccountRepository accountRepository;
+    private final ServiceOperationsRepository appliedRepo;
+    private final RecentWritesGuard recentWrites;
 
     /**
      * Применяет операцию изменения баланса.
+     * Идемпотентность и изменение баланса выполняются одним SQL-запросом:
+     * баланс меняется на стороне БД ({@code balance = balance ± amount}), поэтому
+     * конкурентные операции по одному счёту не теряют обновления.
      *
      * @param req      запрос на изменение баланса
      * @param clientId ID клиента (сервиса), от которого пришёл запрос (для аудита)
      */
     @Transactional
     public void applyBalance(BalanceUpdateRequest req, String clientId) {
-        // Идемпотентность: проверяем, не применяли ли уже эту операцию
-        boolean firstTime = appliedRepo.insertIfAbsent(req.operationId(), req.username(), clientId);
-        if (!firstTime) {
-            log.info("⏭️ Операция {} уже применена (client={}), пропускаем",
-                    req.operationId(), clientId);
-            return;
-        }
-
-        // Находим аккаунт
-        UserAccount account = accountRepository.findByUserName(req.username())
-                .orElseThrow(() -> new AccountNotFoundException(req.username()));
-
-        BigDecimal currentBalance = account.getBalance();
-        BigDecimal newBalance;
+        BigDecimal delta;
+        BigDecimal required;
+        LedgerEntry.Kind kind;
 
         switch (req.cashOperationType()) {
             case DEPOSIT -> {
-                newBalance = currentBalance.add(req.amount());
-                log.info("💰 DEPOSIT: user={}, amount={}, balance: {} -> {}, client={}",
-                        req.username(), req.amount(), currentBalance, newBalance, clientId);
+                delta = req.amount();
+                required = BigDecimal.ZERO;
+                kind = LedgerEntry.Kind.DEPOSIT;
             }
             case WITHDRAW -> {
-                // Проверка на достаточность средств
-                if (currentBalance.compareTo(req.amount()) < 0) {
-                    throw new InsufficientFundsException(currentBalance, req.amount());
-                }
-                newBalance = currentBalance.subtract(req.amount());
-                log.info("💸 WITHDRAW: user={}, amount={}, balance: {} -> {}, client={}",
-                        req.username(), req.amount(), currentBalance, newBalance, clientId);
+                delta = req.amount().negate();
+                required = req.amount();
+                kind = LedgerEntry.Kind.WITHDRAW;
             }
             default -> throw new IllegalArgumentException("Unknown operation type: " + req.cashOperationType());
         }
 
-        account.setBalance(newBalance);
-        accountRepository.save(account);
+        BalanceMutation result = accountRepository.applyBalanceChange(
+                req.operationId(), clientId, req.username(), delta, required, kind.name());
+
+        // Идемпотентность: операция уже была применена ранее
+        if (!result.firstTime()) {
+            // Повтор принимается только от владельца ключа, чужой operationId — конфликт
+            boolean sameOwner = appliedRepo.findUsername(req.operationId(), clientId)
+                    .map(req.username()::equals)
+                    .orElse(true);
+            if (!sameOwner) {
+                throw new OperationConflictException(req.operationId(), clientId);
+            }
+            log.info("⏭️ Операция {} уже применена (client={}), пропускаем",
+                    req.operationId(), clientId);
+            return;
+        }
+
+        // UPDATE не прошёл: откатываем транзакцию вместе с записью идемпотентности
+        if (!result.balanceChanged()) {
+            if (result.accountMissing()) {
+                throw new AccountNotFoundException(req.username());
+            }
+            throw new InsufficientFundsException(result.getCurrent(), req.amount());
+        }
+
+        recentWrites.recordWrite(req.username());
+        BigDecimal newBalance = result.getBalance();
+        log.info("💰 {}: user={}, amount={}, balance: {} -> {}, client={}",
+                req.cashOperationType(), req.username(), req.amount(),
+                newBalance.subtract(delta), newBalance, clientId);
 
         log.info("✅ Баланс обновлён: user={}, operationId={}, newBalance={}, client={}",
                 req.username(), req.operationId(), newBalance, clientId);
     }
-}
\ No newline at end of file
+}
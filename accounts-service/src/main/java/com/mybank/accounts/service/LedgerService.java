@@ -0,0 +1,32 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.dto.AccountProfile;
+import com.mybank.accounts.dto.BalanceAtResponse;
+import com.mybank.accounts.repository.LedgerRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запросы к журналу баланса. Id счёта берётся из {@link AccountProfileCache}, без отдельного запроса в БД.
+ */
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    private final LedgerRepository ledgerRepository;
+    private final AccountProfileCache profileCache;
+
+    /**
+     * @param at null — текущий момент
+     */
+    @Transactional(readOnly = true)
+    public BalanceAtResponse balanceAt(String username, LocalDateTime at) {
+        AccountProfile profile = profileCache.get(username)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
+        LocalDateTime moment = (at != null) ? at : LocalDateTime.now();
+        return new BalanceAtResponse(username, moment, ledgerRepository.balanceAt(profile.id(), moment));
+    }
+}
@@ -0,0 +1,57 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.repository.LedgerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически снимает балансы счетов, у которых с прошлого снимка накопилось не меньше
+ * {@code application.ledger.snapshot.min-entries} записей журнала. Счета обходятся порциями по
+ * {@code batch-size}, каждая порция — отдельный запрос и отдельная транзакция, поэтому долгих блокировок нет.
+ * Несколько экземпляров могут работать одновременно: одинаковые снимки отбрасывает первичный ключ.
+ */
+@Component
+public class LedgerSnapshotJob {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerSnapshotJob.class);
+    private final LedgerRepository ledgerRepository;
+    private final int minEntries;
+    private final int batchSize;
+
+    public LedgerSnapshotJob(LedgerRepository ledgerRepository,
+                             @Value("${application.ledger.snapshot.min-entries:100}") int minEntries,
+                             @Value("${application.ledger.snapshot.batch-size:1000}") int batchSize) {
+        this.ledgerRepository = ledgerRepository;
+        this.minEntries = minEntries;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${application.ledger.snapshot.interval-ms:3600000}",
+            initialDelayString = "${application.ledger.snapshot.interval-ms:3600000}")
+    public void run() {
+        long startedAt = System.nanoTime();
+        int created = snapshotAll();
+        if (created > 0) {
+            log.info("📸 Ledger snapshots: {} accounts in {} ms", created, (System.nanoTime() - startedAt) / 1_000_000);
+        }
+    }
+
+    /**
+     * Один проход по всем счетам.
+     *
+     * @return сколько снимков создано
+     */
+    public int snapshotAll() {
+        int created = 0;
+        long after = 0;
+        Long upTo;
+        while ((upTo = ledgerRepository.nextAccountBatch(after, batchSize)) != null) {
+            created += ledgerRepository.snapshot(after, upTo, minEntries);
+            after = upTo;
+        }
+        return created;
+    }
+}
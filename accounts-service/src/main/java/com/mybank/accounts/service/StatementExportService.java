@@ -0,0 +1,184 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.exception.AccountNotFoundException;
+import com.mybank.accounts.repository.LedgerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Выписка по счёту из журнала баланса в CSV или NDJSON. Строки идут из серверного курсора
+ * ({@link LedgerRepository#streamEntries}) прямо в выходной поток через буфер фиксированного размера,
+ * поэтому память не зависит от длины выписки.
+ */
+@Service
+public class StatementExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementExportService.class);
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+    private static final String CSV_HEADER = "entry_id,created_at,kind,operation_id,source,delta,balance_after\n";
+
+    public enum Format {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException неизвестный формат
+         */
+        public static Format of(String value) {
+            return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final LedgerRepository ledgerRepository;
+    private final AccountProfileCache profileCache;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public StatementExportService(LedgerRepository ledgerRepository,
+                                  AccountProfileCache profileCache,
+                                  ObjectMapper objectMapper,
+                                  @Value("${application.ledger.statement.fetch-size:1000}") int fetchSize) {
+        this.ledgerRepository = ledgerRepository;
+        this.profileCache = profileCache;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Id счёта для выписки. Вызывается до начала ответа, чтобы неизвестный пользователь получил 404,
+     * а не оборванный поток.
+     */
+    public long accountId(String username) {
+        return profileCache.get(username)
+                .orElseThrow(() -> new AccountNotFoundException(username))
+                .id();
+    }
+
+    /**
+     * Пишет записи счёта из {@code [from, to)} в {@code out}. Транзакция read-only нужна курсору
+     * (autocommit выключен) и при включённой реплике уводит выгрузку на неё.
+     *
+     * @return сколько записей выгружено
+     */
+    @Transactional(readOnly = true)
+    public long write(long accountId, LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+        long startedAt = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        long rows = switch (format) {
+            case CSV -> writeCsv(accountId, from, to, writer);
+            case NDJSON -> writeNdjson(accountId, from, to, writer);
+        };
+        writer.flush();
+        log.info("🧾 Statement {} for account {}: {} entries in {} ms",
+                format, accountId, rows, (System.nanoTime() - startedAt) / 1_000_000);
+        return rows;
+    }
+
+    private long writeCsv(long accountId, LocalDateTime from, LocalDateTime to, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        long[] rows = {0};
+        ledgerRepository.streamEntries(accountId, from, to, fetchSize, rs -> {
+            try {
+                writer.write(Long.toString(rs.getLong(1)));
+                writer.write(',');
+                writer.write(rs.getObject(2, LocalDateTime.class).toString());
+                writer.write(',');
+                writer.write(rs.getString(3));
+                writer.write(',');
+                long operationId = rs.getLong(4);
+                if (!rs.wasNull()) {
+                    writer.write(Long.toString(operationId));
+                }
+                writer.write(',');
+                writeCsvField(writer, rs.getString(5));
+                writer.write(',');
+                writer.write(rs.getBigDecimal(6).toPlainString());
+                writer.write(',');
+                writer.write(rs.getBigDecimal(7).toPlainString());
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private long writeNdjson(long accountId, LocalDateTime from, LocalDateTime to, Writer writer) {
+        long[] rows = {0};
+        // генератор не закрываем: close() закрыл бы и поток ответа, его закрывает контейнер
+        JsonGenerator json = objectMapper.writer().withRootValueSeparator((String) null).createGenerator(writer);
+        ledgerRepository.streamEntries(accountId, from, to, fetchSize, rs -> {
+            writeJsonEntry(json, rs);
+            rows[0]++;
+        });
+        json.flush();
+        return rows[0];
+    }
+
+    private static void writeJsonEntry(JsonGenerator json, ResultSet rs) throws SQLException {
+        json.writeStartObject();
+        json.writeNumberProperty("entryId", rs.getLong(1));
+        json.writeStringProperty("createdAt", rs.getObject(2, LocalDateTime.class).toString());
+        json.writeStringProperty("kind", rs.getString(3));
+        long operationId = rs.getLong(4);
+        if (rs.wasNull()) {
+            json.writeNullProperty("operationId");
+        } else {
+            json.writeNumberProperty("operationId", operationId);
+        }
+        json.writeStringProperty("source", rs.getString(5));
+        json.writeNumberProperty("delta", rs.getBigDecimal(6));
+        json.writeNumberProperty("balanceAfter", rs.getBigDecimal(7));
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -1,10 +1,14 @@
 package com.mybank.accounts.service;
 
+import com.mybank.accounts.datasource.RecentWritesGuard;
 import com.mybank.accounts.dto.TransferConsumeRequest;
 import com.mybank.accounts.exception.AccountNotFoundException;
 import com.mybank.accounts.exception.InsufficientFundsException;
-import com.mybank.accounts.model.UserAccount;
-import com.mybank.accounts.repository.AccountRepository;
+import com.mybank.accounts.exception.OperationConflictException;
+import com.mybank.accounts.model.LedgerEntry;
+import com.mybank.accounts.model.LedgerEntry.Kind;
+import com.mybank.accounts.repository.AccountBalanceRepository;
+import com.mybank.accounts.repository.AccountBalanceRepository.LockedAccount;
 import com.mybank.accounts.repository.ServiceOperationsRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -13,6 +17,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -20,10 +26,14 @@ public class TransferService {
 
     private static final Logger log = LoggerFactory.getLogger(TransferService.class);
     private final ServiceOperationsRepository appliedRepo;
-    private final AccountRepository accountRepository;
+    private final AccountBalanceRepository balanceRepository;
+    private final RecentWritesGuard recentWrites;
 
     /**
      * Выполняет перевод денег между пользователями.
+     * Оба счёта блокируются одним запросом в порядке users.id, поэтому встречные
+     * переводы не теряют обновления и не попадают во взаимоблокировку.
+     * Новые балансы и две записи журнала (списание и зачисление) пишутся одним запросом.
      *
      * @param req      запрос на перевод
      * @param clientId ID клиента (сервиса), от которого пришёл запрос (для аудита)
@@ -33,6 +43,13 @@ public class TransferService {
         // Идемпотентность: проверяем, не применяли ли уже эту операцию
         boolean firstTime = appliedRepo.insertIfAbsent(req.operationId(), req.username(), clientId);
         if (!firstTime) {
+            // Повтор принимается только от владельца ключа, чужой operationId — конфликт
+            boolean sameOwner = appliedRepo.findUsername(req.operationId(), clientId)
+                    .map(req.username()::equals)
+                    .orElse(true);
+            if (!sameOwner) {
+                throw new OperationConflictException(req.operationId(), clientId);
+            }
             log.info("⏭️ Перевод {} уже выполнен (client={}), пропускаем",
                     req.operationId(), clientId);
             return;
@@ -43,41 +60,46 @@ public class TransferService {
             throw new IllegalArgumentException("Нельзя переводить самому себе");
         }
 
-        // Находим отправителя
-        UserAccount sender = accountRepository.findByUserName(req.username())
-                .orElseThrow(() -> new AccountNotFoundException(req.username()));
+        // Блокируем оба счёта в стабильном порядке (по id)
+        Map<String, LockedAccount> accounts = balanceRepository.lockAll(List.of(req.username(), req.recipient()));
 
-        // Находим получателя
-        UserAccount recipient = accountRepository.findByUserName(req.recipient())
-                .orElseThrow(() -> new AccountNotFoundException(req.recipient()));
+        LockedAccount sender = accounts.get(req.username());
+        if (sender == null) {
+            throw new AccountNotFoundException(req.username());
+        }
+        LockedAccount recipient = accounts.get(req.recipient());
+        if (recipient == null) {
+            throw new AccountNotFoundException(req.recipient());
+        }
 
         BigDecimal amount = req.amount();
-        BigDecimal senderBalance = sender.getBalance();
+        BigDecimal senderBalance = sender.balance();
+        BigDecimal recipientBalance = recipient.balance();
 
-        // Проверка на достаточность средств
+        // Проверка на достаточность средств (под блокировкой)
         if (senderBalance.compareTo(amount) < 0) {
             throw new InsufficientFundsException(senderBalance, amount);
         }
 
-        // Списание со счёта отправителя
+        // Списание со счёта отправителя и зачисление на счёт получателя
         BigDecimal newSenderBalance = senderBalance.subtract(amount);
-        sender.setBalance(newSenderBalance);
-
-        // Зачисление на счёт получателя
-        BigDecimal newRecipientBalance = recipient.getBalance().add(amount);
-        recipient.setBalance(newRecipientBalance);
+        BigDecimal newRecipientBalance = recipientBalance.add(amount);
+        LockedAccount debited = sender.withBalance(newSenderBalance);
+        LockedAccount credited = recipient.withBalance(newRecipientBalance);
 
-        // Сохраняем оба аккаунта
-        accountRepository.save(sender);
-        accountRepository.save(recipient);
+        // Сохраняем оба аккаунта (строки уже заблокированы) вместе с журналом
+        balanceRepository.applyChanges(List.of(debited, credited), List.of(
+                new LedgerEntry(debited.id(), req.operationId(), clientId, Kind.TRANSFER_OUT, amount.negate(), newSenderBalance),
+                new LedgerEntry(credited.id(), req.operationId(), clientId, Kind.TRANSFER_IN, amount, newRecipientBalance)));
+        recentWrites.recordWrite(req.username(), req.recipient());
 
         log.info("💸 TRANSFER: from={} to={}, amount={}, senderBalance: {} -> {}, recipientBalance: {} -> {}, client={}",
                 req.username(), req.recipient(), amount,
                 senderBalance, newSenderBalance,
-                recipient.getBalance().subtract(amount), newRecipientBalance,
+                recipientBalance, newRecipientBalance,
                 clientId);
 
         log.info("✅ Перевод выполнен: operationId={}, from={}, to={}, amount={}, client={}",
                 req.operationId(), req.username(), req.recipient(), amount, clientId);
     }
-}
\ No newline at end of file
+}
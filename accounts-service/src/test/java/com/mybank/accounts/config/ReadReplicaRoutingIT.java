@@ -0,0 +1,195 @@
+package com.mybank.accounts.config;
+
+import com.mybank.accounts.datasource.ReplicaHealthMonitor;
+import com.mybank.accounts.dto.BalanceUpdateRequest;
+import com.mybank.accounts.dto.CashOperationType;
+import com.mybank.accounts.service.AccountsService;
+import com.mybank.accounts.service.CashService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Primary и потоковая реплика в Testcontainers: read-only транзакции уходят на реплику
+ * ({@code pg_is_in_recovery() = true}), запись и чтения пользователя сразу после его записи — на primary,
+ * при недоступной реплике чтения переключаются на primary.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+        "application.datasource.replica.enabled=true",
+        "application.datasource.replica.health-check-ms=200",
+        "application.datasource.replica.read-your-writes-window=PT1S"
+})
+@Import(TestSecurityItConfig.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReadReplicaRoutingIT {
+
+    private static final String IMAGE = "postgres:16-alpine";
+    private static final AtomicLong OPERATION_IDS = new AtomicLong(7_000_000);
+
+    static Network network = Network.newNetwork();
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>(IMAGE)
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withDatabaseName("accounts_test")
+            .withUsername("test")
+            .withPassword("test")
+            // pg_hba по умолчанию пускает replication только с localhost
+            .withCopyToContainer(Transferable.of(
+                    "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"\n", 0755),
+                    "/docker-entrypoint-initdb.d/replication.sh")
+            .withCommand("postgres", "-c", "wal_level=replica", "-c", "max_wal_senders=5");
+
+    @Container
+    static GenericContainer<?> replica = new GenericContainer<>(IMAGE)
+            .withNetwork(network)
+            .dependsOn(primary)
+            .withEnv("PGPASSWORD", "test")
+            .withExposedPorts(5432)
+            .withCreateContainerCmdModifier(cmd -> cmd
+                    .withUser("postgres")
+                    .withEntrypoint("bash", "-c", """
+                            until pg_basebackup -h primary -U test -D "$PGDATA" -R -X stream; do
+                              rm -rf "$PGDATA"/*; sleep 1
+                            done
+                            chmod 700 "$PGDATA"
+                            exec postgres
+                            """))
+            .withEnv("PGDATA", "/var/lib/postgresql/data")
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    @DynamicPropertySource
+    static void overrideProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> primary.getJdbcUrl() + "&currentSchema=accounts");
+        registry.add("spring.datasource.username", () -> "test");
+        registry.add("spring.datasource.password", () -> "test");
+        registry.add("application.datasource.replica.url", () -> "jdbc:postgresql://" + replica.getHost() + ":"
+                + replica.getMappedPort(5432) + "/accounts_test?currentSchema=accounts");
+        registry.add("spring.liquibase.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    @Autowired AccountsService accountsService;
+    @Autowired CashService cashService;
+    @Autowired ReplicaHealthMonitor replicaHealth;
+    @Autowired @Qualifier("replicaDataSource") HikariDataSource replicaDataSource;
+    @Autowired TransactionTemplate tx;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void awaitReplica() throws InterruptedException {
+        await(() -> replicaHealth.isHealthy(), "replica healthy");
+    }
+
+    @AfterEach
+    void clearUser() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @Order(1)
+    void replicaPool_shouldFailFast_andHealthCheckShouldRunOnItsOwnThread() {
+        assertThat(replicaDataSource.getConnectionTimeout()).isEqualTo(ReplicaDataSourceConfig.REPLICA_CONNECTION_TIMEOUT_MS);
+        assertThat(Thread.getAllStackTraces().keySet())
+                .extracting(Thread::getName)
+                .contains("replica-health");
+    }
+
+    @Test
+    @Order(2)
+    void readOnlyTransaction_shouldUseReplica_otherwisePrimary() {
+        assertThat(inRecovery(true)).isTrue();
+        assertThat(inRecovery(false)).isFalse();
+        assertThat(jdbc.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)).isFalse();
+    }
+
+    @Test
+    @Order(3)
+    void afterOwnWrite_readsShouldStayOnPrimary_forWindow() throws InterruptedException {
+        BigDecimal before = accountsService.getMe("bob").balance();
+
+        actAs("bob");
+        cashService.applyBalance(new BalanceUpdateRequest("bob", new BigDecimal("5.00"), CashOperationType.DEPOSIT,
+                OPERATION_IDS.incrementAndGet()), "replica-it");
+
+        assertThat(inRecovery(true)).isFalse();
+        assertThat(accountsService.getMe("bob").balance()).isEqualByComparingTo(before.add(new BigDecimal("5.00")));
+
+        actAs("alice");
+        assertThat(inRecovery(true)).isTrue();
+
+        actAs("bob");
+        await(() -> inRecovery(true), "bob back on replica after the window");
+    }
+
+    @Test
+    @Order(4)
+    @DirtiesContext
+    void replicaDown_shouldFallBackToPrimary() throws InterruptedException {
+        replicaDataSource.close();
+
+        assertThat(inRecovery(true)).isFalse();
+        assertThat(replicaHealth.isHealthy()).isFalse();
+        assertThat(accountsService.getMe("alice").username()).isEqualTo("alice");
+    }
+
+    private boolean inRecovery(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(tx.getTransactionManager());
+        template.setReadOnly(readOnly);
+        return Boolean.TRUE.equals(template.execute(s -> jdbc.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)));
+    }
+
+    private static void actAs(String username) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject(username)
+                .claim("preferred_username", username)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out waiting for %s", what).isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.mybank.accounts.contract;
 
 import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.dto.BalanceCommandResult;
 import com.mybank.accounts.dto.BalanceUpdateRequest;
 import com.mybank.accounts.outbox.OutboxProcessor;
+import com.mybank.accounts.repository.AccountBalanceRepository;
 import com.mybank.accounts.repository.AccountOperationRepository;
 import com.mybank.accounts.repository.AccountRepository;
 import com.mybank.accounts.repository.ServiceOperationsRepository;
 import com.mybank.accounts.service.AccountsService;
+import com.mybank.accounts.service.BalanceBatchService;
 import com.mybank.accounts.service.CashService;
 import com.mybank.accounts.service.TransferService;
+import com.mybank.common.id.PooledIdAllocator;
 import io.restassured.module.mockmvc.RestAssuredMockMvc;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,9 +24,14 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 
 @SpringBootTest
@@ -49,9 +58,18 @@ public abstract class ContractTestBase {
     @MockitoBean
     ServiceOperationsRepository serviceOperationsRepository;
 
+    @MockitoBean
+    AccountBalanceRepository accountBalanceRepository;
+
+    @MockitoBean
+    BalanceBatchService balanceBatchService;
+
     @MockitoBean
     OutboxProcessor outboxProcessor;
 
+    @MockitoBean
+    PooledIdAllocator operationIdAllocator;
+
     @MockitoBean
     TransferService transferService;
 
@@ -70,5 +88,12 @@ public abstract class ContractTestBase {
         );
 
         doNothing().when(cashService).applyBalance(any(BalanceUpdateRequest.class), anyString());
+
+        when(balanceBatchService.applyAll(anyList())).thenReturn(List.of(
+                new BalanceCommandResult(12345L, "alice", BalanceCommandResult.Status.APPLIED,
+                        new BigDecimal("10100.00"), null),
+                new BalanceCommandResult(12346L, "bob", BalanceCommandResult.Status.INSUFFICIENT_FUNDS,
+                        new BigDecimal("10.00"), "Недостаточно средств. Баланс: 10.00, запрошено: 50.00")
+        ));
     }
 }
@@ -0,0 +1,91 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.dto.AccountDirectoryPage;
+import com.mybank.accounts.dto.AccountSummaryResponse;
+import com.mybank.accounts.template.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Справочник получателей: поиск по началу логина/имени/фамилии и листание по курсору без пропусков и повторов.
+ */
+@SpringBootTest
+@Import(TestSecurityItConfig.class)
+class AccountDirectoryIT extends BaseIntegrationTest {
+
+    private static final String PREFIX = "dir-";
+
+    @Autowired AccountsService accountsService;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        insert("dir-anna", "Anna", "Karenina");
+        insert("dir-boris", "Boris", "Godunov");
+        insert("dir-ivan", "Ivan", "Vasilyev");
+        insert("dir-ivana", "Ivana", "Petrova");
+        insert("dir-pyotr", "Pyotr", "Ivanov");
+        insert("dir_x", "Xenia", "Sobchak");
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbc.update("DELETE FROM accounts.users WHERE user_name LIKE 'dir%'");
+    }
+
+    @Test
+    void search_shouldMatchPrefixOfAnyName_ignoringCase_andExcludeCaller() {
+        assertThat(usernames(accountsService.searchDirectory("dir-anna", "IVAN", null, null)))
+                .containsExactly("dir-ivan", "dir-ivana", "dir-pyotr");
+
+        assertThat(usernames(accountsService.searchDirectory("dir-ivan", "ivan", null, null)))
+                .containsExactly("dir-ivana", "dir-pyotr");
+
+        assertThat(usernames(accountsService.searchDirectory("dir-anna", "ivan vas", null, null)))
+                .containsExactly("dir-ivan");
+
+        // "_" — обычный символ, а не шаблон LIKE
+        assertThat(usernames(accountsService.searchDirectory("dir-anna", "dir_", null, null)))
+                .containsExactly("dir_x");
+    }
+
+    @Test
+    void search_shouldWalkAllPagesByCursor() {
+        List<String> seen = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            AccountDirectoryPage page = accountsService.searchDirectory("dir-anna", PREFIX, after, 2);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(2);
+            seen.addAll(usernames(page));
+            after = page.nextCursor();
+            pages++;
+        } while (after != null);
+
+        assertThat(pages).isEqualTo(2);
+        assertThat(seen).containsExactly("dir-boris", "dir-ivan", "dir-ivana", "dir-pyotr");
+    }
+
+    private void insert(String username, String firstName, String lastName) {
+        jdbc.update("""
+                INSERT INTO accounts.users (user_name, first_name, last_name, email, date_of_birth)
+                VALUES (?, ?, ?, ?, ?)
+                """, username, firstName, lastName, username + "@mybank.com", LocalDate.of(1990, 1, 1));
+    }
+
+    private static List<String> usernames(AccountDirectoryPage page) {
+        return page.items().stream().map(AccountSummaryResponse::username).toList();
+    }
+}
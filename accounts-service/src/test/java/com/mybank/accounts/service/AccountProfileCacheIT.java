@@ -0,0 +1,70 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.dto.AccountMeResponse;
+import com.mybank.accounts.dto.AccountUpdateRequest;
+import com.mybank.accounts.template.BaseIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Профиль отдаётся из кэша (изменение строки в обход сервиса не видно до ttl), баланс — всегда из БД,
+ * PUT /accounts/me сбрасывает профиль.
+ */
+@SpringBootTest
+@Import(TestSecurityItConfig.class)
+class AccountProfileCacheIT extends BaseIntegrationTest {
+
+    private static final String USER = "bob";
+
+    @Autowired AccountsService accountsService;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired JdbcTemplate jdbc;
+
+    @AfterEach
+    void restoreProfile() {
+        accountsService.updateMe(USER, new AccountUpdateRequest(null, "Bob", "Brown", LocalDate.of(1992, 2, 2)));
+    }
+
+    @Test
+    void getMe_shouldServeProfileFromCache_butReadBalanceFromDb() {
+        AccountMeResponse first = accountsService.getMe(USER);
+        double hitsBefore = gets("hit");
+
+        jdbc.update("UPDATE accounts.users SET first_name = 'Robert', balance = balance + 5 WHERE user_name = ?", USER);
+        AccountMeResponse second = accountsService.getMe(USER);
+
+        assertThat(second.firstName()).isEqualTo(first.firstName());
+        assertThat(second.balance()).isEqualByComparingTo(first.balance().add(BigDecimal.valueOf(5)));
+        assertThat(gets("hit") - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void updateMe_shouldEvictCachedProfile() {
+        accountsService.getMe(USER);
+        double missesBefore = gets("miss");
+
+        accountsService.updateMe(USER, new AccountUpdateRequest(null, "Robert", "Brown", LocalDate.of(1992, 2, 2)));
+        AccountMeResponse updated = accountsService.getMe(USER);
+
+        assertThat(updated.firstName()).isEqualTo("Robert");
+        assertThat(gets("miss") - missesBefore).isEqualTo(1);
+    }
+
+    private double gets(String result) {
+        var counter = meterRegistry.find("cache.gets")
+                .tags("cache", AccountProfileCache.CACHE_NAME, "result", result)
+                .functionCounter();
+        return counter != null ? counter.count() : 0;
+    }
+}
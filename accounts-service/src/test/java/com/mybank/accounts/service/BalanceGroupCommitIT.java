@@ -0,0 +1,209 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.dto.BalanceCommand;
+import com.mybank.accounts.dto.BalanceCommand.Kind;
+import com.mybank.accounts.dto.BalanceCommandResult;
+import com.mybank.accounts.exception.AccountNotFoundException;
+import com.mybank.accounts.exception.GlobalExceptionHandler;
+import com.mybank.accounts.exception.InsufficientFundsException;
+import com.mybank.accounts.exception.OperationConflictException;
+import com.mybank.accounts.exception.ServiceOverloadedException;
+import com.mybank.accounts.template.BaseIntegrationTest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest(properties = {
+        "application.balance.group-commit.enabled=true",
+        "application.balance.group-commit.max-batch-size=64",
+        "application.balance.group-commit.linger-micros=500"
+})
+@Import(TestSecurityItConfig.class)
+class BalanceGroupCommitIT extends BaseIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceGroupCommitIT.class);
+
+    private static final int THREADS = 200;
+    private static final int OPS_PER_THREAD = 25;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private static final AtomicLong OPERATION_IDS = new AtomicLong(3_000_000);
+
+    @Autowired BalanceGroupCommitWriter writer;
+    @Autowired BalanceBatchService batchService;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void resetBalances() {
+        jdbc.update("UPDATE users SET balance = 10000.00 WHERE user_name IN ('alice', 'bob')");
+    }
+
+    @Test
+    void concurrentDeposits_shouldBeGroupedAndNotLoseUpdates() throws Exception {
+        long startedAt = System.nanoTime();
+        hammer(() -> writer.submitAndAwait(command(Kind.DEPOSIT, "alice", null)));
+        long elapsed = System.nanoTime() - startedAt;
+
+        BigDecimal expected = new BigDecimal("10000.00")
+                .add(AMOUNT.multiply(BigDecimal.valueOf((long) THREADS * OPS_PER_THREAD)));
+        assertThat(balance("alice")).isEqualByComparingTo(expected);
+
+        DistributionSummary batchSize = meterRegistry.get("accounts.balance.group-commit.batch.size").summary();
+        assertThat(batchSize.max()).isGreaterThan(1);
+
+        log.info("📊 Group commit: {} ops/sec, пакетов={}, средний размер={}, среднее время коммита {} ms",
+                String.format("%.0f", (double) THREADS * OPS_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / elapsed),
+                batchSize.count(), String.format("%.1f", batchSize.mean()),
+                String.format("%.2f", meterRegistry.get("accounts.balance.group-commit.commit").timer()
+                        .mean(TimeUnit.MILLISECONDS)));
+    }
+
+    @Test
+    void concurrentWithdrawals_shouldFailIndividuallyWhenFundsRunOut() throws Exception {
+        jdbc.update("UPDATE users SET balance = 1000.00 WHERE user_name = 'alice'");
+        AtomicInteger rejected = new AtomicInteger();
+
+        hammer(() -> {
+            try {
+                writer.submitAndAwait(command(Kind.WITHDRAW, "alice", null));
+            } catch (InsufficientFundsException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(balance("alice")).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(rejected.get()).isEqualTo(THREADS * OPS_PER_THREAD - 1000);
+    }
+
+    @Test
+    void crossingTransfers_shouldConserveTotal() throws Exception {
+        AtomicInteger n = new AtomicInteger();
+        hammer(() -> {
+            boolean even = n.incrementAndGet() % 2 == 0;
+            writer.submitAndAwait(command(Kind.TRANSFER, even ? "alice" : "bob", even ? "bob" : "alice"));
+        });
+
+        assertThat(balance("alice").add(balance("bob"))).isEqualByComparingTo(new BigDecimal("20000.00"));
+    }
+
+    @Test
+    void duplicateAndFailedCommands_shouldReportPerRequestOutcome() {
+        BalanceCommand deposit = command(Kind.DEPOSIT, "alice", null);
+        assertThat(writer.submitAndAwait(deposit).status()).isEqualTo(BalanceCommandResult.Status.APPLIED);
+        assertThat(writer.submitAndAwait(deposit).status()).isEqualTo(BalanceCommandResult.Status.DUPLICATE);
+
+        assertThatThrownBy(() -> writer.submitAndAwait(command(Kind.DEPOSIT, "nobody", null)))
+                .isInstanceOf(AccountNotFoundException.class);
+
+        // Отклонённая операция не оставляет записи идемпотентности и может быть повторена
+        BalanceCommand tooBig = new BalanceCommand(Kind.WITHDRAW, OPERATION_IDS.incrementAndGet(), "cash-it",
+                "alice", null, new BigDecimal("1000000.00"));
+        assertThatThrownBy(() -> writer.submitAndAwait(tooBig)).isInstanceOf(InsufficientFundsException.class);
+        jdbc.update("UPDATE users SET balance = 2000000.00 WHERE user_name = 'alice'");
+        assertThat(writer.submitAndAwait(tooBig).status()).isEqualTo(BalanceCommandResult.Status.APPLIED);
+    }
+
+    @Test
+    void repeatWithinBatch_shouldGetFirstCopysOutcome() {
+        BalanceCommand tooBig = new BalanceCommand(Kind.WITHDRAW, OPERATION_IDS.incrementAndGet(), "cash-it",
+                "alice", null, new BigDecimal("1000000.00"));
+        BalanceCommand deposit = command(Kind.DEPOSIT, "alice", null);
+
+        List<BalanceCommandResult> results = batchService.applyAll(List.of(tooBig, deposit, tooBig, deposit));
+
+        assertThat(results).extracting(BalanceCommandResult::status).containsExactly(
+                BalanceCommandResult.Status.INSUFFICIENT_FUNDS, BalanceCommandResult.Status.APPLIED,
+                BalanceCommandResult.Status.INSUFFICIENT_FUNDS, BalanceCommandResult.Status.DUPLICATE);
+        assertThat(balance("alice")).isEqualByComparingTo("10001.00");
+        // Отклонённая операция не оставила записи идемпотентности и может быть повторена
+        jdbc.update("UPDATE users SET balance = 2000000.00 WHERE user_name = 'alice'");
+        assertThat(writer.submitAndAwait(tooBig).status()).isEqualTo(BalanceCommandResult.Status.APPLIED);
+    }
+
+    @Test
+    void sameOperationIdFromAnotherUser_shouldConflict_andKeepOwnersRecord() {
+        BalanceCommand deposit = command(Kind.DEPOSIT, "alice", null);
+        assertThat(writer.submitAndAwait(deposit).status()).isEqualTo(BalanceCommandResult.Status.APPLIED);
+
+        BalanceCommand foreign = new BalanceCommand(Kind.DEPOSIT, deposit.operationId(), deposit.clientId(),
+                "bob", null, AMOUNT);
+        assertThatThrownBy(() -> writer.submitAndAwait(foreign)).isInstanceOf(OperationConflictException.class);
+
+        // Запись идемпотентности владельца не удалена: его повтор — по-прежнему DUPLICATE
+        assertThat(writer.submitAndAwait(deposit).status()).isEqualTo(BalanceCommandResult.Status.DUPLICATE);
+        assertThat(balance("bob")).isEqualByComparingTo("10000.00");
+    }
+
+    @Test
+    void fullQueueOrCommitTimeout_shouldSurfaceAsServiceUnavailable() {
+        // Без запущенного обработчика: очередь на одну команду, ожидание коммита 0 мс
+        BalanceGroupCommitWriter stalled = new BalanceGroupCommitWriter(
+                mock(BalanceBatchService.class), new SimpleMeterRegistry(), 1);
+
+        assertThatThrownBy(() -> stalled.submitAndAwait(command(Kind.DEPOSIT, "alice", null)))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasMessageContaining("не завершился");
+        ServiceOverloadedException queueFull = catchThrowableOfType(ServiceOverloadedException.class,
+                () -> stalled.submitAndAwait(command(Kind.DEPOSIT, "alice", null)));
+        assertThat(queueFull).hasMessageContaining("переполнена");
+
+        assertThat(new GlobalExceptionHandler().handleOverloaded(queueFull).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static BalanceCommand command(Kind kind, String username, String recipient) {
+        return new BalanceCommand(kind, OPERATION_IDS.incrementAndGet(), "cash-it", username, recipient, AMOUNT);
+    }
+
+    private void hammer(Runnable operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    operation.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+    }
+
+    private BigDecimal balance(String username) {
+        return jdbc.queryForObject("SELECT balance FROM users WHERE user_name = ?", BigDecimal.class, username);
+    }
+}
@@ -0,0 +1,184 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.dto.BalanceUpdateRequest;
+import com.mybank.accounts.dto.CashOperationType;
+import com.mybank.accounts.exception.InsufficientFundsException;
+import com.mybank.accounts.exception.OperationConflictException;
+import com.mybank.accounts.model.UserAccount;
+import com.mybank.accounts.repository.AccountRepository;
+import com.mybank.accounts.repository.ServiceOperationsRepository;
+import com.mybank.accounts.template.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Конкурентные изменения баланса одного счёта: сотни потоков бьют в alice.
+ * Проверяет отсутствие потерянных обновлений и печатает ops/sec
+ * атомарного пути в сравнении со старым read-modify-write через JPA.
+ */
+@SpringBootTest
+@Import(TestSecurityItConfig.class)
+class CashServiceContentionIT extends BaseIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CashServiceContentionIT.class);
+
+    private static final String USER = "alice";
+    private static final int THREADS = 200;
+    private static final int OPS_PER_THREAD = 25;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private static final AtomicLong OPERATION_IDS = new AtomicLong(1_000_000);
+
+    @Autowired CashService cashService;
+    @Autowired AccountRepository accountRepository;
+    @Autowired ServiceOperationsRepository appliedRepo;
+    @Autowired TransactionTemplate tx;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void resetBalance() {
+        setBalance(new BigDecimal("10000.00"));
+    }
+
+    @Test
+    void concurrentDeposits_shouldNotLoseUpdates() throws Exception {
+        BigDecimal before = balance();
+
+        double opsPerSec = hammer(operationId -> cashService.applyBalance(
+                new BalanceUpdateRequest(USER, AMOUNT, CashOperationType.DEPOSIT, operationId), "cash-it"));
+
+        BigDecimal expected = before.add(AMOUNT.multiply(BigDecimal.valueOf((long) THREADS * OPS_PER_THREAD)));
+        assertThat(balance()).isEqualByComparingTo(expected);
+
+        log.info("📊 Атомарный путь: {} потоков x {} операций, {} ops/sec",
+                THREADS, OPS_PER_THREAD, String.format("%.0f", opsPerSec));
+    }
+
+    @Test
+    void concurrentWithdrawals_shouldNeverOverdraw() throws Exception {
+        setBalance(new BigDecimal("1000.00"));
+        AtomicInteger rejected = new AtomicInteger();
+
+        hammer(operationId -> {
+            try {
+                cashService.applyBalance(
+                        new BalanceUpdateRequest(USER, AMOUNT, CashOperationType.WITHDRAW, operationId), "cash-it");
+            } catch (InsufficientFundsException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(balance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(rejected.get()).isEqualTo(THREADS * OPS_PER_THREAD - 1000);
+    }
+
+    @Test
+    void sameOperationFromManyThreads_shouldApplyOnce() throws Exception {
+        BigDecimal before = balance();
+        long operationId = OPERATION_IDS.incrementAndGet();
+
+        hammer(ignored -> cashService.applyBalance(
+                new BalanceUpdateRequest(USER, AMOUNT, CashOperationType.DEPOSIT, operationId), "cash-it"));
+
+        assertThat(balance()).isEqualByComparingTo(before.add(AMOUNT));
+    }
+
+    @Test
+    void sameOperationIdFromAnotherUser_shouldBeRejectedAsConflict() {
+        BigDecimal before = balance();
+        long operationId = OPERATION_IDS.incrementAndGet();
+        cashService.applyBalance(new BalanceUpdateRequest(USER, AMOUNT, CashOperationType.DEPOSIT, operationId), "cash-it");
+
+        assertThatThrownBy(() -> cashService.applyBalance(
+                new BalanceUpdateRequest("bob", AMOUNT, CashOperationType.DEPOSIT, operationId), "cash-it"))
+                .isInstanceOf(OperationConflictException.class);
+        // Повтор владельцем по-прежнему просто пропускается
+        cashService.applyBalance(new BalanceUpdateRequest(USER, AMOUNT, CashOperationType.DEPOSIT, operationId), "cash-it");
+
+        assertThat(balance()).isEqualByComparingTo(before.add(AMOUNT));
+    }
+
+    @Test
+    void legacyReadModifyWrite_forComparison() throws Exception {
+        BigDecimal before = balance();
+
+        // Прежняя реализация: insertIfAbsent + SELECT + расчёт в Java + save
+        double opsPerSec = hammer(operationId -> tx.executeWithoutResult(status -> {
+            if (!appliedRepo.insertIfAbsent(operationId, USER, "cash-it-legacy")) {
+                return;
+            }
+            UserAccount account = accountRepository.findByUserName(USER).orElseThrow();
+            account.setBalance(account.getBalance().add(AMOUNT));
+            accountRepository.save(account);
+        }));
+
+        BigDecimal expected = before.add(AMOUNT.multiply(BigDecimal.valueOf((long) THREADS * OPS_PER_THREAD)));
+        BigDecimal lost = expected.subtract(balance());
+
+        log.info("📊 Старый путь (read-modify-write): {} ops/sec, потеряно обновлений на сумму {}",
+                String.format("%.0f", opsPerSec), lost);
+        assertThat(lost).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+    }
+
+    /**
+     * Запускает THREADS потоков по OPS_PER_THREAD операций с уникальными operationId.
+     *
+     * @return пропускная способность, операций в секунду
+     */
+    private double hammer(LongConsumer operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    operation.accept(OPERATION_IDS.incrementAndGet());
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(2, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        return (double) THREADS * OPS_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    private BigDecimal balance() {
+        return jdbc.queryForObject("SELECT balance FROM users WHERE user_name = ?", BigDecimal.class, USER);
+    }
+
+    private void setBalance(BigDecimal balance) {
+        jdbc.update("UPDATE users SET balance = ? WHERE user_name = ?", balance, USER);
+    }
+}
@@ -0,0 +1,118 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.dto.BalanceCommand;
+import com.mybank.accounts.dto.BalanceUpdateRequest;
+import com.mybank.accounts.dto.CashOperationType;
+import com.mybank.accounts.dto.TransferConsumeRequest;
+import com.mybank.accounts.template.BaseIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Каждое изменение баланса (наличные, перевод, пакет) оставляет запись журнала с итоговым балансом;
+ * баланс на момент времени одинаков со снимками и без них.
+ */
+@SpringBootTest(properties = "application.ledger.snapshot.min-entries=2")
+@Import(TestSecurityItConfig.class)
+class LedgerIT extends BaseIntegrationTest {
+
+    private static final AtomicLong OPERATION_IDS = new AtomicLong(9_000_000);
+
+    @Autowired CashService cashService;
+    @Autowired TransferService transferService;
+    @Autowired BalanceBatchService balanceBatchService;
+    @Autowired LedgerService ledgerService;
+    @Autowired LedgerSnapshotJob snapshotJob;
+    @Autowired JdbcTemplate jdbc;
+
+    @Test
+    void everyBalanceChange_shouldAppendEntryWithResultingBalance() {
+        long opBase = OPERATION_IDS.get();
+        cashService.applyBalance(new BalanceUpdateRequest("alice", new BigDecimal("100.00"),
+                CashOperationType.DEPOSIT, OPERATION_IDS.incrementAndGet()), "cash-service");
+        transferService.transfer(new TransferConsumeRequest(OPERATION_IDS.incrementAndGet(), "alice", "bob",
+                new BigDecimal("30.00")), "transfer-service");
+        balanceBatchService.applyAll(List.of(
+                BalanceCommand.of(new BalanceUpdateRequest("bob", new BigDecimal("5.00"),
+                        CashOperationType.WITHDRAW, OPERATION_IDS.incrementAndGet()), "cash-service"),
+                BalanceCommand.of(new BalanceUpdateRequest("bob", new BigDecimal("1000000.00"),
+                        CashOperationType.WITHDRAW, OPERATION_IDS.incrementAndGet()), "cash-service")));
+
+        List<Map<String, Object>> entries = jdbc.queryForList("""
+                SELECT u.user_name, e.kind, e.source, e.delta
+                  FROM accounts.ledger_entries e JOIN accounts.users u ON u.id = e.account_id
+                 WHERE e.operation_id > ?
+                 ORDER BY e.entry_id
+                """, opBase);
+        assertThat(entries).extracting(e -> e.get("user_name") + ":" + e.get("kind") + ":" + e.get("source"))
+                .containsExactly(
+                        "alice:DEPOSIT:cash-service",
+                        "alice:TRANSFER_OUT:transfer-service",
+                        "bob:TRANSFER_IN:transfer-service",
+                        "bob:WITHDRAW:cash-service");
+
+        for (String user : List.of("alice", "bob")) {
+            BigDecimal balance = jdbc.queryForObject(
+                    "SELECT balance FROM accounts.users WHERE user_name = ?", BigDecimal.class, user);
+            BigDecimal lastEntry = jdbc.queryForObject("""
+                    SELECT e.balance_after
+                      FROM accounts.ledger_entries e JOIN accounts.users u ON u.id = e.account_id
+                     WHERE u.user_name = ?
+                     ORDER BY e.created_at DESC, e.entry_id DESC
+                     LIMIT 1
+                    """, BigDecimal.class, user);
+            assertThat(lastEntry).isEqualByComparingTo(balance);
+        }
+    }
+
+    @Test
+    void balanceAt_shouldBeSameWithAndWithoutSnapshots() throws InterruptedException {
+        String user = "bob";
+        deposit(user, "10.00");
+        deposit(user, "20.00");
+        Thread.sleep(5);
+        LocalDateTime middle = jdbc.queryForObject("SELECT clock_timestamp()::timestamp", LocalDateTime.class);
+        BigDecimal atMiddle = ledgerService.balanceAt(user, middle).balance();
+        deposit(user, "40.00");
+        deposit(user, "80.00");
+        BigDecimal now = ledgerService.balanceAt(user, null).balance();
+
+        assertThat(now).isEqualByComparingTo(atMiddle.add(new BigDecimal("120.00")));
+        assertThat(now).isEqualByComparingTo(jdbc.queryForObject(
+                "SELECT balance FROM accounts.users WHERE user_name = ?", BigDecimal.class, user));
+
+        assertThat(snapshotJob.snapshotAll()).isPositive();
+        deposit(user, "1.00");
+
+        assertThat(ledgerService.balanceAt(user, middle).balance()).isEqualByComparingTo(atMiddle);
+        assertThat(ledgerService.balanceAt(user, null).balance()).isEqualByComparingTo(now.add(BigDecimal.ONE));
+        // одна новая запись — меньше min-entries, второй снимок не нужен
+        assertThat(snapshotJob.snapshotAll()).isZero();
+    }
+
+    @Test
+    void ledgerEntries_shouldBeAppendOnly() {
+        assertThatThrownBy(() -> jdbc.update("UPDATE accounts.ledger_entries SET delta = 0"))
+                .hasMessageContaining("append-only");
+        assertThatThrownBy(() -> jdbc.update("DELETE FROM accounts.ledger_entries"))
+                .hasMessageContaining("append-only");
+    }
+
+    private void deposit(String user, String amount) {
+        cashService.applyBalance(new BalanceUpdateRequest(user, new BigDecimal(amount),
+                CashOperationType.DEPOSIT, OPERATION_IDS.incrementAndGet()), "cash-service");
+    }
+}
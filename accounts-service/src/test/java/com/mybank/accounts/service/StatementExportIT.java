@@ -0,0 +1,200 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.template.BaseIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Выписка GET /accounts/me/statement: CSV и NDJSON за полуинтервал [from, to) и плоская память на большом журнале.
+ * Размер журнала для замера — {@code -Dstatement.benchmark.rows} (по умолчанию 200 000; 10 000 000 — ручной прогон).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestSecurityItConfig.class)
+class StatementExportIT extends BaseIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementExportIT.class);
+    private static final int BENCHMARK_ROWS = Integer.getInteger("statement.benchmark.rows", 200_000);
+    private static final long MAX_RETAINED_BYTES = 32L * 1024 * 1024;
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired MockMvc mockMvc;
+    @Autowired StatementExportService statementExportService;
+    @Autowired JdbcTemplate jdbc;
+
+    @Test
+    void statement_shouldStreamEntriesOfRange_asCsvAndNdjson() throws Exception {
+        String user = newUser();
+        long accountId = accountId(user);
+        entry(accountId, 1L, "cash-service", "DEPOSIT", "100.00", "100.00", DAY.minusSeconds(1));
+        entry(accountId, 2L, "cash-service", "DEPOSIT", "50.50", "150.50", DAY.plusHours(1));
+        entry(accountId, 3L, "transfer, \"legacy\"", "TRANSFER_OUT", "-20.00", "130.50", DAY.plusHours(2));
+        entry(accountId, 4L, "cash-service", "WITHDRAW", "-30.50", "100.00", DAY.plusDays(1));
+
+        MvcResult csv = mockMvc.perform(statement(user, "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"statement-" + user + ".csv\""))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body.lines().toList()).satisfiesExactly(
+                line -> assertThat(line).isEqualTo("entry_id,created_at,kind,operation_id,source,delta,balance_after"),
+                line -> assertThat(line).endsWith(",2024-03-01T01:00,DEPOSIT,2,cash-service,50.50,150.50"),
+                line -> assertThat(line).endsWith(",2024-03-01T02:00,TRANSFER_OUT,3,\"transfer, \"\"legacy\"\"\",-20.00,130.50"));
+
+        MvcResult ndjson = mockMvc.perform(statement(user, "NDJSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String lines = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(lines.lines().toList()).satisfiesExactly(
+                line -> assertThat(line).contains("\"createdAt\":\"2024-03-01T01:00\"", "\"kind\":\"DEPOSIT\"",
+                        "\"operationId\":2", "\"delta\":50.50", "\"balanceAfter\":150.50"),
+                line -> assertThat(line).contains("\"source\":\"transfer, \\\"legacy\\\"\"", "\"delta\":-20.00"));
+    }
+
+    @Test
+    void statement_shouldRejectBadRequest_beforeStreaming() throws Exception {
+        mockMvc.perform(statement(newUser(), "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/accounts/me/statement")
+                        .param("from", DAY.plusDays(1).toString())
+                        .param("to", DAY.toString())
+                        .with(reader(newUser())))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(statement("stmt-nobody", "csv"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void largeStatement_shouldStreamWithFlatMemory() throws Exception {
+        String user = newUser();
+        long accountId = accountId(user);
+        jdbc.update("""
+                INSERT INTO accounts.ledger_entries (account_id, operation_id, source, kind, delta, balance_after, created_at)
+                SELECT ?, i, 'cash-service', 'DEPOSIT', 1.00, i, ?::timestamp + i * interval '1 millisecond'
+                  FROM generate_series(1, ?) i
+                """, accountId, DAY, BENCHMARK_ROWS);
+        jdbc.execute("ANALYZE accounts.ledger_entries");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong peak = new AtomicLong(baseline);
+        AtomicBoolean streaming = new AtomicBoolean(true);
+        // после System.gc() в heap остаётся только удерживаемое: буферы выгрузки и порция курсора
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (streaming.get()) {
+                System.gc();
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        CountingOutputStream out = new CountingOutputStream();
+        long startedAt = System.nanoTime();
+        long rows;
+        try {
+            rows = statementExportService.write(accountId, DAY, DAY.plusYears(1),
+                    StatementExportService.Format.CSV, out);
+        } finally {
+            streaming.set(false);
+            sampler.join();
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        long retained = peak.get() - baseline;
+
+        log.info("📊 Выписка CSV: {} строк, {} МБ за {} мс ({} строк/сек), прирост удерживаемой памяти {} МБ",
+                rows, out.bytes / (1024 * 1024), elapsedMs, rows * 1000 / elapsedMs, retained / (1024 * 1024));
+
+        assertThat(rows).isEqualTo(BENCHMARK_ROWS);
+        assertThat(out.bytes).isGreaterThan(BENCHMARK_ROWS * 40L);
+        assertThat(retained).isLessThan(MAX_RETAINED_BYTES);
+    }
+
+    private RequestBuilder statement(String user, String format) {
+        return get("/accounts/me/statement")
+                .param("from", DAY.toString())
+                .param("to", DAY.plusDays(1).toString())
+                .param("format", format)
+                .with(reader(user));
+    }
+
+    private static RequestPostProcessor reader(String user) {
+        return jwt().jwt(j -> j.claim("preferred_username", user))
+                .authorities(new SimpleGrantedAuthority("ROLE_accounts.read"));
+    }
+
+    // Журнал append-only, поэтому у каждого теста свой пользователь вместо очистки
+    private String newUser() {
+        String user = "stmt-" + System.nanoTime();
+        jdbc.update("""
+                INSERT INTO accounts.users (user_name, first_name, last_name, email, date_of_birth)
+                VALUES (?, 'Statement', 'Owner', ?, ?)
+                """, user, user + "@mybank.com", LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private long accountId(String user) {
+        return jdbc.queryForObject("SELECT id FROM accounts.users WHERE user_name = ?", Long.class, user);
+    }
+
+    private void entry(long accountId, long operationId, String source, String kind,
+                       String delta, String balanceAfter, LocalDateTime createdAt) {
+        jdbc.update("""
+                INSERT INTO accounts.ledger_entries (account_id, operation_id, source, kind, delta, balance_after, created_at)
+                VALUES (?, ?, ?, ?, ?::numeric, ?::numeric, ?)
+                """, accountId, operationId, source, kind, delta, balanceAfter, createdAt);
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.mybank.accounts.service;
+
+import com.mybank.accounts.config.TestSecurityItConfig;
+import com.mybank.accounts.dto.TransferConsumeRequest;
+import com.mybank.accounts.template.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Бенчмарк встречных переводов между «горячими» счетами (A→B и B→A одновременно).
+ * Проверяет, что нет взаимоблокировок и потерянных обновлений (сумма балансов сохраняется),
+ * и печатает пропускную способность и p99 задержки.
+ */
+@SpringBootTest
+@Import(TestSecurityItConfig.class)
+class TransferServiceContentionIT extends BaseIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferServiceContentionIT.class);
+
+    private static final String[] HOT_ACCOUNTS = {"alice", "bob", "carol", "dave"};
+    private static final int THREADS = 64;
+    private static final int TRANSFERS_PER_THREAD = 50;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private static final AtomicLong OPERATION_IDS = new AtomicLong(2_000_000);
+
+    @Autowired TransferService transferService;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void prepareAccounts() {
+        for (String username : HOT_ACCOUNTS) {
+            jdbc.update("""
+                    INSERT INTO users(user_name, first_name, last_name, email, date_of_birth, balance)
+                    VALUES (?, ?, ?, ?, DATE '1990-01-01', 0)
+                    ON CONFLICT (user_name) DO NOTHING
+                    """, username, username, username, username + "@bench.local");
+            jdbc.update("UPDATE users SET balance = 100000.00 WHERE user_name = ?", username);
+        }
+    }
+
+    @Test
+    void crossingTransfers_shouldNotDeadlockNorLoseUpdates() throws Exception {
+        BigDecimal totalBefore = totalBalance();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    // Пары выбираются случайно, поэтому A→B и B→A идут одновременно
+                    int from = random.nextInt(HOT_ACCOUNTS.length);
+                    int to = (from + 1 + random.nextInt(HOT_ACCOUNTS.length - 1)) % HOT_ACCOUNTS.length;
+
+                    long begin = System.nanoTime();
+                    transferService.transfer(new TransferConsumeRequest(
+                            OPERATION_IDS.incrementAndGet(), HOT_ACCOUNTS[from], HOT_ACCOUNTS[to], AMOUNT), "transfer-it");
+                    latencies.add(System.nanoTime() - begin);
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(2, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        assertThat(latencies).hasSize(THREADS * TRANSFERS_PER_THREAD);
+        assertThat(totalBalance()).isEqualByComparingTo(totalBefore);
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double opsPerSec = (double) sorted.length * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        log.info("📊 Встречные переводы: {} потоков, {} переводов, {} ops/sec, p50={} ms, p99={} ms",
+                THREADS, sorted.length, String.format("%.0f", opsPerSec),
+                String.format("%.2f", percentile(sorted, 0.50) / 1e6),
+                String.format("%.2f", percentile(sorted, 0.99) / 1e6));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private BigDecimal totalBalance() {
+        return jdbc.queryForObject("SELECT sum(balance) FROM users WHERE user_name IN (?, ?, ?, ?)",
+                BigDecimal.class, (Object[]) HOT_ACCOUNTS);
+    }
+}
@@ -0,0 +1,32 @@
+package com.mybank.accounts.template;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@Testcontainers
+public abstract class BaseIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("accounts_test")
+                    .withUsername("test")
+                    .withPassword("test")
+                    .withCommand("postgres", "-c", "max_connections=300");
+
+    @DynamicPropertySource
+    static void overrideProps(DynamicPropertyRegistry registry) {
+        // Неквалифицированные запросы (JdbcTemplate, native) работают в схеме accounts
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&currentSchema=accounts");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> 32);
+
+        // Liquibase пусть сам создаёт схему
+        registry.add("spring.liquibase.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+}
@@ -0,0 +1,49 @@
+package contracts.accounts
+
+import org.springframework.cloud.contract.spec.Contract
+
+Contract.make {
+    description("Apply batch of balance updates in Accounts Service (internal endpoint)")
+    request {
+        method POST()
+        url "/accounts/balance/batch"
+        headers { contentType(applicationJson()) }
+        body(
+                operations: [
+                        [
+                                username         : "alice",
+                                amount           : 100.00,
+                                cashOperationType: "DEPOSIT",
+                                operationId      : 12345
+                        ],
+                        [
+                                username         : "bob",
+                                amount           : 50.00,
+                                cashOperationType: "WITHDRAW",
+                                operationId      : 12346
+                        ]
+                ]
+        )
+    }
+    response {
+        status OK()
+        headers { contentType(applicationJson()) }
+        body(
+                results: [
+                        [
+                                operationId: 12345,
+                                username   : "alice",
+                                status     : "APPLIED",
+                                balance    : 10100.00
+                        ],
+                        [
+                                operationId: 12346,
+                                username   : "bob",
+                                status     : "INSUFFICIENT_FUNDS",
+                                balance    : 10.00,
+                                message    : "Недостаточно средств. Баланс: 10.00, запрошено: 50.00"
+                        ]
+                ]
+        )
+    }
+}
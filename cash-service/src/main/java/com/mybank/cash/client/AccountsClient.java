@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mybank.cash.dto.BalanceUpdateRequest;
 import com.mybank.cash.exception.InsufficientFundsException;
 import com.mybank.cash.exception.ServiceUnavailableException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.slf4j.Logger;
@@ -30,7 +31,7 @@ public class AccountsClient {
         this.objectMapper = objectMapper;
     }
 
-    @CircuitBreaker(name = SERVICE_NAME)
+    @CircuitBreaker(name = SERVICE_NAME, fallbackMethod = "updateBalanceCircuitOpen")
     @Retry(name = SERVICE_NAME, fallbackMethod = "updateBalanceFallback")
     public void updateBalance(BalanceUpdateRequest request) {
         log.debug("Обновление баланса: username={}, amount={}, type={}",
@@ -65,6 +66,12 @@ public class AccountsClient {
         );
     }
 
+    // Circuit breaker открыт — запрос не отправлялся; остальные ошибки уже преобразованы fallback'ом ретрая
+    private void updateBalanceCircuitOpen(BalanceUpdateRequest request, CallNotPermittedException e) {
+        log.warn("accounts-service: circuit breaker открыт, операция {} не отправлена", request.operationId());
+        throw new ServiceUnavailableException("Сервис аккаунтов временно недоступен. Попробуйте позже.", e);
+    }
+
     private InsufficientFundsException parseInsufficientFunds(HttpClientErrorException e) {
         try {
             JsonNode json = objectMapper.readTree(e.getResponseBodyAsString());
@@ -1,6 +1,8 @@
 package com.mybank.cash.client;
 
 
+import com.mybank.cash.dto.NotificationBatchRequest;
+import com.mybank.cash.dto.NotificationBatchResponse;
 import com.mybank.cash.dto.NotificationRequest;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
@@ -10,11 +12,16 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 @Component
 public class NotificationsClient {
 
     private static final Logger log = LoggerFactory.getLogger(NotificationsClient.class);
     private static final String SERVICE_NAME = "notifications-service";
+    private static final int BATCH_SIZE = 1000;
 
     private final RestClient notificationsRestClient;
 
@@ -41,4 +48,39 @@ public class NotificationsClient {
                 request.operationId(), request.username(), e.getMessage());
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Пакетная отправка уведомлений (до 1000 за запрос) для outbox.
+     *
+     * @return флаги в порядке запроса: true если уведомление у получателя есть (принято или дубликат)
+     */
+    @CircuitBreaker(name = SERVICE_NAME, fallbackMethod = "sendBatchFallback")
+    @Retry(name = SERVICE_NAME)
+    public List<Boolean> sendBatch(List<NotificationRequest> requests) {
+        List<Boolean> delivered = new ArrayList<>(requests.size());
+
+        for (int from = 0; from < requests.size(); from += BATCH_SIZE) {
+            List<NotificationRequest> chunk = requests.subList(from, Math.min(from + BATCH_SIZE, requests.size()));
+
+            NotificationBatchResponse response = notificationsRestClient.post()
+                    .uri("/notifications/batch")
+                    .body(new NotificationBatchRequest(chunk))
+                    .retrieve()
+                    .body(NotificationBatchResponse.class);
+
+            if (response == null || response.results() == null || response.results().size() != chunk.size()) {
+                throw new IllegalStateException("notifications-service вернул неполный ответ на пакетный запрос");
+            }
+            response.results().forEach(r -> delivered.add(r.isDelivered()));
+        }
+
+        log.info("🚀✅ notifications batch accepted: size={} delivered={}",
+                requests.size(), delivered.stream().filter(Boolean::booleanValue).count());
+        return delivered;
+    }
+
+    private List<Boolean> sendBatchFallback(List<NotificationRequest> requests, Exception e) {
+        log.warn("🚀⚠️ notifications unavailable: batch size={} error={}", requests.size(), e.getMessage());
+        return Collections.nCopies(requests.size(), false);
+    }
+}
@@ -0,0 +1,20 @@
+package com.mybank.cash.config;
+
+import com.mybank.common.id.PooledIdAllocator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class OperationIdConfig {
+
+    /**
+     * Ключи операций блоками из {@code cash.cash_operation_sequence}; размер блока задаёт INCREMENT BY sequence
+     * (параметр Liquibase {@code operation-id-block-size}).
+     */
+    @Bean
+    public PooledIdAllocator operationIdAllocator(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        return new PooledIdAllocator(jdbcTemplate, "cash.cash_operation_sequence", meterRegistry);
+    }
+}
@@ -5,12 +5,16 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import com.mybank.cash.dto.CashOperationRequest;
 import com.mybank.cash.dto.OperationKeyResponse;
 import com.mybank.cash.model.CashOperation;
+import com.mybank.cash.service.AsyncOperationExecutor;
 import com.mybank.cash.service.CashService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.net.URI;
 
 @RestController
 @RequestMapping("/cash")
@@ -18,23 +22,40 @@ import org.springframework.web.bind.annotation.*;
 public class CashController {
 
     private final CashService cashService;
+    private final AsyncOperationExecutor asyncOperationExecutor;
 
     @GetMapping("/operation-key")
     public ResponseEntity<OperationKeyResponse> getOperationKey(@AuthenticationPrincipal Jwt jwt) {
         return ResponseEntity.ok(cashService.generateOperationKey(extractUsername(jwt)));
     }
 
+    /**
+     * По умолчанию выполняет операцию синхронно (204). С {@code async=true} только принимает её (202),
+     * результат — через {@code GET /cash/operation/{id}?waitMs=...}.
+     */
     @PostMapping("/operate")
     public ResponseEntity<Void> operate(
             @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(name = "async", defaultValue = "false") boolean async,
             @Valid @RequestBody CashOperationRequest request) {
+        if (async) {
+            asyncOperationExecutor.accept(extractUsername(jwt), request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/cash/operation/" + request.operationId()))
+                    .build();
+        }
         cashService.operate(extractUsername(jwt), request);
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Состояние операции; с {@code waitMs > 0} ждёт завершения выполняющейся операции (long-poll).
+     */
     @GetMapping("/operation/{operationId}")
-    public ResponseEntity<CashOperation> getOperation(@PathVariable Long operationId) {
-        return ResponseEntity.ok(cashService.getOperation(operationId));
+    public DeferredResult<ResponseEntity<CashOperation>> getOperation(
+            @PathVariable("operationId") Long operationId,
+            @RequestParam(name = "waitMs", defaultValue = "0") long waitMs) {
+        return asyncOperationExecutor.await(operationId, waitMs);
     }
 
     private String extractUsername(Jwt jwt) {
@@ -0,0 +1,5 @@
+package com.mybank.cash.dto;
+
+import java.util.List;
+
+public record NotificationBatchRequest(List<NotificationRequest> notifications) {}
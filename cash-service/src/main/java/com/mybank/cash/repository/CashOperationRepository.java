@@ -1,13 +1,16 @@
 package com.mybank.cash.repository;
 
-import com.mybank.cash.dto.OperationStatus;
 import com.mybank.cash.model.CashOperation;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,9 +18,188 @@ public interface CashOperationRepository extends JpaRepository<CashOperation, Lo
 
     Optional<CashOperation> findById(Long operationId);
 
-    // Получить следующее значение sequence
-    @Query(value = "SELECT nextval('cash_operation_sequence')", nativeQuery = true)
-    Long getNextOperationId();
+    /**
+     * Операция с ключом, сгенерированным клиентом: вставка сразу в IN_PROGRESS (без RESERVED), до вызова
+     * accounts-service. Коммитится сразу: строка есть ещё до изменения баланса, параллельный повтор
+     * с тем же ключом её увидит.
+     *
+     * @return 0, если операция с таким ключом уже есть (повтор запроса)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO cash.cash_operations(operation_id, username, amount, type, status,
+                                        created_at, notification_attempts, notification_attempts_at)
+            VALUES (:operationId, :username, :amount, :type, 'IN_PROGRESS', now(), 0, now())
+            ON CONFLICT (operation_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertInProgressIfAbsent(@Param("operationId") Long operationId,
+                                 @Param("username") String username,
+                                 @Param("amount") BigDecimal amount,
+                                 @Param("type") String type);
 
-    Page <CashOperation> findByStatus(OperationStatus operationStatus, Pageable pageable);
-}
\ No newline at end of file
+    /**
+     * FAILED → IN_PROGRESS для повтора операции с клиентским ключом тем же пользователем.
+     * accounts-service идемпотентен по operationId, поэтому повторный вызов не изменит баланс дважды.
+     *
+     * @return число изменённых строк (0 — ключ чужой или операция не в FAILED)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE cash.cash_operations
+               SET status = 'IN_PROGRESS', completed_at = NULL, error_message = NULL
+             WHERE operation_id = :operationId AND username = :username AND status = 'FAILED'
+            """, nativeQuery = true)
+    int restartFailed(@Param("operationId") Long operationId, @Param("username") String username);
+
+    // ==================== Переходы статусов (compare-and-set) ====================
+
+    /**
+     * RESERVED → IN_PROGRESS одним условным UPDATE, заодно фиксирует тип и сумму. Коммитится сразу,
+     * до вызова accounts-service: параллельный запрос с тем же ключом не найдёт строку в RESERVED.
+     *
+     * @return created_at захваченной строки; пусто, если ключа нет, он чужой или уже не в RESERVED
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE cash.cash_operations
+               SET status = 'IN_PROGRESS', type = :type, amount = :amount
+             WHERE operation_id = :operationId AND username = :username AND status = 'RESERVED'
+            RETURNING created_at
+            """, nativeQuery = true)
+    Optional<LocalDateTime> startReserved(@Param("operationId") Long operationId,
+                                          @Param("username") String username,
+                                          @Param("type") String type,
+                                          @Param("amount") BigDecimal amount);
+
+    /**
+     * Асинхронный режим: RESERVED → RECEIVED, операция принята, но ещё не выполнялась.
+     *
+     * @return created_at принятой строки; пусто, если ключа нет, он чужой или уже не в RESERVED
+     */
+    @Query(value = """
+            UPDATE cash.cash_operations
+               SET status = 'RECEIVED', type = :type, amount = :amount
+             WHERE operation_id = :operationId AND username = :username AND status = 'RESERVED'
+            RETURNING created_at
+            """, nativeQuery = true)
+    Optional<LocalDateTime> acceptReserved(@Param("operationId") Long operationId,
+                                           @Param("username") String username,
+                                           @Param("type") String type,
+                                           @Param("amount") BigDecimal amount);
+
+    /**
+     * Асинхронный режим, ключ сгенерирован клиентом: вставка сразу в RECEIVED.
+     *
+     * @return 0, если операция с таким ключом уже есть (повтор запроса)
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO cash.cash_operations(operation_id, username, amount, type, status,
+                                             created_at, notification_attempts, notification_attempts_at)
+            VALUES (:operationId, :username, :amount, :type, 'RECEIVED', now(), 0, now())
+            ON CONFLICT (operation_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertReceivedIfAbsent(@Param("operationId") Long operationId,
+                               @Param("username") String username,
+                               @Param("amount") BigDecimal amount,
+                               @Param("type") String type);
+
+    /**
+     * RECEIVED → IN_PROGRESS в собственной транзакции: принятую операцию запускает ровно один исполнитель.
+     *
+     * @return операция после перехода; пусто, если её уже взял другой исполнитель
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE cash.cash_operations
+               SET status = 'IN_PROGRESS'
+             WHERE operation_id = :operationId AND status = 'RECEIVED'
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<CashOperation> startReceived(@Param("operationId") Long operationId);
+
+    /**
+     * Принятые, но не запущенные операции (экземпляр, принявший их, мог остановиться).
+     */
+    @Query(value = """
+            SELECT operation_id
+              FROM cash.cash_operations
+             WHERE status = 'RECEIVED' AND created_at < :cutoff
+             ORDER BY created_at
+             LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findStaleReceived(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Захватывает операции, зависшие в IN_PROGRESS дольше {@code cutoff} (экземпляр остановился между
+     * захватом и записью результата), для повторной отправки в accounts-service. Захват — аренда на
+     * {@code leaseSeconds} в next_attempt_at: другой экземпляр возьмёт ту же операцию только после неё.
+     *
+     * @return захваченные операции, самые старые первыми
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE cash.cash_operations
+               SET next_attempt_at = now() + make_interval(secs => :leaseSeconds)
+             WHERE operation_id IN (SELECT operation_id
+                                      FROM cash.cash_operations
+                                     WHERE status = 'IN_PROGRESS' AND created_at < :cutoff AND next_attempt_at <= now()
+                                     ORDER BY created_at
+                                     LIMIT :limit
+                                       FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<CashOperation> claimStuckInProgress(@Param("cutoff") LocalDateTime cutoff,
+                                             @Param("leaseSeconds") long leaseSeconds,
+                                             @Param("limit") int limit);
+
+    /**
+     * IN_PROGRESS → UPDATED. Вызывается и внутри транзакции operate, и из асинхронного исполнителя.
+     * next_attempt_at сбрасывается: после аренды {@link #claimStuckInProgress} уведомление ушло бы с задержкой.
+     *
+     * @return число изменённых строк (0 — операция не в IN_PROGRESS)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE cash.cash_operations
+               SET status = 'UPDATED', completed_at = now(), next_attempt_at = now()
+             WHERE operation_id = :operationId AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int markUpdated(@Param("operationId") Long operationId);
+
+    /**
+     * IN_PROGRESS → FAILED.
+     *
+     * @return число изменённых строк (0 — операция не в IN_PROGRESS)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE cash.cash_operations
+               SET status = 'FAILED', completed_at = now(), error_message = :error
+             WHERE operation_id = :operationId AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int markFailed(@Param("operationId") Long operationId, @Param("error") String error);
+
+    /**
+     * Удаляет не больше {@code limit} резервов ключей, созданных раньше {@code cutoff}, самые старые первыми.
+     * Строки, которые прямо сейчас захватывает {@link #startReserved}, пропускаются (SKIP LOCKED).
+     *
+     * @return число удалённых строк
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM cash.cash_operations
+             WHERE operation_id IN (SELECT operation_id
+                                      FROM cash.cash_operations
+                                     WHERE status = 'RESERVED' AND created_at < :cutoff
+                                     ORDER BY created_at
+                                     LIMIT :limit
+                                       FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int deleteExpiredReservations(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -7,15 +7,23 @@ import com.mybank.cash.dto.CashOperationRequest;
 import com.mybank.cash.dto.OperationKeyResponse;
 import com.mybank.cash.dto.OperationStatus;
 import com.mybank.cash.dto.*;
+import com.mybank.cash.exception.InsufficientFundsException;
 import com.mybank.cash.exception.InvalidOperationKeyException;
 import com.mybank.cash.model.CashOperation;
+import com.mybank.cash.outbox.CashOutboxHandler;
 import com.mybank.cash.repository.CashOperationRepository;
+import com.mybank.common.id.PooledIdAllocator;
+import com.mybank.outbox.OutboxMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -25,13 +33,24 @@ public class CashService {
     private final CashOperationRepository operationRepository;
     private final AccountsClient accountsClient;
     private final NotificationsClient notificationsClient;
+    private final OutboxMetrics outboxMetrics;
+    private final PooledIdAllocator operationIdAllocator;
+
+    /**
+     * Нижняя граница ключей, сгенерированных клиентом: Snowflake-id (мс от эпохи сервиса в старших битах)
+     * больше 2^52 уже через ~12 дней после эпохи, sequence до таких значений не доходит.
+     */
+    static final long CLIENT_GENERATED_MIN_ID = 1L << 52;
+
+    /** Ответы accounts-service, после которых операция точно не применена: 404, 409, 422 */
+    private static final Set<Integer> REJECTION_STATUSES = Set.of(404, 409, 422);
 
 
     /**
      * Генерирует новый ключ операции
      */
     public OperationKeyResponse generateOperationKey(String username) {
-        Long operationId = operationRepository.getNextOperationId();
+        Long operationId = operationIdAllocator.nextId();
         CashOperation op = CashOperation.builder()
                 .username(username)
                 .operationId(operationId)
@@ -41,14 +60,125 @@ public class CashService {
                 .notificationAttemptsAt(LocalDateTime.now())
                 .build();
         operationRepository.save(op);
+        outboxMetrics.created(CashOutboxHandler.TABLE, OperationStatus.RESERVED.name());
         return new OperationKeyResponse(operationId);
     }
 
-    @Transactional
+    /**
+     * Синхронное выполнение без общей транзакции: каждый шаг (RESERVED → IN_PROGRESS, затем UPDATED или FAILED)
+     * коммитится отдельно, а вызов accounts-service с его ретраями и таймаутами идёт без занятого соединения.
+     */
     public void operate(String username, CashOperationRequest request) {
         executeOperation(username, request);
     }
 
+    /**
+     * Асинхронный режим: только принимает операцию (RESERVED → RECEIVED) в короткой транзакции,
+     * выполняет её {@link AsyncOperationExecutor} после коммита.
+     *
+     * @return true — операция принята этим запросом; false — повтор уже принятой операции с клиентским ключом
+     */
+    @Transactional
+    public boolean accept(String username, CashOperationRequest request) {
+        Long operationId = request.operationId();
+        if (isClientGenerated(operationId)) {
+            int inserted = operationRepository.insertReceivedIfAbsent(
+                    operationId, username, request.amount(), request.cashOperationType().name());
+            if (inserted == 1) {
+                outboxMetrics.created(CashOutboxHandler.TABLE, OperationStatus.RECEIVED.name());
+                return true;
+            }
+            CashOperation existing = operationRepository.findById(operationId).orElseThrow();
+            if (!existing.getUsername().equals(username)) {
+                throw new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
+            }
+            log.info("🔁 Duplicate operation ignored: {}", operationId);
+            return false;
+        }
+
+        var acceptedFrom = operationRepository.acceptReserved(
+                operationId, username, request.cashOperationType().name(), request.amount());
+        if (acceptedFrom.isEmpty()) {
+            throw unclaimedKey(operationId, username);
+        }
+        outboxMetrics.transition(CashOutboxHandler.TABLE, OperationStatus.RESERVED.name(),
+                OperationStatus.RECEIVED.name(), acceptedFrom.get());
+        log.info("📥 Operation accepted: {}", operationId);
+        return true;
+    }
+
+    /**
+     * Выполняет принятую операцию вне общей транзакции: RECEIVED → IN_PROGRESS, вызов accounts-service,
+     * UPDATED или FAILED. Каждый переход коммитится сразу, соединение на время вызова не занято.
+     *
+     * @return false — операцию уже запустил другой исполнитель
+     */
+    public boolean executeAccepted(Long operationId) {
+        var started = operationRepository.startReceived(operationId);
+        if (started.isEmpty()) {
+            return false;
+        }
+        CashOperation op = started.get();
+        processOperation(op.getUsername(),
+                new CashOperationRequest(operationId, op.getType(), op.getAmount()), null);
+        return true;
+    }
+
+    /**
+     * Принятые раньше {@code cutoff}, но так и не запущенные операции.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findStaleAccepted(LocalDateTime cutoff, int limit) {
+        return operationRepository.findStaleReceived(cutoff, limit);
+    }
+
+    /**
+     * Операции, зависшие в IN_PROGRESS раньше {@code cutoff}; каждая захватывается на {@code lease}.
+     */
+    public List<CashOperation> claimStuck(LocalDateTime cutoff, Duration lease, int limit) {
+        return operationRepository.claimStuckInProgress(cutoff, lease.toSeconds(), limit);
+    }
+
+    /**
+     * Повторно отправляет в accounts-service операцию, зависшую в IN_PROGRESS, с тем же operationId.
+     * accounts-service идемпотентен по operationId: уже применённая операция второй раз не применится,
+     * а просто будет подтверждена. Недоступный accounts-service оставляет операцию в IN_PROGRESS
+     * до следующего прохода — неизвестно, применилась ли она.
+     *
+     * @return true — операция завершена (UPDATED или FAILED)
+     */
+    public boolean recoverInProgress(CashOperation op) {
+        Long operationId = op.getOperationId();
+        log.warn("♻️ Recovering {}: user={}, amount={}, operationId={}",
+                op.getType(), op.getUsername(), op.getAmount(), operationId);
+        try {
+            accountsClient.updateBalance(new BalanceUpdateRequest(
+                    op.getUsername(),
+                    op.getAmount(),
+                    op.getType(),
+                    operationId
+            ));
+        } catch (Exception e) {
+            if (!isRejected(e)) {
+                log.warn("⏳ Recovery of {} postponed: {}", operationId, e.getMessage());
+                return false;
+            }
+            if (operationRepository.markFailed(operationId, e.getMessage()) == 1) {
+                outboxMetrics.transition(CashOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                        OperationStatus.FAILED.name(), op.getCreatedAt());
+                outboxMetrics.terminal(CashOutboxHandler.TABLE, OperationStatus.FAILED.name());
+            }
+            log.error("❌ Recovered operation FAILED: id={}, error={}", operationId, e.getMessage());
+            return true;
+        }
+        if (operationRepository.markUpdated(operationId) == 1) {
+            outboxMetrics.transition(CashOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                    OperationStatus.UPDATED.name(), op.getCreatedAt());
+        }
+        log.info("✅ Recovered operation SUCCESS: {}", operationId);
+        return true;
+    }
+
     @Transactional(readOnly = true)
     public CashOperation getOperation(Long operationId) {
         return operationRepository.findById(operationId)
@@ -61,49 +191,133 @@ public class CashService {
     private void executeOperation(String username, CashOperationRequest request) {
 
         Long operationId = request.operationId();
-        var existingOpt = operationRepository.findById(operationId);
-        if (existingOpt.isPresent()) {
-            CashOperation op = existingOpt.get();
-            // username всегда должен совпадать
-            if (!op.getUsername().equals(username)) {
-                throw new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
-            }
-            if (op.getStatus() == OperationStatus.RESERVED) {
-                op.setType(request.cashOperationType());
-                op.setAmount(request.amount());
-                processOperation(op);
-                return;
-            }
+        if (isClientGenerated(operationId)) {
+            executeClientOperation(username, request);
+            return;
+        }
+
+        var startedFrom = operationRepository.startReserved(
+                operationId, username, request.cashOperationType().name(), request.amount());
+        if (startedFrom.isPresent()) {
+            processOperation(username, request, startedFrom.get());
+            return;
+        }
+
+        throw unclaimedKey(operationId, username);
+    }
+
+    /**
+     * Ключ не захвачен — читаем строку только для того, чтобы выбрать ошибку.
+     */
+    private InvalidOperationKeyException unclaimedKey(Long operationId, String username) {
+        boolean foreign = operationRepository.findById(operationId)
+                .map(op -> !op.getUsername().equals(username))
+                .orElse(false);
+        if (foreign) {
+            return new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
+        }
+        return new InvalidOperationKeyException("Operation key не зарезервирован: " + operationId);
+    }
+
+    /**
+     * Операция с ключом, сгенерированным клиентом (без /operation-key): строка вставляется сразу в IN_PROGRESS
+     * и коммитится до вызова accounts-service, дальше — как обычная операция ({@link #processOperation}).
+     * Повтор с тем же ключом видит строку: выполненная операция не повторяется, упавшая (FAILED) перезапускается
+     * тем же пользователем, а accounts-service идемпотентен по operationId.
+     */
+    private void executeClientOperation(String username, CashOperationRequest request) {
+        Long operationId = request.operationId();
+        int inserted = operationRepository.insertInProgressIfAbsent(
+                operationId, username, request.amount(), request.cashOperationType().name());
+        if (inserted == 1) {
+            outboxMetrics.created(CashOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name());
+            processOperation(username, request, null);
+            return;
+        }
+        if (operationRepository.restartFailed(operationId, username) == 1) {
+            log.info("🔁 Retrying failed operation: {}", operationId);
+            processOperation(username, request, null);
+            return;
+        }
+        CashOperation op = operationRepository.findById(operationId)
+                .orElseThrow(() -> new InvalidOperationKeyException("Operation key не зарезервирован: " + operationId));
+        // username всегда должен совпадать
+        if (!op.getUsername().equals(username)) {
+            throw new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
         }
-        throw new InvalidOperationKeyException("Operation key не зарезервирован: " + operationId);
+        // Повтор запроса с клиентским ключом — операция уже выполнена
+        if (isCompleted(op.getStatus())) {
+            log.info("🔁 Duplicate operation ignored: {}", operationId);
+            return;
+        }
+        throw new InvalidOperationKeyException("Операция уже выполняется: " + operationId);
     }
 
-    private void processOperation(CashOperation operation) {
-        operation.setStatus(OperationStatus.IN_PROGRESS);
-        operationRepository.save(operation);
+    /**
+     * Операция уже переведена в IN_PROGRESS ({@link CashOperationRepository#startReserved},
+     * {@link CashOperationRepository#startReceived} или {@link CashOperationRepository#insertInProgressIfAbsent});
+     * дальше только вызов accounts-service и условный перевод в UPDATED или FAILED. FAILED — только при отказе
+     * accounts-service по существу ({@link #isRejected}); без ответа исход неизвестен, и строка остаётся в IN_PROGRESS
+     * до {@link #recoverInProgress}. {@code reservedAt} — для метрики RESERVED → IN_PROGRESS, null, если RESERVED не было.
+     */
+    private void processOperation(String username, CashOperationRequest request, LocalDateTime reservedAt) {
+        Long operationId = request.operationId();
+        outboxMetrics.transition(CashOutboxHandler.TABLE, OperationStatus.RESERVED.name(),
+                OperationStatus.IN_PROGRESS.name(), reservedAt);
+        long startedAt = System.nanoTime();
 
         log.info("🚀 Executing {}: user={}, amount={}, operationId={}",
-                operation.getType(), operation.getUsername(),
-                operation.getAmount(), operation.getOperationId());
+                request.cashOperationType(), username, request.amount(), operationId);
 
         try {
             accountsClient.updateBalance(new BalanceUpdateRequest(
-                    operation.getUsername(),
-                    operation.getAmount(),
-                    operation.getType(),
-                    operation.getOperationId()
+                    username,
+                    request.amount(),
+                    request.cashOperationType(),
+                    operationId
             ));
-            operation.setStatus(OperationStatus.UPDATED);
-            operation.setCompletedAt(LocalDateTime.now());
-            operationRepository.save(operation);
-            log.info("✅ Operation SUCCESS: {}", operation.getOperationId());
+            if (operationRepository.markUpdated(operationId) == 1) {
+                outboxMetrics.transition(CashOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                        OperationStatus.UPDATED.name(), Duration.ofNanos(System.nanoTime() - startedAt));
+            }
+            log.info("✅ Operation SUCCESS: {}", operationId);
         } catch (Exception e) {
-            operation.setStatus(OperationStatus.FAILED);
-            operation.setCompletedAt(LocalDateTime.now());
-            operation.setErrorMessage(e.getMessage());
-            operationRepository.save(operation);
-            log.error("❌ Operation FAILED: id={}, error={}", operation.getOperationId(), e.getMessage(), e);
+            if (!isRejected(e)) {
+                // Ответа нет (таймаут, 5xx, открытый circuit breaker) — accounts-service мог уже применить операцию.
+                // Строка остаётся в IN_PROGRESS, восстановление повторит её с тем же operationId.
+                log.warn("⏳ Operation outcome unknown, left IN_PROGRESS: id={}, error={}", operationId, e.getMessage());
+                throw e;
+            }
+            if (operationRepository.markFailed(operationId, e.getMessage()) == 1) {
+                outboxMetrics.transition(CashOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                        OperationStatus.FAILED.name(), Duration.ofNanos(System.nanoTime() - startedAt));
+                outboxMetrics.terminal(CashOutboxHandler.TABLE, OperationStatus.FAILED.name());
+            }
+            log.error("❌ Operation FAILED: id={}, error={}", operationId, e.getMessage());
             throw e;
         }
     }
+
+    /**
+     * Окончательный отказ accounts-service: нет средств, нет счёта, конфликт ключа. Операция точно не применена.
+     * Всё остальное (таймаут, 5xx, открытый circuit breaker) — исход неизвестен.
+     */
+    static boolean isRejected(Exception e) {
+        return e instanceof InsufficientFundsException
+                || e instanceof HttpClientErrorException clientError
+                && REJECTION_STATUSES.contains(clientError.getStatusCode().value());
+    }
+
+    /**
+     * Ключ сгенерирован клиентом (Snowflake), а не sequence: такие значения sequence не достигает.
+     */
+    static boolean isClientGenerated(Long operationId) {
+        return operationId >= CLIENT_GENERATED_MIN_ID;
+    }
+
+    private static boolean isCompleted(OperationStatus status) {
+        return status == OperationStatus.UPDATED
+                || status == OperationStatus.NOTIFIED
+                || status == OperationStatus.UNNOTIFIED;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.mybank.cash.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ожидающие long-poll запросы по operationId. Ожидание не занимает поток: регистрируется колбэк,
+ * {@link AsyncOperationExecutor} вызывает его, когда операция завершилась на этом экземпляре.
+ * Если операцию выполнил другой экземпляр, запрос завершится по таймауту текущим статусом.
+ */
+@Component
+public class OperationWaiters {
+
+    private final ConcurrentHashMap<Long, Set<Runnable>> waiters = new ConcurrentHashMap<>();
+
+    public void register(Long operationId, Runnable onDone) {
+        waiters.compute(operationId, (id, set) -> {
+            Set<Runnable> callbacks = set != null ? set : ConcurrentHashMap.newKeySet();
+            callbacks.add(onDone);
+            return callbacks;
+        });
+    }
+
+    public void unregister(Long operationId, Runnable onDone) {
+        waiters.computeIfPresent(operationId, (id, set) -> {
+            set.remove(onDone);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public void signal(Long operationId) {
+        Set<Runnable> callbacks = waiters.remove(operationId);
+        if (callbacks != null) {
+            callbacks.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mybank.cash.service;
+
+import com.mybank.cash.outbox.CashOutboxHandler;
+import com.mybank.cash.repository.CashOperationRepository;
+import com.mybank.outbox.OutboxMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Удаляет брошенные резервы ключей операций: строки RESERVED старше {@code application.reservation.ttl}.
+ * Каждый пакет — отдельная короткая транзакция, за один запуск не больше {@code max-batches-per-run} пакетов.
+ * Удалённые резервы учитываются в {@code outbox.terminal} со статусом EXPIRED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationReaper {
+
+    static final String EXPIRED = "EXPIRED";
+
+    private final CashOperationRepository operationRepository;
+    private final OutboxMetrics outboxMetrics;
+
+    @Value("${application.reservation.ttl:PT30M}")
+    private Duration ttl;
+
+    @Value("${application.reservation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${application.reservation.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(fixedDelayString = "${application.reservation.sweep-delay-ms:60000}",
+            initialDelayString = "${application.reservation.sweep-delay-ms:60000}")
+    public void sweep() {
+        expire(LocalDateTime.now().minus(ttl));
+    }
+
+    /**
+     * @return сколько резервов удалено
+     */
+    int expire(LocalDateTime cutoff) {
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            int deleted = operationRepository.deleteExpiredReservations(cutoff, batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            outboxMetrics.terminal(CashOutboxHandler.TABLE, EXPIRED, total);
+            log.info("🧹 Expired reservations removed: {} (older than {})", total, cutoff);
+        }
+        return total;
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.web.client.RestClient;
 import org.springframework.http.ResponseEntity;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -60,4 +61,33 @@ class NotificationsConsumerTest {
 
         assertThat(resp.getStatusCode().value()).isEqualTo(202);
     }
+
+    @Test
+    void should_report_duplicates_for_notification_batch() {
+        String baseUrl = stubFinder
+                .findStubUrl("com.mybank", "notifications-service")
+                .toString();
+
+        RestClient client = RestClient.builder()
+                .baseUrl(baseUrl)
+                .defaultHeader("Content-Type", "application/json")
+                .build();
+
+        Map<String, Object> req = Map.of(
+                "notifications", List.of(
+                        Map.of("operationId", 12345, "username", "alice", "payload", Map.of("sample", "x")),
+                        Map.of("operationId", 12346, "username", "bob", "payload", Map.of("sample", "y"))
+                )
+        );
+
+        ResponseEntity<Map> resp = client.post()
+                .uri("/notifications/batch")
+                .body(req)
+                .retrieve()
+                .toEntity(Map.class);
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(202);
+        List<Map<String, Object>> results = (List<Map<String, Object>>) resp.getBody().get("results");
+        assertThat(results).extracting(r -> r.get("status")).containsExactly("ACCEPTED", "DUPLICATE");
+    }
 }
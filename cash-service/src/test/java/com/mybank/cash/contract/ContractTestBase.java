@@ -6,6 +6,8 @@ import com.mybank.cash.dto.CashOperationRequest;
 import com.mybank.cash.dto.OperationKeyResponse;
 import com.mybank.cash.outbox.OutboxProcessor;
 import com.mybank.cash.service.CashService;
+import com.mybank.cash.service.ReservationReaper;
+import com.mybank.common.id.PooledIdAllocator;
 import io.restassured.module.mockmvc.RestAssuredMockMvc;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +40,12 @@ public abstract class ContractTestBase {
     @MockitoBean
     OutboxProcessor outboxProcessor;
 
+    @MockitoBean
+    PooledIdAllocator operationIdAllocator;
+
+    @MockitoBean
+    ReservationReaper reservationReaper;
+
 
     @BeforeEach
     void setup() {
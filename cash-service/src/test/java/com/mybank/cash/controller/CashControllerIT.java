@@ -3,11 +3,16 @@ package com.mybank.cash.controller;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mybank.cash.config.TestSecurityItConfig;
+import com.mybank.cash.exception.InsufficientFundsException;
+import com.mybank.cash.exception.ServiceUnavailableException;
+import com.mybank.cash.service.CashService;
 import com.mybank.cash.template.BaseIntegrationTest;
 import com.mybank.cash.client.AccountsClient;
 import com.mybank.cash.client.NotificationsClient;
 import com.mybank.cash.dto.CashOperationRequest;
 import com.mybank.cash.dto.CashOperationType;
+import com.mybank.cash.dto.OperationStatus;
+import com.mybank.cash.repository.CashOperationRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -17,17 +22,33 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 
 import java.math.BigDecimal;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
@@ -38,7 +59,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 class CashControllerIT extends BaseIntegrationTest {
 
     @Autowired MockMvc mockMvc;
+    @Autowired CashService cashService;
     @Autowired ObjectMapper objectMapper;
+    @Autowired CashOperationRepository operationRepository;
 
     @MockitoBean AccountsClient accountsClient;
     @MockitoBean NotificationsClient notificationsClient;
@@ -190,4 +213,251 @@ class CashControllerIT extends BaseIntegrationTest {
         mockMvc.perform(get("/cash/operation-key").with(auth))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    void operate_withClientGeneratedId_shouldSkipReservation_andIgnoreReplay() throws Exception {
+
+        doNothing().when(accountsClient).updateBalance(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "cash.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_cash.write"));
+
+        // Ключ сгенерирован клиентом (Snowflake) — без GET /operation-key
+        long operationId = (1L << 52) + System.nanoTime() % 1_000_000;
+        var request = new CashOperationRequest(operationId, CashOperationType.DEPOSIT, new BigDecimal("100.00"));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/cash/operate")
+                            .with(auth)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isNoContent());
+        }
+
+        // Повтор не выполняется второй раз
+        verify(accountsClient, times(1)).updateBalance(any());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED));
+    }
+
+    @Test
+    void operate_withClientGeneratedId_shouldPersistRowBeforeAccounts_andRetryFailed() throws Exception {
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "cash.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_cash.write"));
+
+        long operationId = (1L << 52) + 2_000_000 + System.nanoTime() % 1_000_000;
+        var request = new CashOperationRequest(operationId, CashOperationType.DEPOSIT, new BigDecimal("100.00"));
+
+        // Строка уже есть в IN_PROGRESS, когда идёт вызов accounts-service; первый вызов отклонён
+        List<OperationStatus> seenByAccounts = new ArrayList<>();
+        doAnswer(inv -> {
+            seenByAccounts.add(operationRepository.findById(operationId).orElseThrow().getStatus());
+            if (seenByAccounts.size() == 1) {
+                throw new InsufficientFundsException("Недостаточно средств", BigDecimal.ZERO, new BigDecimal("100.00"));
+            }
+            return null;
+        }).when(accountsClient).updateBalance(any());
+
+        mockMvc.perform(post("/cash/operate")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.FAILED));
+
+        // Повтор тем же пользователем перезапускает упавшую операцию с тем же ключом
+        mockMvc.perform(post("/cash/operate")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNoContent());
+
+        // Чужой пользователь с тем же ключом получает отказ, accounts-service не вызывается
+        var bob = jwt().jwt(j -> j
+                .claim("preferred_username", "bob")
+                .claim("clientRoles", "cash.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_cash.write"));
+        mockMvc.perform(post("/cash/operate")
+                        .with(bob)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(seenByAccounts).containsExactly(OperationStatus.IN_PROGRESS, OperationStatus.IN_PROGRESS);
+        verify(accountsClient, times(2)).updateBalance(any());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> {
+                    assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED);
+                    assertThat(op.getUsername()).isEqualTo("alice");
+                });
+    }
+
+    @Test
+    void operate_concurrentlyWithSameReservedKey_shouldExecuteOnce() throws Exception {
+
+        // Первый запрос держит строку, пока «идёт» вызов accounts-service
+        doAnswer(inv -> {
+            Thread.sleep(300);
+            return null;
+        }).when(accountsClient).updateBalance(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "cash.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_cash.write"));
+
+        String keyJson = mockMvc.perform(get("/cash/operation-key").with(auth))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        long operationId = objectMapper.readTree(keyJson).get("operationId").asLong();
+
+        String body = objectMapper.writeValueAsString(
+                new CashOperationRequest(operationId, CashOperationType.DEPOSIT, new BigDecimal("100.00")));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> responses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            responses.add(pool.submit(() -> mockMvc.perform(post("/cash/operate")
+                            .with(auth)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andReturn()
+                    .getResponse()
+                    .getStatus()));
+        }
+        List<Integer> statuses = new ArrayList<>();
+        for (Future<Integer> f : responses) {
+            statuses.add(f.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertThat(statuses).containsExactlyInAnyOrder(204, 400);
+        verify(accountsClient, times(1)).updateBalance(any());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED));
+    }
+
+    @Test
+    void operate_async_shouldReturn202_andLongPollShouldWaitForResult() throws Exception {
+
+        doAnswer(inv -> {
+            Thread.sleep(300);
+            return null;
+        }).when(accountsClient).updateBalance(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "cash.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_cash.write"));
+
+        String keyJson = mockMvc.perform(get("/cash/operation-key").with(auth))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        long operationId = objectMapper.readTree(keyJson).get("operationId").asLong();
+
+        var request = new CashOperationRequest(operationId, CashOperationType.DEPOSIT, new BigDecimal("100.00"));
+        mockMvc.perform(post("/cash/operate")
+                        .param("async", "true")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/cash/operation/" + operationId));
+
+        // Ответ приходит, когда операция завершилась, а не по таймауту
+        long startedAt = System.nanoTime();
+        MvcResult pending = mockMvc.perform(get("/cash/operation/{id}", operationId)
+                        .param("waitMs", "10000")
+                        .with(auth))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UPDATED"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(5000);
+
+        // Повтор асинхронного запроса с тем же ключом — ключ уже не в RESERVED
+        mockMvc.perform(post("/cash/operate")
+                        .param("async", "true")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+        verify(accountsClient, times(1)).updateBalance(any());
+    }
+
+    @Test
+    void operate_async_whenAccountsFails_shouldPersistFailed() throws Exception {
+
+        doThrow(new InsufficientFundsException("Недостаточно средств", BigDecimal.ZERO, new BigDecimal("5.00")))
+                .when(accountsClient).updateBalance(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "cash.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_cash.write"));
+
+        long operationId = (1L << 52) + 1_000_000 + System.nanoTime() % 1_000_000;
+        var request = new CashOperationRequest(operationId, CashOperationType.WITHDRAW, new BigDecimal("5.00"));
+        mockMvc.perform(post("/cash/operate")
+                        .param("async", "true")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted());
+
+        MvcResult pending = mockMvc.perform(get("/cash/operation/{id}", operationId)
+                        .param("waitMs", "10000")
+                        .with(auth))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.errorMessage").value("Недостаточно средств"));
+    }
+
+    @Test
+    void operate_whenAccountsUnavailable_shouldStayInProgress_untilRecovered() throws Exception {
+
+        doThrow(new ServiceUnavailableException("accounts down")).when(accountsClient).updateBalance(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "cash.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_cash.write"));
+
+        long operationId = (1L << 52) + 3_000_000 + System.nanoTime() % 1_000_000;
+        var request = new CashOperationRequest(operationId, CashOperationType.WITHDRAW, new BigDecimal("5.00"));
+        mockMvc.perform(post("/cash/operate")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable());
+
+        // Ответа от accounts-service не было — исход неизвестен, FAILED не пишется
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS));
+
+        doNothing().when(accountsClient).updateBalance(any());
+        assertThat(cashService.recoverInProgress(operationRepository.findById(operationId).orElseThrow())).isTrue();
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED));
+        verify(accountsClient, times(2)).updateBalance(any());
+    }
 }
@@ -4,9 +4,10 @@ import com.mybank.cash.client.AccountsClient;
 import com.mybank.cash.client.NotificationsClient;
 import com.mybank.cash.dto.CashOperationRequest;
 import com.mybank.cash.dto.CashOperationType;
-import com.mybank.cash.dto.OperationStatus;
 import com.mybank.cash.model.CashOperation;
 import com.mybank.cash.repository.CashOperationRepository;
+import com.mybank.common.id.PooledIdAllocator;
+import com.mybank.outbox.OutboxMetrics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
@@ -23,6 +24,8 @@ class CashServiceTest {
     @Mock CashOperationRepository repository;
     @Mock AccountsClient accountsClient;
     @Mock NotificationsClient notificationsClient;
+    @Mock OutboxMetrics outboxMetrics;
+    @Mock PooledIdAllocator operationIdAllocator;
     @InjectMocks CashService service;
 
     @Test
@@ -35,21 +38,13 @@ class CashServiceTest {
     void operate() {
         var request = new CashOperationRequest(1L, CashOperationType.DEPOSIT, new BigDecimal(100));
 
-        var existing = CashOperation.builder()
-                .operationId(1L)
-                .username("alice")
-                .amount(new BigDecimal("100.00"))
-                .type(CashOperationType.DEPOSIT)
-                .status(OperationStatus.RESERVED)
-                .createdAt(LocalDateTime.now())
-                .notificationAttemptsAt(LocalDateTime.now())
-                .notificationAttempts(0)
-                .build();
-
-        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        when(repository.startReserved(1L, "alice", "DEPOSIT", new BigDecimal(100)))
+                .thenReturn(Optional.of(LocalDateTime.now()));
 
         service.operate("alice",request);
-        verify(repository, times(2)).save(any(CashOperation.class));
+        verify(repository).markUpdated(1L);
+        verify(repository, never()).findById(any());
+        verify(repository, never()).save(any(CashOperation.class));
         verify(accountsClient).updateBalance(any());
     }
 }
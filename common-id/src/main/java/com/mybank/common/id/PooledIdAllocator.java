@@ -0,0 +1,101 @@
+package com.mybank.common.id;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Выдаёт ключи операций из sequence блоками (pooled-lo): один {@code nextval} резервирует
+ * {@code [value, value + increment - 1]}, дальше ключи раздаются из {@link AtomicLong} без обращения к БД.
+ * <p>
+ * Размер блока — {@code INCREMENT BY} самой sequence, он читается тем же запросом, что и {@code nextval},
+ * поэтому несколько экземпляров сервиса не пересекаются. Увеличивать increment безопасно, уменьшать — нет:
+ * уже выданный блок большего размера пересечётся со следующим.
+ * <p>
+ * За блоком ходит один поток (остальные ждут на {@link ReentrantLock}, а не на synchronized, чтобы не
+ * закреплять виртуальные потоки на время JDBC-вызова). Неиспользованный остаток блока при остановке теряется.
+ */
+@Slf4j
+public class PooledIdAllocator {
+
+    private static final String NEXT_BLOCK_SQL =
+            "SELECT nextval(?::regclass) AS first_id, s.seqincrement AS size FROM pg_sequence s WHERE s.seqrelid = ?::regclass";
+
+    private final JdbcTemplate jdbc;
+    private final String sequence;
+    private final Timer refillTimer;
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    private volatile Block block = new Block(0, -1);
+
+    public PooledIdAllocator(JdbcTemplate jdbc, String sequence, MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.sequence = sequence;
+        this.refillTimer = Timer.builder("operation.id.block.refill")
+                .description("Резервирование блока ключей через nextval")
+                .tag("sequence", sequence)
+                .register(meterRegistry);
+        Gauge.builder("operation.id.block.remaining", this, PooledIdAllocator::remaining)
+                .description("Сколько ключей осталось в текущем блоке")
+                .tag("sequence", sequence)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Следующий ключ; обращается к БД, только когда текущий блок исчерпан.
+     */
+    public long nextId() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id <= current.last) {
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            // Блок уже сменил другой поток, пока мы ждали
+            if (block != exhausted) {
+                return;
+            }
+            block = refillTimer.record(this::fetchBlock);
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private Block fetchBlock() {
+        Block next = jdbc.queryForObject(NEXT_BLOCK_SQL,
+                (rs, i) -> new Block(rs.getLong("first_id"), rs.getLong("first_id") + rs.getLong("size") - 1),
+                sequence, sequence);
+        log.debug("🔑 {}: зарезервирован блок [{}..{}]", sequence, next.first, next.last);
+        return next;
+    }
+
+    private double remaining() {
+        Block current = block;
+        return Math.max(0, current.last - current.next.get() + 1);
+    }
+
+    private static final class Block {
+
+        private final long first;
+        private final long last;
+        private final AtomicLong next;
+
+        Block(long first, long last) {
+            this.first = first;
+            this.last = last;
+            this.next = new AtomicLong(first);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.mybank.common.id;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class PooledIdAllocatorIT {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledIdAllocatorIT.class);
+
+    private static final int BLOCK = 50;
+    private static final int THREADS = 32;
+    private static final int IDS_PER_THREAD = 500;
+
+    @Container
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("outbox_test")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    static HikariDataSource dataSource;
+    static JdbcTemplate jdbc;
+
+    MeterRegistry registry;
+
+    @BeforeAll
+    static void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl());
+        dataSource.setUsername(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        dataSource.setMaximumPoolSize(8);
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        dataSource.close();
+    }
+
+    @BeforeEach
+    void resetSequence() {
+        jdbc.execute("DROP SEQUENCE IF EXISTS op_seq");
+        jdbc.execute("CREATE SEQUENCE op_seq START WITH 1 INCREMENT BY " + BLOCK);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void concurrentCallers_shouldGetUniqueIdsWithOneNextvalPerBlock() throws Exception {
+        PooledIdAllocator allocator = new PooledIdAllocator(jdbc, "op_seq", registry);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                List<Long> ids = new ArrayList<>(IDS_PER_THREAD);
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    ids.add(allocator.nextId());
+                }
+                return ids;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        Set<Long> all = new HashSet<>();
+        for (Future<List<Long>> f : futures) {
+            all.addAll(f.get(1, TimeUnit.MINUTES));
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        int total = THREADS * IDS_PER_THREAD;
+        assertThat(all).hasSize(total);
+        // Блоки выдаются подряд и целиком: ключи 1..total без пропусков
+        assertThat(all).allMatch(id -> id >= 1 && id <= total);
+        long refills = registry.get("operation.id.block.refill").timer().count();
+        assertThat(refills).isEqualTo(total / BLOCK);
+        assertThat(registry.get("operation.id.block.remaining").gauge().value()).isZero();
+
+        log.info("📊 PooledIdAllocator: {} ids/sec, nextval={} на {} ключей",
+                String.format("%.0f", (double) total * TimeUnit.SECONDS.toNanos(1) / elapsed), refills, total);
+    }
+
+    @Test
+    void twoInstances_shouldNotOverlap() {
+        PooledIdAllocator first = new PooledIdAllocator(jdbc, "op_seq", registry);
+        PooledIdAllocator second = new PooledIdAllocator(jdbc, "op_seq", new SimpleMeterRegistry());
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < BLOCK * 3; i++) {
+            assertThat(ids.add(first.nextId())).isTrue();
+            assertThat(ids.add(second.nextId())).isTrue();
+        }
+    }
+
+    @Test
+    void increasedIncrement_shouldBeUsedForNextBlock() {
+        PooledIdAllocator allocator = new PooledIdAllocator(jdbc, "op_seq", registry);
+        for (int i = 0; i < BLOCK; i++) {
+            allocator.nextId();
+        }
+
+        jdbc.execute("ALTER SEQUENCE op_seq INCREMENT BY 200");
+        long firstOfBlock = allocator.nextId();
+        assertThat(firstOfBlock).isGreaterThan(BLOCK);
+        for (int i = 1; i < 200; i++) {
+            assertThat(allocator.nextId()).isEqualTo(firstOfBlock + i);
+        }
+        assertThat(registry.get("operation.id.block.refill").timer().count()).isEqualTo(2);
+    }
+}
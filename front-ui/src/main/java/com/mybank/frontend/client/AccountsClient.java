@@ -1,7 +1,8 @@
 package com.mybank.frontend.client;
 
+import com.mybank.frontend.dto.client.AccountDashboardResponse;
+import com.mybank.frontend.dto.client.AccountDirectoryPage;
 import com.mybank.frontend.dto.client.AccountMeResponse;
-import com.mybank.frontend.dto.client.AccountSummaryResponse;
 import com.mybank.frontend.dto.client.AccountUpdateRequest;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
@@ -11,7 +12,7 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
-import java.util.List;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -20,14 +21,20 @@ public class AccountsClient {
     private static final String ACCOUNTS_READ = "accounts-read";
     private final RestClient restClient; // настроен baseUrl = gateway
 
+    /**
+     * Поиск получателей по началу логина/имени/фамилии (GET /accounts/directory), страница после {@code after}.
+     */
     @Retry(name = ACCOUNTS_READ)
     @CircuitBreaker(name = ACCOUNTS_READ)
-    public List<AccountSummaryResponse> getAll(String accessToken) {
+    public AccountDirectoryPage searchDirectory(String accessToken, String query, String after) {
         return restClient.get()
-                .uri("/api/accounts/all")
+                .uri(b -> b.path("/api/accounts/directory")
+                        .queryParamIfPresent("q", Optional.ofNullable(query))
+                        .queryParamIfPresent("after", Optional.ofNullable(after))
+                        .build())
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                 .retrieve()
-                .body(new org.springframework.core.ParameterizedTypeReference<List<AccountSummaryResponse>>() {});
+                .body(AccountDirectoryPage.class);
     }
 
     @Retry(name = ACCOUNTS_READ)
@@ -40,6 +47,19 @@ public class AccountsClient {
                 .body(AccountMeResponse.class);
     }
 
+    /**
+     * Профиль и получатели одним запросом (GET /accounts/dashboard).
+     */
+    @Retry(name = ACCOUNTS_READ)
+    @CircuitBreaker(name = ACCOUNTS_READ)
+    public AccountDashboardResponse getDashboard(String accessToken) {
+        return restClient.get()
+                .uri("/api/accounts/dashboard")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .retrieve()
+                .body(AccountDashboardResponse.class);
+    }
+
     public void updateMe(AccountUpdateRequest req, String accessToken) {
         restClient.put()
                 .uri("/api/accounts/me")
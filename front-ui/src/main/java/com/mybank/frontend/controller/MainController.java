@@ -1,13 +1,17 @@
 package com.mybank.frontend.controller;
 
+import com.mybank.frontend.dto.client.AccountDirectoryPage;
 import com.mybank.frontend.dto.client.CashOperationType;
 import com.mybank.frontend.exception.InsufficientFundsClientException;
 import com.mybank.frontend.service.DashboardService;
 import com.mybank.frontend.viewmodel.FrontendDTO;
+import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -16,6 +20,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 @Controller
@@ -28,30 +34,56 @@ public class MainController {
     @GetMapping("/")
     public String dashboard(
             OAuth2AuthenticationToken authentication,
+            HttpSession session,
             Model model,
             @ModelAttribute("successMessage") String successMessage,
             @ModelAttribute("errorMessage") String errorMessage
     ) {
-        FrontendDTO.MainPageModel page = dashboardService.buildPage(authentication);
+        boolean hasSuccess = successMessage != null && !successMessage.isBlank();
+        boolean hasError = errorMessage != null && !errorMessage.isBlank();
+        // После redirect с flash-сообщением данные могли не измениться (операция изменила — кеш уже сброшен);
+        // обычный GET и F5 всегда читают свежие данные
+        FrontendDTO.MainPageModel page = hasSuccess || hasError
+                ? dashboardService.rebuildPage(authentication, session)
+                : dashboardService.buildPage(authentication, session);
 
         // flash messages (если пришли после redirect)
-        if (successMessage != null && !successMessage.isBlank()) page.setSuccessMessage(successMessage);
-        if (errorMessage != null && !errorMessage.isBlank()) page.setErrorMessage(errorMessage);
+        if (hasSuccess) page.setSuccessMessage(successMessage);
+        if (hasError) page.setErrorMessage(errorMessage);
 
         return renderMain(model, page);
     }
 
+    /**
+     * JSON для подсказок в форме перевода: страница получателей по введённому началу логина, имени или фамилии.
+     */
+    @GetMapping("/recipients")
+    @ResponseBody
+    public ResponseEntity<AccountDirectoryPage> recipients(
+            OAuth2AuthenticationToken authentication,
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "after", required = false) String after
+    ) {
+        try {
+            return ResponseEntity.ok(dashboardService.searchRecipients(authentication, query, after));
+        } catch (Exception ex) {
+            log.warn("accounts searchDirectory failed: {}", ex.toString());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @PostMapping("/account/update")
     public String updateAccount(
             OAuth2AuthenticationToken authentication,
             @Valid @ModelAttribute("accountUpdateForm") FrontendDTO.AccountUpdateForm form,
             BindingResult bindingResult,
             RedirectAttributes redirectAttributes,
+            HttpSession session,
             Model model
     ) {
-        FrontendDTO.MainPageModel page = dashboardService.buildPage(authentication);
-        if (!guardAccountsOrRedirect(page, redirectAttributes)) return "redirect:/";
+        if (!guardAccountsOrRedirect(redirectAttributes)) return "redirect:/";
         if (bindingResult.hasErrors()) {
+            FrontendDTO.MainPageModel page = dashboardService.rebuildPage(authentication, session);
             page.setAccountUpdateForm(form);
             return renderMain(model, page);
         }
@@ -62,6 +94,7 @@ public class MainController {
             log.error("ошибка обновления", ex);
             redirectAttributes.addFlashAttribute("errorMessage", "Ошибка при обновлении аккаунта");
         }
+        dashboardService.invalidatePage(session);
         return "redirect:/";
     }
 
@@ -71,11 +104,12 @@ public class MainController {
             @Valid @ModelAttribute("cashOperationForm") FrontendDTO.CashOperationForm form,
             BindingResult bindingResult,
             RedirectAttributes redirectAttributes,
+            HttpSession session,
             Model model
     ) {
-        FrontendDTO.MainPageModel page = dashboardService.buildPage(authentication);
-        if (!guardAccountsOrRedirect(page, redirectAttributes)) return "redirect:/";
+        if (!guardAccountsOrRedirect(redirectAttributes)) return "redirect:/";
         if (bindingResult.hasErrors()) {
+            FrontendDTO.MainPageModel page = dashboardService.rebuildPage(authentication, session);
             page.setCashOperationForm(form);
             return renderMain(model, page);
         }
@@ -86,6 +120,7 @@ public class MainController {
             log.error("ошибка пополнения", ex);
             redirectAttributes.addFlashAttribute("errorMessage", "Ошибка при пополнении счета");
         }
+        dashboardService.invalidatePage(session);
         return "redirect:/";
     }
 
@@ -95,11 +130,12 @@ public class MainController {
             @Valid @ModelAttribute("cashOperationForm") FrontendDTO.CashOperationForm form,
             BindingResult bindingResult,
             RedirectAttributes redirectAttributes,
+            HttpSession session,
             Model model
     ) {
-        FrontendDTO.MainPageModel page = dashboardService.buildPage(authentication);
-        if (!guardAccountsOrRedirect(page, redirectAttributes)) return "redirect:/";
+        if (!guardAccountsOrRedirect(redirectAttributes)) return "redirect:/";
         if (bindingResult.hasErrors()) {
+            FrontendDTO.MainPageModel page = dashboardService.rebuildPage(authentication, session);
             page.setCashOperationForm(form);
             return renderMain(model, page);
         }
@@ -112,6 +148,7 @@ public class MainController {
             log.error("ошибка снятия", ex);
             redirectAttributes.addFlashAttribute("errorMessage", "Ошибка при снятии денег");
         }
+        dashboardService.invalidatePage(session);
         return "redirect:/";
     }
 
@@ -121,11 +158,12 @@ public class MainController {
             @Valid @ModelAttribute("cashOperationForm") FrontendDTO.TransferForm  form,
             BindingResult bindingResult,
             RedirectAttributes redirectAttributes,
+            HttpSession session,
             Model model
     ) {
-        FrontendDTO.MainPageModel page = dashboardService.buildPage(authentication);
-        if (!guardAccountsOrRedirect(page, redirectAttributes)) return "redirect:/";
+        if (!guardAccountsOrRedirect(redirectAttributes)) return "redirect:/";
         if (bindingResult.hasErrors()) {
+            FrontendDTO.MainPageModel page = dashboardService.rebuildPage(authentication, session);
             page.setTransferForm(form);
             return renderMain(model, page);
         }
@@ -139,6 +177,7 @@ public class MainController {
             log.error("ошибка перевода", ex);
             redirectAttributes.addFlashAttribute("errorMessage", "Ошибка переводе средств");
         }
+        dashboardService.invalidatePage(session);
         return "redirect:/";
     }
 
@@ -150,8 +189,11 @@ public class MainController {
         return "main";
     }
 
-    private boolean guardAccountsOrRedirect(FrontendDTO.MainPageModel page, RedirectAttributes ra) {
-        if (!page.isAccountsAvailable()) {
+    /**
+     * Перед операцией страница не строится: достаточно состояния circuit breaker accounts-service.
+     */
+    private boolean guardAccountsOrRedirect(RedirectAttributes ra) {
+        if (!dashboardService.isAccountsAvailable()) {
             ra.addFlashAttribute("errorMessage", "Сервис аккаунтов временно недоступен");
             return false;
         }
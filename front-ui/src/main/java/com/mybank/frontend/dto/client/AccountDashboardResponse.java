@@ -0,0 +1,11 @@
+package com.mybank.frontend.dto.client;
+
+import java.util.List;
+
+/**
+ * Всё для главной страницы одним ответом: профиль с балансом и список получателей переводов.
+ */
+public record AccountDashboardResponse(
+        AccountMeResponse me,
+        List<AccountSummaryResponse> recipients
+) {}
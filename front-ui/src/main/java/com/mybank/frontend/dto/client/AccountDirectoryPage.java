@@ -0,0 +1,8 @@
+package com.mybank.frontend.dto.client;
+
+import java.util.List;
+
+/**
+ * Страница справочника получателей (GET /accounts/directory); nextCursor == null — страниц больше нет.
+ */
+public record AccountDirectoryPage(List<AccountSummaryResponse> items, String nextCursor) {}
@@ -1,5 +1,6 @@
 package com.mybank.frontend.dto.client;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -9,4 +10,4 @@ public record AccountMeResponse(
         String lastName,
         LocalDate dateOfBirth,
         BigDecimal balance
-) {}
\ No newline at end of file
+) implements Serializable {}
\ No newline at end of file
@@ -1,3 +1,5 @@
 package com.mybank.frontend.dto.client;
 
-public record AccountSummaryResponse(String username, String fullName) {}
+import java.io.Serializable;
+
+public record AccountSummaryResponse(String username, String fullName) implements Serializable {}
@@ -8,7 +8,12 @@ import com.mybank.frontend.dto.client.*;
 import com.mybank.frontend.mapper.DashboardMapper;
 import com.mybank.frontend.viewmodel.FrontendDTO;
 import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
@@ -16,9 +21,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
 
+import java.io.Serializable;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,45 +45,144 @@ public class DashboardService {
     private final OAuth2AuthorizedClientService clientService;
     private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
 
-    public FrontendDTO.MainPageModel buildPage(OAuth2AuthenticationToken authentication) {
-        String token = extractToken(authentication);
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final OperationIdGenerator operationIdGenerator;
+
+    /** Имя circuit breaker чтений accounts-service (как в {@code AccountsClient}) */
+    private static final String ACCOUNTS_READ = "accounts-read";
+    private static final String PAGE_CACHE_ATTRIBUTE = DashboardService.class.getName() + ".accounts";
+
+    private final ExecutorService pageExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Общий дедлайн всех чтений для одной страницы, мс */
+    @Value("${dashboard.deadline-ms:5000}")
+    private long pageDeadlineMs;
+
+    /** Сколько снимок страницы в сессии годится для повторного показа, мс */
+    @Value("${dashboard.cache-ttl-ms:10000}")
+    private long pageCacheTtlMs;
+
+    /**
+     * Результат чтений для страницы; errorMessage — текст для пользователя, если что-то не загрузилось.
+     */
+    private record PageData(AccountMeResponse me, List<AccountSummaryResponse> all, String errorMessage) {}
+
+    /**
+     * Данные страницы из accounts-service, сохранённые в сессии пользователя. Serializable — сессия может
+     * сохраняться на диск при перезапуске или реплицироваться; список получателей копируется в неизменяемый.
+     */
+    private record CachedAccounts(AccountMeResponse me, List<AccountSummaryResponse> all, long loadedAt)
+            implements Serializable {
+        CachedAccounts {
+            all = List.copyOf(all);
+        }
+    }
+
+    /**
+     * Модель главной страницы по свежим данным accounts-service (обычный GET, F5).
+     * Полностью загруженные данные запоминаются в сессии для {@link #rebuildPage}.
+     */
+    public FrontendDTO.MainPageModel buildPage(OAuth2AuthenticationToken authentication, HttpSession session) {
+        PageData data = loadPage(authentication);
+        if (data.me() != null && data.errorMessage() == null) {
+            session.setAttribute(PAGE_CACHE_ATTRIBUTE,
+                    new CachedAccounts(data.me(), data.all(), System.currentTimeMillis()));
+        } else {
+            invalidatePage(session);
+        }
+        return mapper.toPageModel(data.me(), data.all(), null, data.errorMessage());
+    }
+
+    /**
+     * Повторный показ только что построенной страницы — после ошибки валидации формы или redirect без изменения
+     * данных: берётся снимок из сессии, если он моложе {@code dashboard.cache-ttl-ms}, иначе как {@link #buildPage}.
+     * После операции снимок сбрасывается через {@link #invalidatePage(HttpSession)}.
+     */
+    public FrontendDTO.MainPageModel rebuildPage(OAuth2AuthenticationToken authentication, HttpSession session) {
+        if (session.getAttribute(PAGE_CACHE_ATTRIBUTE) instanceof CachedAccounts cached
+                && System.currentTimeMillis() - cached.loadedAt() < pageCacheTtlMs) {
+            return mapper.toPageModel(cached.me(), cached.all(), null, null);
+        }
+        return buildPage(authentication, session);
+    }
 
-        AccountMeResponse meDto = null;
-        List<AccountSummaryResponse> allDtos = List.of();
+    /**
+     * Данные счёта изменились — следующий показ страницы читает их заново.
+     */
+    public void invalidatePage(HttpSession session) {
+        session.removeAttribute(PAGE_CACHE_ATTRIBUTE);
+    }
 
-        String errorMessage = null;
-        String successMessage = null;
+    /**
+     * Дешёвая проверка перед операцией: accounts-service считается недоступным, пока открыт его circuit breaker.
+     * Сам сервис не вызывается.
+     */
+    public boolean isAccountsAvailable() {
+        CircuitBreaker.State state = circuitBreakerRegistry.circuitBreaker(ACCOUNTS_READ).getState();
+        return state != CircuitBreaker.State.OPEN && state != CircuitBreaker.State.FORCED_OPEN;
+    }
 
+    /**
+     * Данные страницы одним запросом GET /accounts/dashboard (один проход через gateway).
+     * Запрос идёт на виртуальном потоке и ограничен дедлайном страницы.
+     */
+    private PageData loadPage(OAuth2AuthenticationToken authentication) {
+        String token = extractToken(authentication);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pageDeadlineMs);
+
+        Future<AccountDashboardResponse> dashboard = pageExecutor.submit(() -> accountsClient.getDashboard(token));
         try {
-            meDto = accountsClient.getMe(token);
+            AccountDashboardResponse dto = await(dashboard, deadline);
+            if (dto == null) {
+                return new PageData(null, List.of(), null);
+            }
+            return new PageData(dto.me(), dto.recipients() != null ? dto.recipients() : List.of(), null);
         } catch (Exception e) {
-            errorMessage = accountsUiMessage(e);
-            log.warn("accounts getMe failed: {}", e.toString());
+            log.warn("accounts getDashboard failed: {}", e.toString());
+            return new PageData(null, List.of(), accountsUiMessage(e));
         }
+    }
 
-        if (meDto != null) {
-            try {
-                allDtos = accountsClient.getAll(token);
-            } catch (Exception e) {
-                if (errorMessage == null) {
-                    errorMessage = accountsUiMessage(e);
-                    log.warn("accounts getAll failed: {}", e.toString());
-                }
-            }
+    /**
+     * Ждёт результат не дольше общего дедлайна страницы; по таймауту вызов отменяется (поток прерывается).
+     */
+    private static <T> T await(Future<T> future, long deadline) throws Exception {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
         }
+    }
 
-        return mapper.toPageModel(meDto, allDtos, successMessage, errorMessage);
+    @PreDestroy
+    void shutdown() {
+        pageExecutor.shutdownNow();
+    }
+
+    /**
+     * Подсказки для поля «Получатель»: страница справочника accounts-service по введённому началу имени.
+     */
+    public AccountDirectoryPage searchRecipients(OAuth2AuthenticationToken auth, String query, String after) {
+        return accountsClient.searchDirectory(extractToken(auth), query, after);
     }
 
     public void operate(OAuth2AuthenticationToken auth, FrontendDTO.CashOperationForm form, CashOperationType cashOperationType) {
         String token = extractToken(auth);
-        Long opId = cashClient.getOperationKey(token).operationId();
+        // Ключ генерируется здесь — без отдельного запроса /operation-key
+        Long opId = operationIdGenerator.nextId();
         cashClient.operate(token, new CashOperationRequest(opId, cashOperationType, form.getAmount()));
     }
 
     public void transfer(OAuth2AuthenticationToken auth, FrontendDTO.TransferForm form) {
         String token = extractToken(auth);
-        Long opId = transferClient.getOperationKey(token).operationId();
+        Long opId = operationIdGenerator.nextId();
         System.out.println("Stage 2");
         transferClient.transfer(token, new TransferOperationRequest(opId, form.getToUsername(), form.getAmount()));
     }
@@ -108,7 +219,12 @@ public class DashboardService {
             return "Сервис аккаунтов временно перегружен, повторите позже.";
         }
 
-        // 2) Сетевые проблемы (чаще всего RestClient заворачивает их в ResourceAccessException)
+        // 2) Страница не уложилась в дедлайн
+        if (e instanceof TimeoutException) {
+            return "Сервис аккаунтов не отвечает (таймаут).";
+        }
+
+        // 3) Сетевые проблемы (чаще всего RestClient заворачивает их в ResourceAccessException)
         if (e instanceof ResourceAccessException rae) {
             Throwable c = rae.getCause();
 
@@ -121,7 +237,7 @@ public class DashboardService {
             return "Ошибка связи с сервисом аккаунтов.";
         }
 
-        // 3) Ответ сервера с кодом (5xx/4xx)
+        // 4) Ответ сервера с кодом (5xx/4xx)
         if (e instanceof HttpStatusCodeException hsce) {
             int code = hsce.getStatusCode().value();
             if (code >= 500) return "Сервис аккаунтов временно недоступен (ошибка сервера).";
@@ -129,7 +245,7 @@ public class DashboardService {
             return "Ошибка при обращении к сервису аккаунтов (HTTP " + code + ").";
         }
 
-        // 4) На всякий
+        // 5) На всякий
         return "Сервис аккаунтов временно недоступен.";
     }
 
@@ -0,0 +1,88 @@
+package com.mybank.frontend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Генератор operationId на стороне front-ui (Snowflake): 41 бит — мс от {@link #EPOCH},
+ * 10 бит — номер узла, 12 бит — счётчик внутри миллисекунды.
+ * Ключи растут со временем и не пересекаются между узлами, поэтому cash/transfer-service принимают их
+ * без предварительного GET /operation-key.
+ * <p>
+ * Номер узла берётся из метаданных экземпляра Eureka ({@code eureka.instance.metadata-map.node-id}),
+ * у каждого экземпляра front-ui он должен быть свой. Без него приложение не стартует: номер, выведенный
+ * из имени хоста, мог бы совпасть у двух экземпляров, и их ключи пересеклись бы.
+ * <p>
+ * Если часы ушли назад не больше чем на {@link #MAX_CLOCK_BACKWARD_MS}, генератор ждёт их внутри блокировки;
+ * при большем откате ключ не выдаётся вовсе.
+ */
+@Component
+public class OperationIdGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(OperationIdGenerator.class);
+
+    static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    static final long MAX_CLOCK_BACKWARD_MS = 10;
+
+    private final long node;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public OperationIdGenerator(@Value("${eureka.instance.metadata-map.node-id:}") String nodeId) {
+        if (nodeId == null || nodeId.isBlank()) {
+            throw new IllegalStateException(
+                    "Не задан eureka.instance.metadata-map.node-id (NODE_ID): номер узла генератора operationId");
+        }
+        long parsed;
+        try {
+            parsed = Long.parseLong(nodeId.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("node-id должен быть числом: " + nodeId, e);
+        }
+        if (parsed < 0 || parsed > MAX_NODE) {
+            throw new IllegalArgumentException("node-id должен быть в диапазоне 0.." + MAX_NODE + ": " + parsed);
+        }
+        this.node = parsed;
+        log.info("🆔 Генератор operationId: node-id={}", parsed);
+    }
+
+    public synchronized long nextId() {
+        long now = System.currentTimeMillis();
+        if (now < lastMillis) {
+            // Часы ушли назад — не выдаём ключи «из прошлого»: короткий откат пережидаем, длинный — ошибка
+            long backward = lastMillis - now;
+            if (backward > MAX_CLOCK_BACKWARD_MS) {
+                throw new IllegalStateException("Часы ушли назад на " + backward + " мс, operationId не выдан");
+            }
+            now = waitUntil(lastMillis);
+        }
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // 4096 ключей за миллисекунду исчерпаны
+                now = waitUntil(lastMillis + 1);
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return ((now - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    private static long waitUntil(long millis) {
+        long now = System.currentTimeMillis();
+        while (now < millis) {
+            Thread.onSpinWait();
+            now = System.currentTimeMillis();
+        }
+        return now;
+    }
+}
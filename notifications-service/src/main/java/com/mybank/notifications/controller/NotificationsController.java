@@ -1,5 +1,8 @@
 package com.mybank.notifications.controller;
 
+import com.mybank.notifications.dto.NotificationBatchRequest;
+import com.mybank.notifications.dto.NotificationBatchResponse;
+import com.mybank.notifications.dto.NotificationBatchResult;
 import com.mybank.notifications.dto.NotificationRequest;
 import com.mybank.notifications.service.NotificationService;
 import jakarta.validation.Valid;
@@ -10,6 +13,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/notifications")
 @Slf4j
@@ -36,6 +41,24 @@ public class NotificationsController {
         return ResponseEntity.accepted().build();
     }
 
+    /**
+     * Пакетный приём (до 1000 уведомлений) одним INSERT.
+     * Дубликаты не ошибка — они отмечаются в результате соответствующего уведомления.
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('notification.write')")
+    public ResponseEntity<NotificationBatchResponse> notifyBatch(@Valid @RequestBody NotificationBatchRequest req,
+                                                                 @AuthenticationPrincipal Jwt jwt) {
+        String clientId = extractClientId(jwt);
+        List<NotificationBatchResult> results = commandService.createAllAndEnqueue(req.notifications(), clientId);
+        long duplicates = results.stream()
+                .filter(r -> r.status() == NotificationBatchResult.Status.DUPLICATE)
+                .count();
+        log.info("NOTIFY batch accepted: size={}, duplicates={}, service={}",
+                results.size(), duplicates, clientId);
+        return ResponseEntity.accepted().body(new NotificationBatchResponse(results));
+    }
+
     private String extractClientId(Jwt jwt) {
         String clientId = jwt.getClaimAsString("azp");
         if (clientId != null && !clientId.isEmpty()) {
@@ -0,0 +1,13 @@
+package com.mybank.notifications.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record NotificationBatchRequest(
+        @NotEmpty(message = "Список уведомлений не должен быть пустым")
+        @Size(max = 1000, message = "Не более 1000 уведомлений в одном запросе")
+        List<@Valid NotificationRequest> notifications
+) {}
@@ -0,0 +1,8 @@
+package com.mybank.notifications.dto;
+
+import java.util.List;
+
+/**
+ * Результаты пакетного приёма уведомлений — по одному на каждое, в порядке запроса.
+ */
+public record NotificationBatchResponse(List<NotificationBatchResult> results) {}
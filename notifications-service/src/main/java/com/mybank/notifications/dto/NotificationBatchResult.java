@@ -0,0 +1,14 @@
+package com.mybank.notifications.dto;
+
+/**
+ * Результат приёма одного уведомления из пакета.
+ */
+public record NotificationBatchResult(Long operationId, Status status) {
+
+    public enum Status {
+        /** Уведомление сохранено и поставлено в очередь */
+        ACCEPTED,
+        /** Уведомление с таким operationId от этого сервиса уже было */
+        DUPLICATE
+    }
+}
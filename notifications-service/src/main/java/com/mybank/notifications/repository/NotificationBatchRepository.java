@@ -0,0 +1,62 @@
+package com.mybank.notifications.repository;
+
+import com.mybank.notifications.dto.NotificationRequest;
+import com.mybank.notifications.model.OperationStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class NotificationBatchRepository {
+
+    /** Строк в одном multi-row INSERT (5 параметров на строку, лимит PostgreSQL — 65535) */
+    private static final int INSERT_CHUNK = 1000;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Сохраняет уведомления одного сервиса: один multi-row INSERT ... ON CONFLICT DO NOTHING на каждые 1000 строк.
+     *
+     * @param service  ID клиента (сервиса), от которого пришли уведомления
+     * @param requests уведомления в порядке поступления
+     * @return флаги в том же порядке: true если уведомление новое; повтор внутри пакета считается дубликатом
+     */
+    public List<Boolean> insertAllIfAbsent(String service, List<NotificationRequest> requests) {
+        Set<Long> inserted = new HashSet<>();
+        for (int from = 0; from < requests.size(); from += INSERT_CHUNK) {
+            List<NotificationRequest> chunk = requests.subList(from, Math.min(from + INSERT_CHUNK, requests.size()));
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO notifications.notifications(service, operation_id, username, payload, status) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 5);
+            for (int i = 0; i < chunk.size(); i++) {
+                NotificationRequest req = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?::jsonb, ?)" : ", (?, ?, ?, ?::jsonb, ?)");
+                args.add(service);
+                args.add(req.operationId());
+                args.add(req.username());
+                args.add(objectMapper.writeValueAsString(req.payload() != null ? req.payload() : Map.of()));
+                args.add(OperationStatus.UPDATED.name());
+            }
+            sql.append(" ON CONFLICT (service, operation_id) DO NOTHING RETURNING operation_id");
+
+            inserted.addAll(jdbc.queryForList(sql.toString(), Long.class, args.toArray()));
+        }
+
+        List<Boolean> result = new ArrayList<>(requests.size());
+        for (NotificationRequest req : requests) {
+            // remove: только первое вхождение одного operationId считается новым
+            result.add(inserted.remove(req.operationId()));
+        }
+        return result;
+    }
+}
@@ -1,17 +1,20 @@
 package com.mybank.notifications.service;
 
+import com.mybank.notifications.dto.NotificationBatchResult;
 import com.mybank.notifications.dto.NotificationRequest;
-import com.mybank.notifications.model.*;
-import com.mybank.notifications.repository.NotificationRepository;
+import com.mybank.notifications.repository.NotificationBatchRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
 
-    private final NotificationRepository notificationRepository;
+    private final NotificationBatchRepository batchRepository;
 
     /**
      * Идемпотентное создание:
@@ -19,14 +22,22 @@ public class NotificationService {
      */
     @Transactional
     public Boolean createAndEnqueue(NotificationRequest req, String clientId) {
-        if (notificationRepository.findById(new NotificationId(clientId, req.operationId())).isPresent()) return false;
-        Notification n = new Notification();
-        n.setId(new NotificationId(clientId, req.operationId()));
-        n.setUsername(req.username());
-        n.setStatus(OperationStatus.UPDATED);
-        n.setPayload(req.payload());
-        notificationRepository.save(n);
-        return true;
+        return batchRepository.insertAllIfAbsent(clientId, List.of(req)).getFirst();
     }
 
+    /**
+     * Идемпотентное создание пакета уведомлений одним INSERT.
+     *
+     * @return результат по каждому уведомлению, в порядке запроса
+     */
+    @Transactional
+    public List<NotificationBatchResult> createAllAndEnqueue(List<NotificationRequest> requests, String clientId) {
+        List<Boolean> created = batchRepository.insertAllIfAbsent(clientId, requests);
+        List<NotificationBatchResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(new NotificationBatchResult(requests.get(i).operationId(),
+                    created.get(i) ? NotificationBatchResult.Status.ACCEPTED : NotificationBatchResult.Status.DUPLICATE));
+        }
+        return results;
+    }
 }
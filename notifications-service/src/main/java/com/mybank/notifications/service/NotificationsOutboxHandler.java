@@ -0,0 +1,52 @@
+package com.mybank.notifications.service;
+
+import com.mybank.outbox.OutboxHandler;
+import com.mybank.outbox.OutboxTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Доставка уведомлений из notifications.notifications.
+ * Пока «доставка» — это запись в лог.
+ */
+@Component
+@Slf4j
+public class NotificationsOutboxHandler implements OutboxHandler<NotificationsOutboxHandler.Delivery> {
+
+    static final OutboxTable TABLE = OutboxTable.builder()
+            .name("notifications.notifications")
+            .keyColumns(List.of(
+                    OutboxTable.KeyColumn.varchar("service"),
+                    OutboxTable.KeyColumn.bigint("operation_id")))
+            .channel("notifications_outbox")
+            .build();
+
+    @Override
+    public OutboxTable table() {
+        return TABLE;
+    }
+
+    @Override
+    public Delivery map(ResultSet rs) throws SQLException {
+        return new Delivery(rs.getLong("operation_id"), rs.getString("service"),
+                rs.getString("username"), rs.getString("payload"));
+    }
+
+    @Override
+    public boolean send(Delivery delivery) {
+        log.info("🚀✅ NOTIFIED opId={} user={} service={} payload={}",
+                delivery.operationId(), delivery.username(), delivery.service(), delivery.payload());
+        return true;
+    }
+
+    @Override
+    public String destination() {
+        return "notification";
+    }
+
+    public record Delivery(Long operationId, String service, String username, String payload) {}
+}
@@ -2,6 +2,7 @@ package com.mybank.notifications.contract;
 
 
 import com.mybank.notifications.config.TestSecurityItConfig;
+import com.mybank.notifications.dto.NotificationBatchResult;
 import com.mybank.notifications.dto.NotificationRequest;
 import com.mybank.notifications.service.NotificationService;
 import com.mybank.notifications.service.OutboxProcessor;
@@ -16,7 +17,10 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
@@ -52,5 +56,10 @@ public abstract class ContractTestBase {
         when(notificationService.createAndEnqueue(any(NotificationRequest.class),anyString()))
                 .thenReturn(true);
 
+        when(notificationService.createAllAndEnqueue(anyList(), anyString()))
+                .thenReturn(List.of(
+                        new NotificationBatchResult(12345L, NotificationBatchResult.Status.ACCEPTED),
+                        new NotificationBatchResult(12346L, NotificationBatchResult.Status.DUPLICATE)));
+
     }
 }
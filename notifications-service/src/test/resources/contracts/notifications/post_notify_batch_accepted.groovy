@@ -0,0 +1,36 @@
+package contracts.notifications
+
+import org.springframework.cloud.contract.spec.Contract
+
+Contract.make {
+    description("Create batch of notifications (Outbox). Returns 202 Accepted with per-item result; duplicates are reported, not rejected.")
+    request {
+        method POST()
+        url "/notifications/batch"
+        headers { contentType(applicationJson()) }
+        body(
+                notifications: [
+                        [
+                                operationId: 12345,
+                                username   : "alice",
+                                payload    : [ sample: "x" ]
+                        ],
+                        [
+                                operationId: 12346,
+                                username   : "bob",
+                                payload    : [ sample: "y" ]
+                        ]
+                ]
+        )
+    }
+    response {
+        status ACCEPTED()
+        headers { contentType(applicationJson()) }
+        body(
+                results: [
+                        [ operationId: 12345, status: "ACCEPTED" ],
+                        [ operationId: 12346, status: "DUPLICATE" ]
+                ]
+        )
+    }
+}
@@ -0,0 +1,24 @@
+package com.mybank.outbox;
+
+import java.util.List;
+
+/**
+ * Обработчик, который отправляет записи пакета кусками, по одному вызову на кусок (например, одним HTTP-запросом),
+ * вместо отправки по одному сообщению. Записи одного пользователя всегда в одном куске, в порядке захвата.
+ *
+ * @param <T> тип отправляемого сообщения
+ */
+public interface BatchOutboxHandler<T> extends OutboxHandler<T> {
+
+    /**
+     * Отправляет пакет сообщений.
+     *
+     * @return флаги в порядке {@code messages}: true если получатель принял сообщение
+     */
+    List<Boolean> sendAll(List<T> messages);
+
+    @Override
+    default boolean send(T message) {
+        return sendAll(List.of(message)).getFirst();
+    }
+}
@@ -0,0 +1,72 @@
+package com.mybank.outbox;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Регистрирует {@link OutboxEngine}, если в приложении есть DataSource (JdbcTemplate и менеджер транзакций).
+ */
+@AutoConfiguration(afterName = {
+        "org.springframework.boot.jdbc.autoconfigure.JdbcTemplateAutoConfiguration",
+        "org.springframework.boot.jdbc.autoconfigure.DataSourceTransactionManagerAutoConfiguration",
+        "org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfiguration",
+        "org.springframework.boot.transaction.autoconfigure.TransactionAutoConfiguration"
+})
+@ConditionalOnBean({JdbcTemplate.class, PlatformTransactionManager.class})
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboxRepository outboxRepository(JdbcTemplate jdbcTemplate) {
+        return new OutboxRepository(jdbcTemplate);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboxEngine outboxEngine(OutboxRepository outboxRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     OutboxProperties properties,
+                                     OutboxMetrics outboxMetrics) {
+        return new OutboxEngine(outboxRepository, new TransactionTemplate(transactionManager), properties,
+                outboxMetrics);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboxBacklogMetrics outboxBacklogMetrics(OutboxRepository outboxRepository,
+                                                     ObjectProvider<OutboxHandler<?>> handlers,
+                                                     OutboxProperties properties) {
+        return new OutboxBacklogMetrics(outboxRepository, handlers.orderedStream().toList(), properties);
+    }
+
+    /**
+     * LISTEN/NOTIFY-слушатель, только для PostgreSQL и {@code application.outbox.mode=notify}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.postgresql.PGConnection")
+    @ConditionalOnProperty(prefix = "application.outbox", name = "mode", havingValue = "notify")
+    static class NotifyConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public OutboxListener outboxListener(DataSource dataSource,
+                                             OutboxEngine outboxEngine,
+                                             ObjectProvider<OutboxHandler<?>> handlers,
+                                             OutboxProperties properties) {
+            return new OutboxListener(dataSource, outboxEngine, handlers.orderedStream().toList(), properties);
+        }
+    }
+}
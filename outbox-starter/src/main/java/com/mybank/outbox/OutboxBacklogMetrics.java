@@ -0,0 +1,87 @@
+package com.mybank.outbox;
+
+import com.mybank.outbox.OutboxRepository.OutboxBacklog;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Гауджи отставания outbox по каждой таблице:
+ * <ul>
+ *     <li>{@code outbox.pending} — сколько строк ждут отправки;</li>
+ *     <li>{@code outbox.pending.oldest.age} — сколько секунд ждёт самая старая строка с момента, когда она
+ *     стала ожидающей ({@link OutboxTable#readyColumn()}); задержки перед повторами возраст не сбрасывают;</li>
+ *     <li>{@code outbox.pending.next.attempt} — через сколько секунд подойдёт ближайшая попытка
+ *     (большое значение при непустой очереди — получатель недоступен и все строки в задержке).</li>
+ * </ul>
+ * Значения берутся одним запросом по частичным индексам {@code WHERE status = 'UPDATED'}
+ * и кешируются на {@code application.outbox.metrics.backlog-refresh-ms}, чтобы частый scrape не нагружал БД.
+ */
+@Slf4j
+public class OutboxBacklogMetrics implements MeterBinder {
+
+    private final OutboxRepository repository;
+    private final List<OutboxHandler<?>> handlers;
+    private final OutboxProperties properties;
+
+    public OutboxBacklogMetrics(OutboxRepository repository, List<OutboxHandler<?>> handlers,
+                                OutboxProperties properties) {
+        this.repository = repository;
+        this.handlers = handlers;
+        this.properties = properties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (OutboxHandler<?> handler : handlers) {
+            Backlog backlog = new Backlog(handler.table());
+            Gauge.builder("outbox.pending", backlog, b -> b.get().pending())
+                    .description("Строки outbox, ожидающие отправки")
+                    .tag("table", handler.table().name())
+                    .register(registry);
+            Gauge.builder("outbox.pending.oldest.age", backlog, b -> b.get().oldestAgeSeconds())
+                    .description("Сколько ждёт самая старая неотправленная строка outbox")
+                    .tag("table", handler.table().name())
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("outbox.pending.next.attempt", backlog, b -> b.get().nextAttemptInSeconds())
+                    .description("Через сколько подойдёт ближайшая попытка отправки outbox")
+                    .tag("table", handler.table().name())
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Последний снимок по таблице; обновляется не чаще раза в backlog-refresh-ms.
+     */
+    private final class Backlog {
+
+        private static final OutboxBacklog UNKNOWN = new OutboxBacklog(Double.NaN, Double.NaN, Double.NaN);
+
+        private final OutboxTable table;
+        private OutboxBacklog snapshot = UNKNOWN;
+        private long takenAt;
+
+        Backlog(OutboxTable table) {
+            this.table = table;
+        }
+
+        synchronized OutboxBacklog get() {
+            long now = System.currentTimeMillis();
+            if (snapshot == UNKNOWN || now - takenAt >= properties.getMetrics().getBacklogRefreshMs()) {
+                try {
+                    snapshot = repository.backlog(table);
+                } catch (RuntimeException e) {
+                    log.warn("📊⚠️ OUTBOX {}: не удалось получить размер очереди: {}", table.name(), e.getMessage());
+                    snapshot = UNKNOWN;
+                }
+                takenAt = now;
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.mybank.outbox;
+
+import com.mybank.outbox.OutboxRepository.OutboxAck;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Движок transactional outbox:
+ * <ol>
+ *     <li>в короткой транзакции захватывает пакет строк через {@code FOR UPDATE SKIP LOCKED} и арендует их
+ *     на {@code lease-ms} через время следующей попытки;</li>
+ *     <li>без транзакции и без соединения отправляет записи пакета параллельно (по одной или, если обработчик —
+ *     {@link BatchOutboxHandler}, кусками по {@code batch-chunk-size});</li>
+ *     <li>во второй короткой транзакции записывает статусы всего пакета одним bulk UPDATE.</li>
+ * </ol>
+ * Блокировки строк и пользователей, как и соединение из пула, не держатся на время удалённых вызовов:
+ * медленный получатель не занимает пул сервиса.
+ * Сервис описывает свою таблицу и отправку через {@link OutboxHandler}
+ * и вызывает {@link #drain(OutboxHandler)} из своего планировщика.
+ * <p>
+ * Параллельная отправка идёт на виртуальных потоках: по одной цепочке на пользователя, записи одного
+ * пользователя уходят строго по порядку. Одновременно выполняется не больше {@code concurrency} отправок.
+ * Если отправка не удалась, остальные записи этого пользователя в пакете не отправляются и откладываются
+ * вместе с ней, чтобы не обогнать её. Для {@link BatchOutboxHandler} цепочки пользователей собираются
+ * в куски целиком: порядок внутри цепочки сохраняет один вызов {@code sendAll}, а параллельны только куски.
+ */
+@Slf4j
+public class OutboxEngine implements DisposableBean {
+
+    static final String DEFERRED_ERROR = "deferred: earlier notification for the same user is not delivered yet";
+
+    private final OutboxRepository repository;
+    private final TransactionTemplate tx;
+    private final OutboxProperties properties;
+    private final OutboxMetrics metrics;
+    private final ExecutorService dispatchExecutor;
+    private final Semaphore inFlightPermits;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public OutboxEngine(OutboxRepository repository, TransactionTemplate tx,
+                        OutboxProperties properties, OutboxMetrics metrics) {
+        this.repository = repository;
+        this.tx = tx;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.dispatchExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("outbox-dispatch-", 0).factory());
+        this.inFlightPermits = new Semaphore(properties.getConcurrency());
+        metrics.dispatchGauges(inFlightPermits, properties.getConcurrency(), queued);
+    }
+
+    /**
+     * Обрабатывает пакеты, пока они полные (но не больше max-batches-per-run за вызов).
+     *
+     * @return сколько записей обработано
+     */
+    public <T> int drain(OutboxHandler<T> handler) {
+        int total = 0;
+        for (int i = 0; i < properties.getMaxBatchesPerRun(); i++) {
+            int processed = processBatch(handler);
+            total += processed;
+            if (processed < properties.getOrder().getLimit()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Один цикл: claim с арендой (транзакция), dispatch (вне транзакции), ack (транзакция).
+     *
+     * @return размер обработанного пакета
+     */
+    public <T> int processBatch(OutboxHandler<T> handler) {
+        List<OutboxRecord<T>> claimed = tx.execute(status -> {
+            List<OutboxRecord<T>> rows = repository.claim(handler, properties.getOrder().getLimit());
+            repository.lease(handler.table(), rows, properties.getLeaseMs());
+            return rows;
+        });
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxAck> acks = dispatch(handler, claimed);
+        tx.executeWithoutResult(status -> repository.acknowledge(handler.table(), acks));
+
+        long sent = record(handler.table(), claimed, acks);
+        log.info("🚀 OUTBOX {}: claimed={}, sent={}, failed={}",
+                handler.table().name(), claimed.size(), sent, claimed.size() - sent);
+        return claimed.size();
+    }
+
+    /**
+     * Через сколько мс подойдёт ближайший повтор в таблице обработчика, null — ожидающих нет.
+     */
+    public Long millisUntilNextAttempt(OutboxHandler<?> handler) {
+        return repository.millisUntilNextAttempt(handler.table());
+    }
+
+    /**
+     * Метрики пакета: время UPDATED→NOTIFIED по отправленным и счётчики конечных статусов.
+     *
+     * @return сколько записей отправлено
+     */
+    private <T> long record(OutboxTable t, List<OutboxRecord<T>> claimed, List<OutboxAck> acks) {
+        long sent = 0;
+        long dead = 0;
+        for (int i = 0; i < acks.size(); i++) {
+            String status = acks.get(i).status();
+            if (status.equals(t.sentStatus())) {
+                metrics.transition(t, t.pendingStatus(), t.sentStatus(), claimed.get(i).readyAt());
+                sent++;
+            } else if (status.equals(t.deadStatus())) {
+                dead++;
+            }
+        }
+        metrics.terminal(t, t.sentStatus(), sent);
+        metrics.terminal(t, t.deadStatus(), dead);
+        return sent;
+    }
+
+    private <T> List<OutboxAck> dispatch(OutboxHandler<T> handler, List<OutboxRecord<T>> claimed) {
+        Map<String, List<Integer>> chains = chains(claimed);
+        List<List<Integer>> tasks = handler instanceof BatchOutboxHandler<T>
+                ? chunks(chains, properties.getBatchChunkSize())
+                : List.copyOf(chains.values());
+
+        OutboxAck[] acks = new OutboxAck[claimed.size()];
+        queued.addAndGet(claimed.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+        for (List<Integer> task : tasks) {
+            futures.add(CompletableFuture.runAsync(handler instanceof BatchOutboxHandler<T> batchHandler
+                    ? () -> sendChunk(batchHandler, claimed, task, acks)
+                    : () -> sendChain(handler, claimed, task, acks), dispatchExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        return List.of(acks);
+    }
+
+    /**
+     * Индексы записей пакета по пользователю, в порядке захвата.
+     */
+    private static <T> Map<String, List<Integer>> chains(List<OutboxRecord<T>> claimed) {
+        Map<String, List<Integer>> chains = new LinkedHashMap<>();
+        for (int i = 0; i < claimed.size(); i++) {
+            chains.computeIfAbsent(claimed.get(i).username(), u -> new ArrayList<>()).add(i);
+        }
+        return chains;
+    }
+
+    /**
+     * Собирает цепочки пользователей в куски не больше {@code size} записей, не разрывая цепочку;
+     * цепочка длиннее {@code size} становится отдельным куском.
+     */
+    private static List<List<Integer>> chunks(Map<String, List<Integer>> chains, int size) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        for (List<Integer> chain : chains.values()) {
+            if (!current.isEmpty() && current.size() + chain.size() > size) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+            current.addAll(chain);
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Отправляет записи одного пользователя по порядку; после первой неудачи остальные откладываются.
+     */
+    private <T> void sendChain(OutboxHandler<T> handler, List<OutboxRecord<T>> claimed,
+                               List<Integer> chain, OutboxAck[] acks) {
+        OutboxAck failed = null;
+        for (int index : chain) {
+            OutboxRecord<T> record = claimed.get(index);
+            queued.decrementAndGet();
+            if (failed != null) {
+                acks[index] = defer(handler, record, failed);
+                continue;
+            }
+
+            boolean sent;
+            inFlightPermits.acquireUninterruptibly();
+            try {
+                sent = send(handler, record);
+            } finally {
+                inFlightPermits.release();
+            }
+            acks[index] = toAck(handler, record, sent);
+            if (!sent) {
+                failed = acks[index];
+            }
+        }
+    }
+
+    /**
+     * Отправляет кусок пакета одним вызовом {@link BatchOutboxHandler#sendAll}; ошибка вызова — неудача всего куска.
+     */
+    private <T> void sendChunk(BatchOutboxHandler<T> handler, List<OutboxRecord<T>> claimed,
+                               List<Integer> chunk, OutboxAck[] acks) {
+        queued.addAndGet(-chunk.size());
+        List<Boolean> sent;
+        inFlightPermits.acquireUninterruptibly();
+        try {
+            sent = handler.sendAll(chunk.stream().map(i -> claimed.get(i).payload()).toList());
+        } catch (Exception e) {
+            log.warn("🚀⚠️ batch send failed table={} size={} error={}",
+                    handler.table().name(), chunk.size(), e.getMessage());
+            sent = null;
+        } finally {
+            inFlightPermits.release();
+        }
+        if (sent != null && sent.size() != chunk.size()) {
+            log.warn("🚀⚠️ batch send returned {} results for {} records", sent.size(), chunk.size());
+            sent = null;
+        }
+
+        for (int j = 0; j < chunk.size(); j++) {
+            int index = chunk.get(j);
+            acks[index] = toAck(handler, claimed.get(index), sent != null && Boolean.TRUE.equals(sent.get(j)));
+        }
+    }
+
+    private <T> boolean send(OutboxHandler<T> handler, OutboxRecord<T> record) {
+        try {
+            return handler.send(record.payload());
+        } catch (Exception e) {
+            log.warn("🚀⚠️ send failed key={} user={} error={}", record.key(), record.username(), e.getMessage());
+            return false;
+        }
+    }
+
+    private <T> OutboxAck toAck(OutboxHandler<T> handler, OutboxRecord<T> record, boolean sent) {
+        OutboxTable t = handler.table();
+        if (sent) {
+            log.debug("🚀✅ NOTIFIED key={} user={}", record.key(), record.username());
+            return new OutboxAck(record.key(), t.sentStatus(), record.attempts(), null, 0);
+        }
+        if (record.attempts() < properties.getMaxAttempts()) {
+            long delayMs = retryDelayMs(record.attempts());
+            log.warn("🚀⚠️ RETRY key={} user={} attempt={} in {} ms",
+                    record.key(), record.username(), record.attempts(), delayMs);
+            return new OutboxAck(record.key(), t.pendingStatus(), record.attempts() + 1,
+                    handler.destination() + " unavailable; will retry later", delayMs);
+        }
+        log.error("🚀💥 NOTIFICATION FAILED key={} user={} attempts={}", record.key(), record.username(), record.attempts());
+        return new OutboxAck(record.key(), t.deadStatus(), record.attempts(), handler.destination() + " unavailable", 0);
+    }
+
+    /**
+     * Запись не отправлялась: попытка не засчитывается, время следующей — как у неудачной записи перед ней.
+     * Если та ушла в dead letter, отложенная запись пробуется сразу в следующем проходе.
+     */
+    private <T> OutboxAck defer(OutboxHandler<T> handler, OutboxRecord<T> record, OutboxAck failed) {
+        return new OutboxAck(record.key(), handler.table().pendingStatus(), record.attempts(),
+                DEFERRED_ERROR, failed.retryDelayMs());
+    }
+
+    /**
+     * Задержка перед повтором после {@code attempt} неудачных попыток (0 — первая неудача).
+     */
+    long retryDelayMs(int attempt) {
+        OutboxProperties.Retry retry = properties.getRetry();
+        double exponential = retry.getInitialDelayMs() * Math.pow(retry.getMultiplier(), attempt);
+        double capped = Math.min(exponential, retry.getMaxDelayMs());
+        double jittered = capped * (1 - retry.getJitter() * ThreadLocalRandom.current().nextDouble());
+        return Math.round(jittered);
+    }
+
+    @Override
+    public void destroy() {
+        dispatchExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,33 @@
+package com.mybank.outbox;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Сервисная часть outbox: какая таблица, как собрать сообщение из строки и как его отправить.
+ *
+ * @param <T> тип отправляемого сообщения
+ */
+public interface OutboxHandler<T> {
+
+    OutboxTable table();
+
+    /**
+     * Строит сообщение из текущей строки {@code SELECT *} по таблице outbox.
+     */
+    T map(ResultSet rs) throws SQLException;
+
+    /**
+     * Отправляет одно сообщение.
+     *
+     * @return true если получатель принял сообщение
+     */
+    boolean send(T message);
+
+    /**
+     * Получатель сообщений (для логов и текста ошибки).
+     */
+    default String destination() {
+        return "notifications-service";
+    }
+}
@@ -0,0 +1,203 @@
+package com.mybank.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Режим {@code application.outbox.mode=notify}: держит отдельное соединение с {@code LISTEN} на каналы
+ * всех {@link OutboxHandler} и запускает {@link OutboxEngine#drain(OutboxHandler)} сразу после NOTIFY
+ * от триггера таблицы. Пробуждения схлопываются: пока пакет обрабатывается, в очереди стоит не больше
+ * одного повторного запуска. Повторы (строка остаётся в UPDATED) триггер не анонсирует, поэтому после
+ * каждого прохода слушатель сам планирует пробуждение к ближайшему {@code next_attempt_at}.
+ * Планировщик сервиса остаётся страховочным опросом.
+ * <p>
+ * Соединение берётся из пула и занято слушателем всё время работы.
+ */
+@Slf4j
+public class OutboxListener implements SmartLifecycle {
+
+    /**
+     * Минимальная пауза до отложенного пробуждения: если подошедшие строки держит другой экземпляр,
+     * SKIP LOCKED их пропустит, и без паузы пробуждения пошли бы по кругу.
+     */
+    private static final long MIN_RETRY_WAKE_MS = 100;
+
+    private final DataSource dataSource;
+    private final OutboxEngine engine;
+    private final OutboxProperties properties;
+    private final Map<String, Waker> wakers = new LinkedHashMap<>();
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public OutboxListener(DataSource dataSource, OutboxEngine engine,
+                          List<OutboxHandler<?>> handlers, OutboxProperties properties) {
+        this.dataSource = dataSource;
+        this.engine = engine;
+        this.properties = properties;
+        for (OutboxHandler<?> handler : handlers) {
+            String channel = handler.table().channel();
+            if (channel != null) {
+                wakers.put(channel, new Waker(channel, handler));
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (wakers.isEmpty()) {
+            log.warn("👂 OUTBOX notify: нет таблиц с каналом, слушатель не запущен");
+            return;
+        }
+        running = true;
+        thread = Thread.ofPlatform().name("outbox-listener").daemon().start(this::listenLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        Connection current = connection;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException ignored) {
+                // соединение и так закрывается
+            }
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        wakers.values().forEach(Waker::shutdown);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection c = dataSource.getConnection()) {
+                connection = c;
+                c.setAutoCommit(true);
+                try (Statement st = c.createStatement()) {
+                    for (String channel : wakers.keySet()) {
+                        st.execute("LISTEN " + channel);
+                    }
+                }
+                log.info("👂 OUTBOX LISTEN {}", wakers.keySet());
+
+                // Записи, появившиеся до LISTEN (или пока соединение было потеряно)
+                wakers.values().forEach(Waker::wakeUp);
+
+                PGConnection pg = c.unwrap(PGConnection.class);
+                int timeout = (int) properties.getListener().getPollTimeoutMs();
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(timeout);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        Waker waker = wakers.get(notification.getName());
+                        if (waker != null) {
+                            waker.wakeUp();
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("👂⚠️ OUTBOX listener: соединение потеряно, переподключение: {}", e.getMessage());
+                try {
+                    Thread.sleep(properties.getListener().getReconnectDelayMs());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * Один поток на таблицу; повторные NOTIFY во время обработки схлопываются в один запуск.
+     */
+    private final class Waker {
+
+        private final OutboxHandler<?> handler;
+        private final ScheduledExecutorService executor;
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        /** Отложенное пробуждение к ближайшему повтору; трогается только из потока executor */
+        private ScheduledFuture<?> retryWake;
+
+        Waker(String channel, OutboxHandler<?> handler) {
+            this.handler = handler;
+            this.executor = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("outbox-wake-" + channel).daemon().factory());
+        }
+
+        void wakeUp() {
+            if (queued.compareAndSet(false, true)) {
+                executor.execute(this::run);
+            }
+        }
+
+        private void run() {
+            queued.set(false);
+            try {
+                int processed = engine.drain(handler);
+                // drain упёрся в max-batches-per-run — хвост разбираем следующим запуском
+                if (processed >= properties.getMaxBatchesPerRun() * properties.getOrder().getLimit()) {
+                    wakeUp();
+                    return;
+                }
+                scheduleRetryWake();
+            } catch (RuntimeException e) {
+                log.error("👂💥 OUTBOX {}: обработка по NOTIFY не удалась", handler.table().name(), e);
+            }
+        }
+
+        private void scheduleRetryWake() {
+            Long delayMs = engine.millisUntilNextAttempt(handler);
+            if (delayMs == null) {
+                return;
+            }
+            if (retryWake != null && !retryWake.isDone()) {
+                if (retryWake.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
+                    return;
+                }
+                retryWake.cancel(false);
+            }
+            retryWake = executor.schedule(this::wakeUp, Math.max(delayMs, MIN_RETRY_WAKE_MS), TimeUnit.MILLISECONDS);
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mybank.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Метрики жизненного цикла строк outbox, общие для всех сервисов (тег {@code table} — таблица outbox):
+ * <ul>
+ *     <li>{@code outbox.created} — счётчик созданных строк (тег {@code status} — начальный статус);</li>
+ *     <li>{@code outbox.transition} — таймер перехода статуса (теги {@code from}, {@code to}):
+ *     RESERVED→IN_PROGRESS→UPDATED пишет сервис, UPDATED→NOTIFIED — {@link OutboxEngine};</li>
+ *     <li>{@code outbox.terminal} — счётчик строк, дошедших до конечного статуса (тег {@code status}),
+ *     в том числе EXPIRED — брошенные резервы ключей, удалённые сервисом;</li>
+ *     <li>{@code outbox.pending}, {@code outbox.pending.oldest.age}, {@code outbox.pending.next.attempt} — см. {@link OutboxBacklogMetrics}.</li>
+ * </ul>
+ */
+public class OutboxMetrics {
+
+    private final MeterRegistry registry;
+
+    public OutboxMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Создана строка в статусе {@code status} (например, RESERVED при выдаче ключа операции).
+     */
+    public void created(OutboxTable table, String status) {
+        created(table, status, 1);
+    }
+
+    public void created(OutboxTable table, String status, long count) {
+        if (count > 0) {
+            Counter.builder("outbox.created")
+                    .description("Строки outbox, созданные в начальном статусе")
+                    .tag("table", table.name())
+                    .tag("status", status)
+                    .register(registry)
+                    .increment(count);
+        }
+    }
+
+    /**
+     * Переход {@code from → to}, занявший {@code elapsed}.
+     */
+    public void transition(OutboxTable table, String from, String to, Duration elapsed) {
+        Timer.builder("outbox.transition")
+                .description("Время перехода строки outbox между статусами")
+                .tag("table", table.name())
+                .tag("from", from)
+                .tag("to", to)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry)
+                .record(elapsed.isNegative() ? Duration.ZERO : elapsed);
+    }
+
+    /**
+     * Переход {@code from → to} прямо сейчас; строка находилась в {@code from} с момента {@code since}.
+     */
+    public void transition(OutboxTable table, String from, String to, LocalDateTime since) {
+        if (since != null) {
+            transition(table, from, to, Duration.between(since, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Строка дошла до конечного статуса (NOTIFIED, UNNOTIFIED, FAILED, EXPIRED).
+     */
+    public void terminal(OutboxTable table, String status) {
+        terminal(table, status, 1);
+    }
+
+    public void terminal(OutboxTable table, String status, long count) {
+        if (count > 0) {
+            Counter.builder("outbox.terminal")
+                    .description("Строки outbox, дошедшие до конечного статуса")
+                    .tag("table", table.name())
+                    .tag("status", status)
+                    .register(registry)
+                    .increment(count);
+        }
+    }
+
+    void dispatchGauges(Semaphore inFlightPermits, int concurrency, AtomicInteger queued) {
+        Gauge.builder("outbox.dispatch.in-flight", inFlightPermits, p -> concurrency - p.availablePermits())
+                .description("Отправки outbox, выполняющиеся прямо сейчас")
+                .register(registry);
+        Gauge.builder("outbox.dispatch.queue", queued, AtomicInteger::get)
+                .description("Захваченные записи outbox, ожидающие отправки")
+                .register(registry);
+    }
+}
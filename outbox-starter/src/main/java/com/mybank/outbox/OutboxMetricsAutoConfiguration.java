@@ -0,0 +1,22 @@
+package com.mybank.outbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Регистрирует {@link OutboxMetrics} независимо от наличия DataSource: переходы статусов пишет и бизнес-код
+ * сервиса, в том числе в тестовых контекстах без БД.
+ */
+@AutoConfiguration
+public class OutboxMetricsAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboxMetrics outboxMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OutboxMetrics(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+}
@@ -0,0 +1,101 @@
+package com.mybank.outbox;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки outbox (общие для всех сервисов), префикс {@code application.outbox}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "application.outbox")
+public class OutboxProperties {
+
+    /** Пауза между запусками планировщика, мс */
+    private long fixedDelayMs = 5000;
+
+    /** Максимум попыток доставки до перевода в UNNOTIFIED */
+    private int maxAttempts = 5;
+
+    /** Сколько отправок может выполняться одновременно (виртуальные потоки, ограничение семафором) */
+    private int concurrency = 16;
+
+    /**
+     * Сколько записей уходит одним вызовом {@link BatchOutboxHandler#sendAll}: захваченный пакет делится на куски
+     * такого размера (записи одного пользователя всегда в одном куске), куски отправляются параллельно
+     * в пределах {@code concurrency}.
+     */
+    private int batchChunkSize = 50;
+
+    /** Максимум пакетов за один запуск (чтобы один запуск не крутился бесконечно) */
+    private int maxBatchesPerRun = 20;
+
+    /**
+     * На сколько захваченные строки откладываются для других экземпляров, мс. Отправка идёт без транзакции,
+     * поэтому аренда должна перекрывать отправку пакета с ретраями; после остановки экземпляра строки
+     * снова захватываются по её истечении.
+     */
+    private long leaseMs = 60000;
+
+    /**
+     * Как узнавать о новых записях: {@code poll} — только планировщик,
+     * {@code notify} — LISTEN/NOTIFY от триггера, планировщик остаётся страховкой.
+     */
+    private Mode mode = Mode.POLL;
+
+    private Order order = new Order();
+
+    private Listener listener = new Listener();
+
+    private Retry retry = new Retry();
+
+    private Metrics metrics = new Metrics();
+
+    public enum Mode {
+        POLL,
+        NOTIFY
+    }
+
+    @Getter
+    @Setter
+    public static class Order {
+        /** Размер пакета, захватываемого одним SELECT ... FOR UPDATE SKIP LOCKED */
+        private int limit = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Listener {
+        /** Сколько ждать NOTIFY за один вызов, мс (заодно проверка живости соединения) */
+        private long pollTimeoutMs = 10000;
+
+        /** Пауза перед переподключением после обрыва соединения, мс */
+        private long reconnectDelayMs = 1000;
+    }
+
+    /**
+     * Экспоненциальная задержка между повторами: initial * multiplier^attempt, не больше max,
+     * со случайным уменьшением до jitter-доли, чтобы после восстановления получателя
+     * повторы не приходили одной волной.
+     */
+    @Getter
+    @Setter
+    public static class Retry {
+        private long initialDelayMs = 1000;
+
+        private double multiplier = 2.0;
+
+        private long maxDelayMs = 300000;
+
+        /** Доля задержки, на которую она случайно уменьшается (0 — без разброса, 1 — от 0 до полной) */
+        private double jitter = 0.5;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+        /** Как часто гауджи outbox.pending* перечитывают очередь из БД, мс */
+        private long backlogRefreshMs = 5000;
+    }
+}
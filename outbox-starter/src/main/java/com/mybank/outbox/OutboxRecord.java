@@ -0,0 +1,15 @@
+package com.mybank.outbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Захваченная строка outbox.
+ *
+ * @param key      значения ключевых колонок (в порядке {@link OutboxTable#keyColumns()})
+ * @param username пользователь (для логов и упорядочивания)
+ * @param attempts сколько попыток уже было
+ * @param readyAt  когда строка перешла в ожидающий статус (null — неизвестно)
+ * @param payload  данные для отправки, построенные {@link OutboxHandler#map}
+ */
+public record OutboxRecord<T>(List<Object> key, String username, int attempts, LocalDateTime readyAt, T payload) {}
@@ -0,0 +1,225 @@
+package com.mybank.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL outbox: захват пакета с SKIP LOCKED, аренда захваченных строк и запись результатов одним UPDATE.
+ */
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Захватывает до {@code limit} ожидающих строк, у которых подошло время попытки. Строки, заблокированные
+     * другим экземпляром сервиса, пропускаются (SKIP LOCKED), поэтому несколько экземпляров не отправляют
+     * одно и то же. Основное условие совпадает с частичным индексом {@code (next_attempt_at) WHERE status = 'UPDATED'}.
+     * <p>
+     * Порядок по пользователю. Сначала транзакция берёт advisory-блокировки пользователей из ближайших
+     * {@code limit} подошедших строк; пользователей, занятых другим экземпляром, пропускает. Строки
+     * захватываются только у своих пользователей, поэтому ни заблокированная чужим экземпляром ранняя строка,
+     * ни строка, отрезанная LIMIT, не даёт другому экземпляру отправить более позднюю строку того же
+     * пользователя: блокировка держится до коммита захвата, а к коммиту захваченные строки уже арендованы
+     * ({@link #lease}). Строка не захватывается и пока более ранняя строка того же пользователя ждёт повтора
+     * или арендована — то есть отправляется другим экземпляром. Пакет упорядочен по ключу, поэтому
+     * строки пользователя в нём идут по порядку, даже если время попытки у поздней строки меньше.
+     * <p>
+     * Блокировки берутся отдельным запросом до захвата: снимок захвата уже видит результаты экземпляра,
+     * который держал пользователя перед нами. Вызывать внутри транзакции, вместе с {@link #lease}.
+     */
+    public <T> List<OutboxRecord<T>> claim(OutboxHandler<T> handler, int limit) {
+        OutboxTable t = handler.table();
+        String[] users = lockUsers(t, limit);
+        if (users.length == 0) {
+            return List.of();
+        }
+
+        String sql = "SELECT * FROM " + t.name() + " AS o"
+                + " WHERE o." + t.usernameColumn() + " = ANY (?::text[])"
+                + " AND o." + t.statusColumn() + " = ?"
+                + " AND o." + t.nextAttemptColumn() + " <= now()"
+                + " AND NOT EXISTS (SELECT 1 FROM " + t.name() + " AS e"
+                + " WHERE e." + t.usernameColumn() + " = o." + t.usernameColumn()
+                + " AND e." + t.statusColumn() + " = ?"
+                + " AND e." + t.nextAttemptColumn() + " > now()"
+                + " AND " + keyTuple(t, "e") + " < " + keyTuple(t, "o") + ")"
+                + " ORDER BY " + keyList(t, "o")
+                + " LIMIT ?"
+                + " FOR UPDATE OF o SKIP LOCKED";
+
+        return jdbc.query(sql, (rs, n) -> {
+            List<Object> key = new ArrayList<>(t.keyColumns().size());
+            for (OutboxTable.KeyColumn column : t.keyColumns()) {
+                key.add(rs.getObject(column.name()));
+            }
+            return new OutboxRecord<>(key, rs.getString(t.usernameColumn()), rs.getInt(t.attemptsColumn()),
+                    rs.getObject(t.readyColumn(), LocalDateTime.class), handler.map(rs));
+        }, users, t.pendingStatus(), t.pendingStatus(), limit);
+    }
+
+    /**
+     * Advisory-блокировки (до конца транзакции) пользователей из ближайших {@code limit} подошедших строк.
+     * Ключ — пара (хеш таблицы, хеш пользователя), так что таблицы разных сервисов не мешают друг другу.
+     * Коллизия хешей лишь изредка откладывает чужого пользователя до следующего прохода.
+     *
+     * @return пользователи, которых эта транзакция держит
+     */
+    private String[] lockUsers(OutboxTable t, int limit) {
+        String sql = "WITH due AS MATERIALIZED ("
+                + " SELECT DISTINCT d." + t.usernameColumn() + " AS username FROM ("
+                + " SELECT " + t.usernameColumn() + " FROM " + t.name()
+                + " WHERE " + t.statusColumn() + " = ? AND " + t.nextAttemptColumn() + " <= now()"
+                + " ORDER BY " + t.nextAttemptColumn()
+                + " LIMIT ?) AS d)"
+                + " SELECT username FROM due"
+                + " WHERE pg_try_advisory_xact_lock(hashtext(?), hashtext(username))";
+        return jdbc.queryForList(sql, String.class, t.pendingStatus(), limit, t.name()).toArray(String[]::new);
+    }
+
+    /**
+     * Арендует захваченные строки на {@code leaseMs}: сдвигает время следующей попытки, чтобы после коммита
+     * захвата их не взял другой экземпляр, пока этот отправляет. Статус не меняется, поэтому строки
+     * остаются в частичном индексе ожидающих, а после остановки экземпляра захватываются снова.
+     */
+    public <T> void lease(OutboxTable t, List<OutboxRecord<T>> records, long leaseMs) {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>(records.size() * t.keyColumns().size() + 1);
+        args.add(leaseMs);
+        StringBuilder sql = new StringBuilder("UPDATE ").append(t.name()).append(" AS t SET ")
+                .append(t.nextAttemptColumn()).append(" = now() + ?::bigint * interval '1 millisecond' FROM (VALUES ");
+        for (int i = 0; i < records.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(keyRow(t, ")"));
+            args.addAll(records.get(i).key());
+        }
+        sql.append(") AS v(").append(keyAliases(t)).append(") WHERE ").append(keyJoin(t));
+        jdbc.update(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Через сколько мс подойдёт ближайшая ожидающая попытка (≤ 0 — уже подошла), null — ожидающих нет.
+     */
+    public Long millisUntilNextAttempt(OutboxTable t) {
+        String sql = "SELECT CEIL(EXTRACT(EPOCH FROM (min(" + t.nextAttemptColumn() + ") - now())) * 1000)::bigint"
+                + " FROM " + t.name()
+                + " WHERE " + t.statusColumn() + " = ?";
+        return jdbc.queryForObject(sql, Long.class, t.pendingStatus());
+    }
+
+    /**
+     * Записывает результаты пакета одним {@code UPDATE ... FROM (VALUES ...)}.
+     * Время следующей попытки считается от часов БД, чтобы не зависеть от расхождения часов с сервисом.
+     * Меняются только строки, ещё ожидающие отправки: если аренда истекла и строку уже отправил
+     * и записал другой экземпляр, его результат не перезаписывается.
+     */
+    public void acknowledge(OutboxTable t, List<OutboxAck> acks) {
+        if (acks.isEmpty()) {
+            return;
+        }
+        List<OutboxTable.KeyColumn> keys = t.keyColumns();
+        String row = keyRow(t, ", ?, ?::int, ?, ?::bigint)");
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(t.name()).append(" AS t SET ")
+                .append(t.statusColumn()).append(" = v.status, ")
+                .append(t.attemptsColumn()).append(" = v.attempts, ")
+                .append(t.errorColumn()).append(" = v.error, ")
+                .append(t.nextAttemptColumn()).append(" = now() + v.retry_delay_ms * interval '1 millisecond', ")
+                .append(t.touchedColumn()).append(" = now() FROM (VALUES ");
+
+        List<Object> args = new ArrayList<>(acks.size() * (keys.size() + 4));
+        for (int i = 0; i < acks.size(); i++) {
+            OutboxAck ack = acks.get(i);
+            sql.append(i == 0 ? "" : ", ").append(row);
+            args.addAll(ack.key());
+            args.add(ack.status());
+            args.add(ack.attempts());
+            args.add(ack.error());
+            args.add(ack.retryDelayMs());
+        }
+        sql.append(") AS v(").append(keyAliases(t)).append(", status, attempts, error, retry_delay_ms) WHERE ")
+                .append(keyJoin(t)).append(" AND t.").append(t.statusColumn()).append(" = ?");
+        args.add(t.pendingStatus());
+
+        jdbc.update(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Строка VALUES с ключевыми колонками и приведением к их типам; {@code tail} — остаток строки.
+     */
+    private static String keyRow(OutboxTable t, String tail) {
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < t.keyColumns().size(); i++) {
+            row.append(i == 0 ? "" : ", ").append("?::").append(t.keyColumns().get(i).sqlType());
+        }
+        return row.append(tail).toString();
+    }
+
+    private static String keyAliases(OutboxTable t) {
+        StringBuilder aliases = new StringBuilder();
+        for (int i = 0; i < t.keyColumns().size(); i++) {
+            aliases.append(i == 0 ? "" : ", ").append("k").append(i);
+        }
+        return aliases.toString();
+    }
+
+    private static String keyJoin(OutboxTable t) {
+        StringBuilder join = new StringBuilder();
+        for (int i = 0; i < t.keyColumns().size(); i++) {
+            join.append(i == 0 ? "" : " AND ").append("t.").append(t.keyColumns().get(i).name()).append(" = v.k").append(i);
+        }
+        return join.toString();
+    }
+
+    private static String keyList(OutboxTable t, String alias) {
+        StringBuilder list = new StringBuilder();
+        for (OutboxTable.KeyColumn column : t.keyColumns()) {
+            list.append(list.isEmpty() ? "" : ", ").append(alias).append('.').append(column.name());
+        }
+        return list.toString();
+    }
+
+    private static String keyTuple(OutboxTable t, String alias) {
+        return "(" + keyList(t, alias) + ")";
+    }
+
+    /**
+     * Размер очереди, возраст самой старой ожидающей строки (от {@link OutboxTable#readyColumn()}) и время до
+     * ближайшей попытки. Каждое значение — отдельный подзапрос, чтобы min() брался с начала своего частичного
+     * индекса {@code WHERE status = 'UPDATED'}, а не сортировкой всей очереди.
+     */
+    public OutboxBacklog backlog(OutboxTable t) {
+        String pending = " FROM " + t.name() + " WHERE " + t.statusColumn() + " = ?";
+        String sql = "SELECT (SELECT count(*)" + pending + ") AS pending,"
+                + " COALESCE(GREATEST(EXTRACT(EPOCH FROM (now() - (SELECT min(" + t.readyColumn() + ")" + pending
+                + "))), 0), 0) AS oldest_age,"
+                + " COALESCE(EXTRACT(EPOCH FROM ((SELECT min(" + t.nextAttemptColumn() + ")" + pending
+                + ") - now())), 0) AS next_attempt_in";
+        return jdbc.queryForObject(sql,
+                (rs, n) -> new OutboxBacklog(rs.getLong("pending"), rs.getDouble("oldest_age"),
+                        rs.getDouble("next_attempt_in")),
+                t.pendingStatus(), t.pendingStatus(), t.pendingStatus());
+    }
+
+    /**
+     * Снимок очереди outbox.
+     *
+     * @param pending              строк в ожидании отправки
+     * @param oldestAgeSeconds     сколько секунд ждёт самая старая из них, включая задержки перед повторами
+     *                             (0 — очередь пуста)
+     * @param nextAttemptInSeconds через сколько секунд подойдёт ближайшая попытка (отрицательное — уже просрочена)
+     */
+    public record OutboxBacklog(double pending, double oldestAgeSeconds, double nextAttemptInSeconds) {}
+
+    /**
+     * Новое состояние строки после попытки отправки.
+     *
+     * @param retryDelayMs через сколько мс строку можно захватить снова (для повторов)
+     */
+    public record OutboxAck(List<Object> key, String status, int attempts, String error, long retryDelayMs) {}
+}
@@ -0,0 +1,65 @@
+package com.mybank.outbox;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Описание таблицы outbox: имена колонок отличаются от сервиса к сервису.
+ *
+ * @param name          таблица со схемой, например {@code cash.cash_operations}
+ * @param keyColumns    колонки первичного ключа с SQL-типом (для VALUES в bulk UPDATE)
+ * @param attemptsColumn колонка счётчика попыток
+ * @param errorColumn   колонка последней ошибки
+ * @param touchedColumn колонка времени последней попытки/изменения
+ * @param nextAttemptColumn колонка времени, раньше которого строку не захватывать (задержка между повторами)
+ * @param readyColumn   колонка времени перехода строки в ожидающий статус (метрики UPDATED→NOTIFIED и возраста очереди)
+ * @param channel       канал LISTEN/NOTIFY, в который триггер таблицы шлёт NOTIFY (null — только опрос)
+ */
+@Builder
+public record OutboxTable(
+        String name,
+        List<KeyColumn> keyColumns,
+        String statusColumn,
+        String usernameColumn,
+        String attemptsColumn,
+        String errorColumn,
+        String touchedColumn,
+        String nextAttemptColumn,
+        String readyColumn,
+        String pendingStatus,
+        String sentStatus,
+        String deadStatus,
+        String channel
+) {
+
+    public OutboxTable {
+        if (keyColumns == null || keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("Outbox table " + name + " must declare key columns");
+        }
+        statusColumn = statusColumn != null ? statusColumn : "status";
+        usernameColumn = usernameColumn != null ? usernameColumn : "username";
+        attemptsColumn = attemptsColumn != null ? attemptsColumn : "attempts";
+        errorColumn = errorColumn != null ? errorColumn : "error";
+        touchedColumn = touchedColumn != null ? touchedColumn : "updated_at";
+        nextAttemptColumn = nextAttemptColumn != null ? nextAttemptColumn : "next_attempt_at";
+        readyColumn = readyColumn != null ? readyColumn : "created_at";
+        pendingStatus = pendingStatus != null ? pendingStatus : "UPDATED";
+        sentStatus = sentStatus != null ? sentStatus : "NOTIFIED";
+        deadStatus = deadStatus != null ? deadStatus : "UNNOTIFIED";
+    }
+
+    /**
+     * Колонка ключа и её тип в PostgreSQL.
+     */
+    public record KeyColumn(String name, String sqlType) {
+
+        public static KeyColumn bigint(String name) {
+            return new KeyColumn(name, "bigint");
+        }
+
+        public static KeyColumn varchar(String name) {
+            return new KeyColumn(name, "varchar");
+        }
+    }
+}
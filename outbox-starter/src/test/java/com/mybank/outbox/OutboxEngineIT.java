@@ -0,0 +1,535 @@
+package com.mybank.outbox;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class OutboxEngineIT {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxEngineIT.class);
+
+    @Container
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("outbox_test")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    static HikariDataSource dataSource;
+    static JdbcTemplate jdbc;
+
+    static final OutboxTable TABLE = OutboxTable.builder()
+            .name("test_outbox")
+            .keyColumns(List.of(OutboxTable.KeyColumn.bigint("operation_id")))
+            .build();
+
+    @BeforeAll
+    static void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl());
+        dataSource.setUsername(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        dataSource.setMaximumPoolSize(8);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE test_outbox (
+                    operation_id BIGINT PRIMARY KEY,
+                    username     VARCHAR(128) NOT NULL,
+                    status       VARCHAR(32)  NOT NULL,
+                    attempts     INT          NOT NULL DEFAULT 0,
+                    error        TEXT,
+                    created_at   TIMESTAMP    NOT NULL DEFAULT now(),
+                    updated_at   TIMESTAMP    NOT NULL DEFAULT now(),
+                    next_attempt_at TIMESTAMP NOT NULL DEFAULT now()
+                )
+                """);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        dataSource.close();
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbc.update("TRUNCATE test_outbox");
+    }
+
+    @Test
+    void drain_shouldSendAllAndMarkNotifiedInBulk() {
+        insertPending(1, 1000);
+        RecordingHandler handler = new RecordingHandler(id -> true);
+
+        long startedAt = System.nanoTime();
+        int processed = engine(200, 3).drain(handler);
+        long elapsed = System.nanoTime() - startedAt;
+
+        assertThat(processed).isEqualTo(1000);
+        assertThat(handler.sent).hasSize(1000);
+        assertThat(count("NOTIFIED")).isEqualTo(1000);
+        log.info("📊 Outbox: {} записей за {} мс ({} msg/sec)", processed,
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                String.format("%.0f", processed * 1e9 / elapsed));
+    }
+
+    @Test
+    void failedSend_shouldBackOffThenDeadLetter() {
+        insertPending(1, 1);
+        RecordingHandler handler = new RecordingHandler(id -> false);
+        OutboxEngine engine = engine(10, 2);
+
+        engine.drain(handler);
+        assertThat(jdbc.queryForMap("SELECT status, attempts, error FROM test_outbox"))
+                .containsEntry("status", "UPDATED")
+                .containsEntry("attempts", 1)
+                .containsEntry("error", "test-destination unavailable; will retry later");
+        assertThat(jdbc.queryForObject("SELECT next_attempt_at > now() FROM test_outbox", Boolean.class)).isTrue();
+
+        // До next_attempt_at строка не захватывается
+        assertThat(engine.drain(handler)).isZero();
+        assertThat(engine.millisUntilNextAttempt(handler)).isPositive();
+
+        makeDue();
+        engine.drain(handler);
+        makeDue();
+        engine.drain(handler);
+        assertThat(jdbc.queryForMap("SELECT status, attempts FROM test_outbox"))
+                .containsEntry("status", "UNNOTIFIED")
+                .containsEntry("attempts", 2);
+        assertThat(engine.millisUntilNextAttempt(handler)).isNull();
+    }
+
+    @Test
+    void retryDelay_shouldGrowExponentiallyWithJitterAndCap() {
+        OutboxEngine engine = engine(10, 10);
+
+        for (int attempt = 0; attempt < 6; attempt++) {
+            long full = Math.min(1000L << attempt, 300_000L);
+            assertThat(engine.retryDelayMs(attempt)).isBetween(full / 2, full);
+        }
+        assertThat(engine.retryDelayMs(20)).isBetween(150_000L, 300_000L);
+    }
+
+    @Test
+    void concurrentEngines_shouldNotSendTheSameRowTwice() {
+        insertPending(1, 2000);
+        Set<Long> sent = ConcurrentHashMap.newKeySet();
+        Map<Long, Integer> duplicates = new ConcurrentHashMap<>();
+        RecordingHandler handler = new RecordingHandler(id -> {
+            if (!sent.add(id)) {
+                duplicates.merge(id, 1, Integer::sum);
+            }
+            return true;
+        });
+
+        // Два «экземпляра сервиса» разбирают одну таблицу одновременно
+        OutboxEngine first = engine(100, 4);
+        OutboxEngine second = engine(100, 4);
+        CompletableFuture<Integer> a = CompletableFuture.supplyAsync(() -> first.drain(handler));
+        CompletableFuture<Integer> b = CompletableFuture.supplyAsync(() -> second.drain(handler));
+
+        assertThat(a.join() + b.join()).isEqualTo(2000);
+        assertThat(duplicates).isEmpty();
+        assertThat(count("NOTIFIED")).isEqualTo(2000);
+    }
+
+    @Test
+    void secondInstance_shouldNotOvertakeRowClaimedOrCutOffByFirst() throws Exception {
+        jdbc.update("""
+                INSERT INTO test_outbox(operation_id, username, status, next_attempt_at)
+                VALUES (1, 'solo', 'UPDATED', now()), (2, 'solo', 'UPDATED', now() - interval '1 minute'),
+                       (3, 'solo', 'UPDATED', now()), (4, 'other', 'UPDATED', now())
+                """);
+        OutboxRepository repository = new OutboxRepository(jdbc);
+        RecordingHandler handler = new RecordingHandler(id -> true);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Экземпляр A захватил строку 1 (строки 2 и 3 отрезаны LIMIT) и ещё не записал результат
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() ->
+                new TransactionTemplate(new JdbcTransactionManager(dataSource)).execute(status -> {
+                    List<OutboxRecord<Long>> rows = repository.claim(handler, 1);
+                    claimed.countDown();
+                    await(release);
+                    repository.acknowledge(TABLE, rows.stream()
+                            .map(r -> new OutboxRepository.OutboxAck(r.key(), "NOTIFIED", 0, null, 0)).toList());
+                    return rows.stream().map(OutboxRecord::payload).toList();
+                }));
+        await(claimed);
+
+        // Экземпляр B не трогает строки solo, хотя строка 2 подошла раньше всех
+        OutboxEngine second = engine(10, 3);
+        assertThat(second.processBatch(handler)).isEqualTo(1);
+        assertThat(handler.sent).containsExactly(4L);
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).containsExactly(1L);
+
+        List<Long> order = new CopyOnWriteArrayList<>();
+        assertThat(second.processBatch(new RecordingHandler(id -> order.add(id)))).isEqualTo(2);
+        assertThat(order).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void send_shouldRunOutsideTransaction_withClaimedRowsLeased() {
+        insertPending(1, 20);
+        OutboxEngine engine = engine(10, 3);
+        OutboxEngine other = engine(10, 3);
+        List<Integer> claimedByOther = new CopyOnWriteArrayList<>();
+        RecordingHandler handler = new RecordingHandler(id -> {
+            // Во время отправки соединение и блокировки строк не держатся, а строка арендована
+            assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+            jdbc.queryForObject("SELECT operation_id FROM test_outbox WHERE operation_id = ? FOR UPDATE NOWAIT",
+                    Long.class, id);
+            assertThat(jdbc.queryForObject("SELECT next_attempt_at > now() FROM test_outbox WHERE operation_id = ?",
+                    Boolean.class, id)).isTrue();
+            if (id == 1) {
+                // Другой экземпляр не видит арендованных строк и строк тех же пользователей за ними
+                claimedByOther.add(other.processBatch(new RecordingHandler(x -> true)));
+            }
+            return true;
+        });
+
+        assertThat(engine.processBatch(handler)).isEqualTo(10);
+        assertThat(claimedByOther).containsExactly(0);
+        assertThat(count("NOTIFIED")).isEqualTo(10);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM test_outbox WHERE next_attempt_at > now()", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void expiredLease_shouldLetAnotherInstanceClaim_andLateAckMustNotOverwrite() {
+        insertPending(1, 1);
+        OutboxRepository repository = new OutboxRepository(jdbc);
+        RecordingHandler handler = new RecordingHandler(id -> true);
+        TransactionTemplate tx = new TransactionTemplate(new JdbcTransactionManager(dataSource));
+
+        // Экземпляр A захватил строку и остановился, не записав результат
+        List<OutboxRecord<Long>> stale = tx.execute(status -> {
+            List<OutboxRecord<Long>> rows = repository.claim(handler, 10);
+            repository.lease(TABLE, rows, 60_000);
+            return rows;
+        });
+        assertThat(engine(10, 3).processBatch(handler)).isZero();
+
+        makeDue();
+        assertThat(engine(10, 3).processBatch(handler)).isEqualTo(1);
+        assertThat(count("NOTIFIED")).isEqualTo(1);
+
+        // Запоздалый результат A не возвращает строку в очередь
+        repository.acknowledge(TABLE, stale.stream()
+                .map(r -> new OutboxRepository.OutboxAck(r.key(), "UPDATED", 1, "late", 0)).toList());
+        assertThat(count("NOTIFIED")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentEngines_shouldKeepPerUserOrder() {
+        insertPending(1, 1000);
+        Map<String, List<Long>> sentByUser = new ConcurrentHashMap<>();
+        RecordingHandler handler = new RecordingHandler(id -> {
+            sentByUser.computeIfAbsent("user-" + id % 10, u -> new CopyOnWriteArrayList<>()).add(id);
+            return true;
+        });
+
+        // Мелкие пакеты: экземпляры постоянно чередуются на одних и тех же пользователях
+        OutboxEngine first = engine(25, 3);
+        OutboxEngine second = engine(25, 3);
+        while (count("UPDATED") > 0) {
+            CompletableFuture<Integer> a = CompletableFuture.supplyAsync(() -> first.drain(handler));
+            CompletableFuture<Integer> b = CompletableFuture.supplyAsync(() -> second.drain(handler));
+            CompletableFuture.allOf(a, b).join();
+        }
+
+        assertThat(count("NOTIFIED")).isEqualTo(1000);
+        assertThat(sentByUser).hasSize(10);
+        sentByUser.values().forEach(ids -> assertThat(ids).hasSize(100).isSortedAccordingTo(Comparator.naturalOrder()));
+    }
+
+    @Test
+    void batchHandler_shouldSendClaimedBatchInUserChunksAndRetryOnlyRejected() {
+        insertPending(1, 250);
+        List<Integer> calls = new CopyOnWriteArrayList<>();
+        BatchOutboxHandler<Long> handler = new BatchOutboxHandler<>() {
+            @Override
+            public OutboxTable table() {
+                return TABLE;
+            }
+
+            @Override
+            public Long map(ResultSet rs) throws SQLException {
+                return rs.getLong("operation_id");
+            }
+
+            @Override
+            public List<Boolean> sendAll(List<Long> messages) {
+                calls.add(messages.size());
+                // Нечётные не принимаются получателем
+                return messages.stream().map(id -> id % 2 == 0).toList();
+            }
+        };
+
+        engine(100, 3).drain(handler);
+
+        // Пакет 100 (по 10 записей у каждого из 10 пользователей) — два куска по 50.
+        // У «нечётных» пользователей первая запись ждёт повтора — их более поздние записи не захватываются:
+        // второй пакет — 5 пользователей по 15 записей, куски 45 и 30
+        assertThat(calls).containsExactlyInAnyOrder(50, 50, 45, 30);
+        assertThat(count("NOTIFIED")).isEqualTo(125);
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM test_outbox WHERE status = 'UPDATED' AND attempts = 1 AND operation_id % 2 = 1",
+                Integer.class)).isEqualTo(50);
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM test_outbox WHERE status = 'UPDATED' AND attempts = 0 AND operation_id % 2 = 1",
+                Integer.class)).isEqualTo(75);
+    }
+
+    @Test
+    void batchHandler_shouldSendChunksConcurrently_keepingEachUserInOneOrderedChunk() {
+        insertPending(1, 200);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<List<Long>> calls = new CopyOnWriteArrayList<>();
+        BatchOutboxHandler<Long> handler = new BatchOutboxHandler<>() {
+            @Override
+            public OutboxTable table() {
+                return TABLE;
+            }
+
+            @Override
+            public Long map(ResultSet rs) throws SQLException {
+                return rs.getLong("operation_id");
+            }
+
+            @Override
+            public List<Boolean> sendAll(List<Long> messages) {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                calls.add(messages);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return messages.stream().map(id -> true).toList();
+            }
+        };
+
+        engine(200, 3, 4, new SimpleMeterRegistry()).drain(handler);
+
+        assertThat(count("NOTIFIED")).isEqualTo(200);
+        // 10 пользователей по 20 записей, куски по 50 — 2 пользователя в куске, 5 запросов, не больше 4 сразу
+        assertThat(calls).hasSize(5);
+        assertThat(peak.get()).isBetween(2, 4);
+        for (List<Long> call : calls) {
+            Map<Long, List<Long>> byUser = new HashMap<>();
+            call.forEach(id -> byUser.computeIfAbsent(id % 10, u -> new ArrayList<>()).add(id));
+            assertThat(byUser).hasSize(2);
+            byUser.values().forEach(ids -> assertThat(ids).hasSize(20).isSortedAccordingTo(Comparator.naturalOrder()));
+        }
+    }
+
+    @Test
+    void parallelSend_shouldKeepPerUserOrderAndDeferAfterFailure() {
+        insertPending(1, 300);
+        Map<Long, List<Long>> sentByUser = new ConcurrentHashMap<>();
+        Set<Long> failing = ConcurrentHashMap.newKeySet();
+        failing.add(5L);
+        RecordingHandler handler = new RecordingHandler(id -> {
+            if (failing.contains(id)) {
+                return false;
+            }
+            sentByUser.computeIfAbsent(id % 10, u -> new CopyOnWriteArrayList<>()).add(id);
+            return true;
+        });
+        OutboxEngine engine = engine(100, 3);
+
+        engine.drain(handler);
+
+        // user-5: первая запись не ушла — остальные в пакете отложены без списания попытки,
+        // а следующие пакеты её записи не захватывают
+        assertThat(sentByUser).doesNotContainKey(5L);
+        assertThat(jdbc.queryForMap("SELECT attempts, error FROM test_outbox WHERE operation_id = 5"))
+                .containsEntry("attempts", 1);
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM test_outbox WHERE operation_id BETWEEN 15 AND 95 AND operation_id % 10 = 5"
+                        + " AND attempts = 0 AND error = ?", Integer.class, OutboxEngine.DEFERRED_ERROR)).isEqualTo(9);
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM test_outbox WHERE operation_id > 100 AND operation_id % 10 = 5 AND error IS NULL",
+                Integer.class)).isEqualTo(20);
+        assertThat(count("NOTIFIED")).isEqualTo(270);
+
+        failing.clear();
+        makeDue();
+        engine.drain(handler);
+
+        assertThat(count("NOTIFIED")).isEqualTo(300);
+        assertThat(sentByUser).hasSize(10);
+        sentByUser.values().forEach(ids -> assertThat(ids).isSortedAccordingTo(Comparator.naturalOrder()));
+    }
+
+    @Test
+    void parallelSend_shouldNotExceedConcurrency() {
+        insertPending(1, 200);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        RecordingHandler handler = new RecordingHandler(id -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return true;
+        });
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        engine(200, 3, 4, meterRegistry).drain(handler);
+
+        assertThat(count("NOTIFIED")).isEqualTo(200);
+        assertThat(peak.get()).isBetween(2, 4);
+        assertThat(meterRegistry.get("outbox.dispatch.in-flight").gauge().value()).isZero();
+        assertThat(meterRegistry.get("outbox.dispatch.queue").gauge().value()).isZero();
+    }
+
+    @Test
+    void metrics_shouldReportBacklogDeliveryTimeAndTerminalStatuses() {
+        insertPending(1, 100);
+        // Свой пользователь на строку: неудачи не откладывают соседние записи
+        jdbc.update("""
+                UPDATE test_outbox SET username = 'user-' || operation_id,
+                    next_attempt_at = now() - interval '30 seconds', created_at = now() - interval '30 seconds'
+                """);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OutboxProperties properties = new OutboxProperties();
+        properties.getMetrics().setBacklogRefreshMs(0);
+        new OutboxBacklogMetrics(new OutboxRepository(jdbc), List.of(new RecordingHandler(id -> true)), properties)
+                .bindTo(meterRegistry);
+
+        assertThat(meterRegistry.get("outbox.pending").tag("table", "test_outbox").gauge().value()).isEqualTo(100);
+        assertThat(meterRegistry.get("outbox.pending.oldest.age").gauge().value()).isBetween(30.0, 60.0);
+        assertThat(meterRegistry.get("outbox.pending.next.attempt").gauge().value()).isBetween(-60.0, -30.0);
+
+        // Вся очередь в задержке перед повтором — возраст не сбрасывается, ближайшая попытка в будущем
+        jdbc.update("UPDATE test_outbox SET next_attempt_at = now() + interval '20 seconds'");
+        assertThat(meterRegistry.get("outbox.pending.oldest.age").gauge().value()).isBetween(30.0, 60.0);
+        assertThat(meterRegistry.get("outbox.pending.next.attempt").gauge().value()).isBetween(0.0, 20.0);
+        jdbc.update("UPDATE test_outbox SET next_attempt_at = now() - interval '30 seconds'");
+
+        // Чётные доставлены, нечётные исчерпали попытки
+        engine(100, 0, 32, meterRegistry).drain(new RecordingHandler(id -> id % 2 == 0));
+
+        assertThat(meterRegistry.get("outbox.pending").gauge().value()).isZero();
+        assertThat(meterRegistry.get("outbox.pending.oldest.age").gauge().value()).isZero();
+        assertThat(meterRegistry.get("outbox.pending.next.attempt").gauge().value()).isZero();
+        assertThat(meterRegistry.get("outbox.terminal").tag("status", "NOTIFIED").counter().count()).isEqualTo(50);
+        assertThat(meterRegistry.get("outbox.terminal").tag("status", "UNNOTIFIED").counter().count()).isEqualTo(50);
+        var delivery = meterRegistry.get("outbox.transition").tag("from", "UPDATED").tag("to", "NOTIFIED").timer();
+        assertThat(delivery.count()).isEqualTo(50);
+        assertThat(delivery.max(TimeUnit.SECONDS)).isGreaterThanOrEqualTo(30);
+    }
+
+    private OutboxEngine engine(int batchSize, int maxAttempts) {
+        return engine(batchSize, maxAttempts, 32, new SimpleMeterRegistry());
+    }
+
+    private OutboxEngine engine(int batchSize, int maxAttempts, int concurrency, MeterRegistry meterRegistry) {
+        OutboxProperties properties = new OutboxProperties();
+        properties.getOrder().setLimit(batchSize);
+        properties.setMaxAttempts(maxAttempts);
+        properties.setConcurrency(concurrency);
+        properties.setMaxBatchesPerRun(100);
+        return new OutboxEngine(new OutboxRepository(jdbc),
+                new TransactionTemplate(new JdbcTransactionManager(dataSource)), properties,
+                new OutboxMetrics(meterRegistry));
+    }
+
+    private void insertPending(long from, int count) {
+        jdbc.update("""
+                INSERT INTO test_outbox(operation_id, username, status)
+                SELECT g, 'user-' || (g % 10), 'UPDATED' FROM generate_series(?::bigint, ?::bigint) g
+                """, from, from + count - 1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void makeDue() {
+        jdbc.update("UPDATE test_outbox SET next_attempt_at = now()");
+    }
+
+    private int count(String status) {
+        return jdbc.queryForObject("SELECT count(*) FROM test_outbox WHERE status = ?", Integer.class, status);
+    }
+
+    private static class RecordingHandler implements OutboxHandler<Long> {
+
+        final Set<Long> sent = ConcurrentHashMap.newKeySet();
+        final Predicate<Long> outcome;
+
+        RecordingHandler(Predicate<Long> outcome) {
+            this.outcome = outcome;
+        }
+
+        @Override
+        public OutboxTable table() {
+            return TABLE;
+        }
+
+        @Override
+        public Long map(ResultSet rs) throws SQLException {
+            return rs.getLong("operation_id");
+        }
+
+        @Override
+        public boolean send(Long message) {
+            boolean ok = outcome.test(message);
+            if (ok) {
+                sent.add(message);
+            }
+            return ok;
+        }
+
+        @Override
+        public String destination() {
+            return "test-destination";
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.mybank.outbox;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Режим notify: триггер шлёт NOTIFY при переходе в UPDATED, {@link OutboxListener} сразу запускает отправку.
+ * Планировщика в тесте нет — всё, что отправлено, отправлено по NOTIFY.
+ */
+@Testcontainers
+class OutboxNotifyIT {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxNotifyIT.class);
+
+    private static final int ROUNDS = 50;
+
+    @Container
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("outbox_test")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    static HikariDataSource dataSource;
+    static JdbcTemplate jdbc;
+
+    static final OutboxTable TABLE = OutboxTable.builder()
+            .name("notify_outbox")
+            .keyColumns(List.of(OutboxTable.KeyColumn.bigint("operation_id")))
+            .channel("notify_outbox")
+            .build();
+
+    final AtomicInteger claims = new AtomicInteger();
+    volatile boolean deliver = true;
+    OutboxListener listener;
+
+    @BeforeAll
+    static void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl());
+        dataSource.setUsername(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        dataSource.setMaximumPoolSize(8);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE notify_outbox (
+                    operation_id BIGINT PRIMARY KEY,
+                    username     VARCHAR(128) NOT NULL,
+                    status       VARCHAR(32)  NOT NULL,
+                    attempts     INT          NOT NULL DEFAULT 0,
+                    error        TEXT,
+                    created_at   TIMESTAMP    NOT NULL DEFAULT now(),
+                    updated_at   TIMESTAMP    NOT NULL DEFAULT now(),
+                    next_attempt_at TIMESTAMP NOT NULL DEFAULT now()
+                )
+                """);
+        // То же, что в changelog сервисов
+        jdbc.execute("""
+                CREATE OR REPLACE FUNCTION outbox_notify() RETURNS trigger AS $$
+                BEGIN
+                    IF NEW.status = 'UPDATED' AND (TG_OP = 'INSERT' OR OLD.status IS DISTINCT FROM NEW.status) THEN
+                        PERFORM pg_notify(TG_ARGV[0], '');
+                    END IF;
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql
+                """);
+        jdbc.execute("""
+                CREATE TRIGGER notify_outbox_notify
+                    AFTER INSERT OR UPDATE OF status ON notify_outbox
+                    FOR EACH ROW EXECUTE FUNCTION outbox_notify('notify_outbox')
+                """);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        dataSource.close();
+    }
+
+    @BeforeEach
+    void startListener() throws InterruptedException {
+        jdbc.update("TRUNCATE notify_outbox");
+
+        OutboxProperties properties = new OutboxProperties();
+        properties.setMaxAttempts(3);
+        properties.getListener().setPollTimeoutMs(200);
+        properties.getRetry().setInitialDelayMs(300);
+        properties.getRetry().setJitter(0);
+        OutboxRepository repository = new OutboxRepository(jdbc) {
+            @Override
+            public <T> List<OutboxRecord<T>> claim(OutboxHandler<T> handler, int limit) {
+                claims.incrementAndGet();
+                return super.claim(handler, limit);
+            }
+        };
+        OutboxEngine engine = new OutboxEngine(repository,
+                new TransactionTemplate(new JdbcTransactionManager(dataSource)), properties,
+                new OutboxMetrics(new SimpleMeterRegistry()));
+
+        listener = new OutboxListener(dataSource, engine, List.of(new Handler()), properties);
+        listener.start();
+        // Дожидаемся стартового прохода после LISTEN
+        awaitCondition(() -> claims.get() > 0, 5000);
+    }
+
+    @AfterEach
+    void stopListener() {
+        listener.stop();
+    }
+
+    @Test
+    void insertedRow_shouldBeSentWithoutPolling() throws InterruptedException {
+        long[] latencies = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long id = i + 1;
+            long startedAt = System.nanoTime();
+            jdbc.update("INSERT INTO notify_outbox(operation_id, username, status) VALUES (?, 'alice', 'UPDATED')", id);
+            awaitCondition(() -> "NOTIFIED".equals(status(id)), 5000);
+            latencies[i] = System.nanoTime() - startedAt;
+        }
+
+        Arrays.sort(latencies);
+        double p50 = latencies[ROUNDS / 2] / 1e6;
+        log.info("📊 NOTIFY → NOTIFIED: p50={} ms, max={} ms",
+                String.format("%.2f", p50), String.format("%.2f", latencies[ROUNDS - 1] / 1e6));
+        assertThat(p50).isLessThan(500);
+    }
+
+    @Test
+    void idleTable_shouldNotBeQueried() throws InterruptedException {
+        int before = claims.get();
+        Thread.sleep(1000);
+        assertThat(claims.get()).isEqualTo(before);
+    }
+
+    @Test
+    void retry_shouldWakeListenerAfterBackoff() throws InterruptedException {
+        deliver = false;
+        jdbc.update("INSERT INTO notify_outbox(operation_id, username, status) VALUES (1, 'alice', 'UPDATED')");
+        awaitCondition(() -> attempts(1) == 1, 5000);
+
+        // Повтор остаётся в UPDATED — триггер молчит, без задержки второй попытки нет
+        Thread.sleep(100);
+        assertThat(attempts(1)).isEqualTo(1);
+
+        // Слушатель сам просыпается к next_attempt_at
+        awaitCondition(() -> attempts(1) == 2, 5000);
+        deliver = true;
+        awaitCondition(() -> "NOTIFIED".equals(status(1)), 5000);
+    }
+
+    private static String status(long id) {
+        return jdbc.queryForObject("SELECT status FROM notify_outbox WHERE operation_id = ?", String.class, id);
+    }
+
+    private static int attempts(long id) {
+        return jdbc.queryForObject("SELECT attempts FROM notify_outbox WHERE operation_id = ?", Integer.class, id);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition, long timeoutMs)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in %d ms", timeoutMs).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private class Handler implements OutboxHandler<Long> {
+
+        @Override
+        public OutboxTable table() {
+            return TABLE;
+        }
+
+        @Override
+        public Long map(ResultSet rs) throws SQLException {
+            return rs.getLong("operation_id");
+        }
+
+        @Override
+        public boolean send(Long message) {
+            return deliver;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.mybank.transfer.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -25,6 +26,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("/transfer/transfer","/transfer/operation-key").hasAuthority("ROLE_transfer.write")
+                        .requestMatchers(HttpMethod.POST, "/transfer/batches").hasAuthority("ROLE_transfer.write")
                         .requestMatchers("/transfer/operation").hasAuthority("ROLE_transfer.read")
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,58 @@
+package com.mybank.transfer.controller;
+
+import com.mybank.transfer.dto.TransferBatchResponse;
+import com.mybank.transfer.service.BulkTransferService;
+import com.mybank.transfer.service.BulkTransferService.Format;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+@RestController
+@RequestMapping("/transfer/batches")
+@RequiredArgsConstructor
+public class BulkTransferController {
+
+    static final String TEXT_CSV = "text/csv";
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final BulkTransferService bulkTransferService;
+
+    /**
+     * Загрузка пакета переводов: тело — CSV ({@code recipient,amount}, заголовок необязателен) или NDJSON,
+     * читается потоком. Отвечает 202 после сохранения строк; выполнение — в фоне,
+     * прогресс — {@code GET /transfer/batches/{batchId}}.
+     */
+    @PostMapping(consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    public ResponseEntity<TransferBatchResponse> upload(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? Format.CSV
+                : Format.NDJSON;
+        TransferBatchResponse batch = bulkTransferService.ingest(extractUsername(jwt), format, body);
+        return ResponseEntity.accepted()
+                .location(URI.create("/transfer/batches/" + batch.batchId()))
+                .body(batch);
+    }
+
+    @GetMapping("/{batchId}")
+    public ResponseEntity<TransferBatchResponse> getBatch(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable("batchId") long batchId) {
+        return ResponseEntity.ok(bulkTransferService.getBatch(batchId, extractUsername(jwt)));
+    }
+
+    private String extractUsername(Jwt jwt) {
+        String username = jwt.getClaimAsString("preferred_username");
+        return (username != null && !username.isEmpty()) ? username : jwt.getSubject();
+    }
+}
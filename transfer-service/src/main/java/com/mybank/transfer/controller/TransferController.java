@@ -3,6 +3,7 @@ package com.mybank.transfer.controller;
 import com.mybank.transfer.dto.OperationKeyResponse;
 import com.mybank.transfer.dto.TransferOperationRequest;
 import com.mybank.transfer.model.TransferOperation;
+import com.mybank.transfer.service.AsyncOperationExecutor;
 import com.mybank.transfer.service.TransferService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +11,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.net.URI;
 
 @RestController
 @RequestMapping("/transfer")
@@ -17,23 +21,40 @@ import org.springframework.web.bind.annotation.*;
 public class TransferController {
 
     private final TransferService transferService;
+    private final AsyncOperationExecutor asyncOperationExecutor;
 
     @GetMapping("/operation-key")
     public ResponseEntity<OperationKeyResponse> getOperationKey(@AuthenticationPrincipal Jwt jwt) {
         return ResponseEntity.ok(transferService.generateOperationKey(extractUsername(jwt)));
     }
 
+    /**
+     * По умолчанию выполняет перевод синхронно (204). С {@code async=true} только принимает его (202),
+     * результат — через {@code GET /transfer/operation/{id}?waitMs=...}.
+     */
     @PostMapping("/transfer")
     public ResponseEntity<Void> operate(
             @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(name = "async", defaultValue = "false") boolean async,
             @Valid @RequestBody TransferOperationRequest request) {
+        if (async) {
+            asyncOperationExecutor.accept(extractUsername(jwt), request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/transfer/operation/" + request.operationId()))
+                    .build();
+        }
         transferService.transfer(extractUsername(jwt), request);
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Состояние перевода; с {@code waitMs > 0} ждёт завершения выполняющегося перевода (long-poll).
+     */
     @GetMapping("/operation/{operationId}")
-    public ResponseEntity<TransferOperation> getOperation(@PathVariable Long operationId) {
-        return ResponseEntity.ok(transferService.getOperation(operationId));
+    public DeferredResult<ResponseEntity<TransferOperation>> getOperation(
+            @PathVariable("operationId") Long operationId,
+            @RequestParam(name = "waitMs", defaultValue = "0") long waitMs) {
+        return asyncOperationExecutor.await(operationId, waitMs);
     }
 
     private String extractUsername(Jwt jwt) {
@@ -0,0 +1,22 @@
+package com.mybank.transfer.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка пакетной загрузки: {@code recipient,amount} в CSV или {@code {"recipient":..,"amount":..}} в NDJSON.
+ */
+public record BulkTransferLine(
+        @NotBlank(message = "Получатель обязателен")
+        @Size(max = 255, message = "Слишком длинное имя получателя")
+        String recipient,
+        @NotNull(message = "Сумма обязательна")
+        @DecimalMin(value = "0.01", message = "Сумма должна быть больше 0")
+        @Digits(integer = 17, fraction = 2, message = "Сумма — не больше 2 знаков после запятой")
+        BigDecimal amount
+) {}
@@ -0,0 +1,14 @@
+package com.mybank.transfer.dto;
+
+/**
+ * Результат приёма одного уведомления из пакета: ACCEPTED или DUPLICATE.
+ */
+public record NotificationBatchResult(Long operationId, String status) {
+
+    /**
+     * Для отправителя дубликат — тоже успех: уведомление у получателя уже есть.
+     */
+    public boolean isDelivered() {
+        return "ACCEPTED".equals(status) || "DUPLICATE".equals(status);
+    }
+}
@@ -0,0 +1,27 @@
+package com.mybank.transfer.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Состояние пакета переводов.
+ *
+ * @param status       INGESTING, ABORTED, RUNNING (есть невыполненные переводы) или COMPLETED
+ * @param totalRows    непустых строк в загрузке
+ * @param acceptedRows строк, ставших переводами
+ * @param rejectedRows строк, не прошедших проверку
+ * @param operations   число переводов пакета по статусам
+ * @param errors       первые ошибки разбора ({@code "строка N: ..."})
+ */
+public record TransferBatchResponse(
+        Long batchId,
+        String status,
+        int totalRows,
+        long acceptedRows,
+        int rejectedRows,
+        Map<String, Long> operations,
+        List<String> errors,
+        LocalDateTime createdAt,
+        LocalDateTime ingestedAt
+) {}
@@ -52,6 +52,10 @@ public class TransferOperation {
     @Column(name = "notification_attempts_at", nullable = false)
     private LocalDateTime notificationAttemptsAt;
 
+    // Пакет POST /transfer/batches; null для одиночных переводов
+    @Column(name = "batch_id")
+    private Long batchId;
+
     @PrePersist
     public void prePersist() {
         LocalDateTime now = LocalDateTime.now();
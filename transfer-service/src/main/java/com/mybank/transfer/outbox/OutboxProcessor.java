@@ -1,71 +1,19 @@
 package com.mybank.transfer.outbox;
 
-import com.mybank.transfer.client.NotificationsClient;
-import com.mybank.transfer.dto.NotificationRequest;
-import com.mybank.transfer.dto.OperationStatus;
-import com.mybank.transfer.model.TransferOperation;
-import com.mybank.transfer.repository.TransferOperationRepository;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Pageable;
+import com.mybank.outbox.OutboxEngine;
+import lombok.RequiredArgsConstructor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-
 @Service
-@Slf4j
+@RequiredArgsConstructor
 public class OutboxProcessor {
 
-    private final TransferOperationRepository transferOperationRepository;
-    private final NotificationsClient notificationsClient;
-    @Value("${application.outbox.order.limit:10}")
-    private int limit;
-
-    @Value("${application.outbox.max-attempts:5}")
-    private int maxAttempts;
-
-    public OutboxProcessor(TransferOperationRepository transferOperationRepository, NotificationsClient notificationsClient) {
-        this.transferOperationRepository = transferOperationRepository;
-        this.notificationsClient = notificationsClient;
-    }
+    private final OutboxEngine outboxEngine;
+    private final TransferOutboxHandler handler;
 
     @Scheduled(fixedDelayString = "${application.outbox.fixed-delay-ms:5000}")
     public void process() {
-        var page = transferOperationRepository.findByStatus(
-                OperationStatus.UPDATED,
-                Pageable.ofSize(limit)
-        );
-        page.forEach(this::sendNotification);
-    }
-
-    public void sendNotification(TransferOperation op) {
-        Map<String, Object> payload = Map.of("operation", "TRANSFER",
-                "recipient", op.getRecipient(),
-                "amount", op.getAmount());
-        boolean sent = notificationsClient.send(new NotificationRequest(
-                op.getOperationId(),
-                op.getUsername(),
-                payload
-        ));
-
-        if (sent) {
-            op.setStatus(OperationStatus.NOTIFIED);
-            log.info("🚀✅ NOTIFIED opId={} user={} payload={}", op.getOperationId(), op.getUsername(), payload);
-        } else {
-            if (op.getNotificationAttempts() < maxAttempts) {
-                log.warn("🚀⚠️ RETRY opId={} user={} attempt={} payload={}", op.getOperationId(), op.getUsername(), op.getNotificationAttempts(), payload);
-                op.setNotificationAttempts(op.getNotificationAttempts() + 1);
-                op.setNotificationError("notifications-service unavailable; will retry later");
-
-            } else {
-                log.error("🚀💥 NOTIFICATION FAILED opId={} user={} attempts={} payload={}", op.getOperationId(), op.getUsername(), op.getNotificationAttempts(), payload);
-                op.setStatus(OperationStatus.UNNOTIFIED);
-                op.setNotificationError("notifications-service unavailable");
-            }
-        }
-        op.touch();
-        transferOperationRepository.save(op);
-
+        outboxEngine.drain(handler);
     }
 }
@@ -0,0 +1,54 @@
+package com.mybank.transfer.outbox;
+
+import com.mybank.outbox.BatchOutboxHandler;
+import com.mybank.outbox.OutboxTable;
+import com.mybank.transfer.client.NotificationsClient;
+import com.mybank.transfer.dto.NotificationRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbox переводов: transfer.transfer_operations → notifications-service.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransferOutboxHandler implements BatchOutboxHandler<NotificationRequest> {
+
+    public static final OutboxTable TABLE = OutboxTable.builder()
+            .name("transfer.transfer_operations")
+            .keyColumns(List.of(OutboxTable.KeyColumn.bigint("operation_id")))
+            .attemptsColumn("notification_attempts")
+            .errorColumn("notification_error")
+            .touchedColumn("notification_attempts_at")
+            .readyColumn("completed_at")
+            .channel("transfer_outbox")
+            .build();
+
+    private final NotificationsClient notificationsClient;
+
+    @Override
+    public OutboxTable table() {
+        return TABLE;
+    }
+
+    @Override
+    public NotificationRequest map(ResultSet rs) throws SQLException {
+        Map<String, Object> payload = Map.of("operation", "TRANSFER",
+                "recipient", rs.getString("recipient"),
+                "amount", rs.getBigDecimal("amount"));
+        return new NotificationRequest(rs.getLong("operation_id"), rs.getString("username"), payload);
+    }
+
+    /**
+     * Кусок захваченного пакета (до batch-chunk-size записей) уходит одним POST /notifications/batch.
+     */
+    @Override
+    public List<Boolean> sendAll(List<NotificationRequest> messages) {
+        return notificationsClient.sendBatch(messages);
+    }
+}
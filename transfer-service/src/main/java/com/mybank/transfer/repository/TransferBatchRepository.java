@@ -0,0 +1,181 @@
+package com.mybank.transfer.repository;
+
+import com.mybank.transfer.dto.TransferOperationRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC-доступ к пакетам переводов: строки пакета пишутся JDBC batch, без сущностей в контексте Hibernate.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransferBatchRepository {
+
+    public static final String INGESTING = "INGESTING";
+    public static final String ACCEPTED = "ACCEPTED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String ABORTED = "ABORTED";
+
+    private final JdbcTemplate jdbc;
+
+    public long create(String username) {
+        return jdbc.queryForObject("""
+                INSERT INTO transfer.transfer_batches(username, status) VALUES (?, ?) RETURNING batch_id
+                """, Long.class, username, INGESTING);
+    }
+
+    /**
+     * Сохраняет порцию переводов пакета сразу в RECEIVED одним JDBC batch.
+     */
+    @Transactional
+    public void insertOperations(long batchId, String username, List<TransferOperationRequest> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate("""
+                INSERT INTO transfer.transfer_operations(operation_id, username, recipient, amount, status, batch_id,
+                                                         created_at, notification_attempts, notification_attempts_at)
+                VALUES (?, ?, ?, ?, 'RECEIVED', ?, now(), 0, now())
+                """,
+                operations, operations.size(), (ps, op) -> {
+                    ps.setLong(1, op.operationId());
+                    ps.setString(2, username);
+                    ps.setString(3, op.recipient());
+                    ps.setBigDecimal(4, op.amount());
+                    ps.setLong(5, batchId);
+                });
+    }
+
+    /**
+     * Загрузка дочитана: с этого момента переводы пакета можно выполнять.
+     *
+     * @return false — пакет уже не в INGESTING (его отменил {@link com.mybank.transfer.service.AbandonedBatchReaper})
+     */
+    public boolean markAccepted(long batchId, int totalRows, int rejectedRows, String errors) {
+        return jdbc.update("""
+                UPDATE transfer.transfer_batches
+                   SET status = ?, total_rows = ?, rejected_rows = ?, errors = ?, ingested_at = now()
+                 WHERE batch_id = ? AND status = ?
+                """, ACCEPTED, totalRows, rejectedRows, errors, batchId, INGESTING) == 1;
+    }
+
+    /**
+     * Загрузка оборвалась: уже сохранённые переводы пакета удаляются, не начав выполняться.
+     * Принятый пакет не отменяется; повторная отмена дочищает строки, вставленные после первой,
+     * и сохраняет её причину.
+     *
+     * @return false — пакет уже принят
+     */
+    @Transactional
+    public boolean abort(long batchId, String error) {
+        int updated = jdbc.update("""
+                UPDATE transfer.transfer_batches
+                   SET status = ?, errors = COALESCE(errors, ?)
+                 WHERE batch_id = ? AND status IN (?, ?)
+                """, ABORTED, error, batchId, INGESTING, ABORTED);
+        if (updated == 0) {
+            return false;
+        }
+        jdbc.update("DELETE FROM transfer.transfer_operations WHERE batch_id = ? AND status = 'RECEIVED'", batchId);
+        return true;
+    }
+
+    /**
+     * Пакеты, загрузка которых началась раньше {@code cutoff} и так и не закончилась (экземпляр остановился
+     * посреди загрузки), самые старые первыми.
+     */
+    public List<Long> findAbandoned(LocalDateTime cutoff, int limit) {
+        return jdbc.queryForList("""
+                SELECT batch_id
+                  FROM transfer.transfer_batches
+                 WHERE status = ? AND created_at < ?
+                 ORDER BY created_at
+                 LIMIT ?
+                """, Long.class, INGESTING, cutoff, limit);
+    }
+
+    /**
+     * Следующая порция невыполненных переводов пакета (keyset по operation_id).
+     */
+    public List<Long> findReceived(long batchId, long afterOperationId, int limit) {
+        return jdbc.queryForList("""
+                SELECT operation_id
+                  FROM transfer.transfer_operations
+                 WHERE batch_id = ? AND operation_id > ? AND status = 'RECEIVED'
+                 ORDER BY operation_id
+                 LIMIT ?
+                """, Long.class, batchId, afterOperationId, limit);
+    }
+
+    /**
+     * Пакет выполнен: ACCEPTED → COMPLETED, если в нём не осталось переводов в RECEIVED или IN_PROGRESS.
+     *
+     * @return false — пакет не в ACCEPTED или ещё не выполнен
+     */
+    public boolean markCompleted(long batchId) {
+        return jdbc.update("""
+                UPDATE transfer.transfer_batches
+                   SET status = ?
+                 WHERE batch_id = ? AND status = ?
+                   AND NOT EXISTS (SELECT 1 FROM transfer.transfer_operations o
+                                    WHERE o.batch_id = ? AND o.status IN ('RECEIVED', 'IN_PROGRESS'))
+                """, COMPLETED, batchId, ACCEPTED, batchId) == 1;
+    }
+
+    /**
+     * Принятые, но не завершённые пакеты, загрузка которых закончилась раньше {@code cutoff}.
+     * Выполненные пакеты переведены в COMPLETED, поэтому сюда попадают только прерванные.
+     */
+    public List<Long> findStalled(LocalDateTime cutoff) {
+        return jdbc.queryForList("""
+                SELECT batch_id
+                  FROM transfer.transfer_batches
+                 WHERE status = ? AND ingested_at < ?
+                """, Long.class, ACCEPTED, cutoff);
+    }
+
+    public Optional<BatchRow> find(long batchId, String username) {
+        return jdbc.query("""
+                SELECT batch_id, status, total_rows, rejected_rows, errors, created_at, ingested_at
+                  FROM transfer.transfer_batches
+                 WHERE batch_id = ? AND username = ?
+                """, (rs, i) -> new BatchRow(
+                        rs.getLong("batch_id"),
+                        rs.getString("status"),
+                        rs.getInt("total_rows"),
+                        rs.getInt("rejected_rows"),
+                        rs.getString("errors"),
+                        rs.getObject("created_at", LocalDateTime.class),
+                        rs.getObject("ingested_at", LocalDateTime.class)),
+                batchId, username).stream().findFirst();
+    }
+
+    /**
+     * Число переводов пакета по статусам.
+     */
+    public Map<String, Long> countByStatus(long batchId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbc.query("""
+                SELECT status, count(*) AS cnt
+                  FROM transfer.transfer_operations
+                 WHERE batch_id = ?
+                 GROUP BY status
+                 ORDER BY status
+                """, rs -> {
+                    counts.put(rs.getString("status"), rs.getLong("cnt"));
+                }, batchId);
+        return counts;
+    }
+
+    public record BatchRow(long batchId, String status, int totalRows, int rejectedRows, String errors,
+                           LocalDateTime createdAt, LocalDateTime ingestedAt) {
+    }
+}
@@ -1,13 +1,16 @@
 package com.mybank.transfer.repository;
 
-import com.mybank.transfer.dto.OperationStatus;
 import com.mybank.transfer.model.TransferOperation;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,9 +18,189 @@ public interface TransferOperationRepository extends JpaRepository<TransferOpera
 
     Optional<TransferOperation> findById(Long operationId);
 
-    // Получить следующее значение sequence
-    @Query(value = "SELECT nextval('transfer_operation_sequence')", nativeQuery = true)
-    Long getNextOperationId();
+    /**
+     * Перевод с ключом, сгенерированным клиентом: вставка сразу в IN_PROGRESS (без RESERVED), до вызова
+     * accounts-service. Коммитится сразу: строка есть ещё до изменения балансов, параллельный повтор
+     * с тем же ключом её увидит.
+     *
+     * @return 0, если операция с таким ключом уже есть (повтор запроса)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO transfer.transfer_operations(operation_id, username, recipient, amount, status,
+                                            created_at, notification_attempts, notification_attempts_at)
+            VALUES (:operationId, :username, :recipient, :amount, 'IN_PROGRESS', now(), 0, now())
+            ON CONFLICT (operation_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertInProgressIfAbsent(@Param("operationId") Long operationId,
+                                 @Param("username") String username,
+                                 @Param("recipient") String recipient,
+                                 @Param("amount") BigDecimal amount);
 
-    Page <TransferOperation> findByStatus(OperationStatus operationStatus, Pageable pageable);
-}
\ No newline at end of file
+    /**
+     * FAILED → IN_PROGRESS для повтора перевода с клиентским ключом тем же пользователем.
+     * accounts-service идемпотентен по operationId, поэтому повторный вызов не переведёт деньги дважды.
+     *
+     * @return число изменённых строк (0 — ключ чужой или перевод не в FAILED)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE transfer.transfer_operations
+               SET status = 'IN_PROGRESS', completed_at = NULL, error_message = NULL
+             WHERE operation_id = :operationId AND username = :username AND status = 'FAILED'
+            """, nativeQuery = true)
+    int restartFailed(@Param("operationId") Long operationId, @Param("username") String username);
+
+    // ==================== Переходы статусов (compare-and-set) ====================
+
+    /**
+     * RESERVED → IN_PROGRESS одним условным UPDATE, заодно фиксирует получателя и сумму. Коммитится сразу,
+     * до вызова accounts-service: параллельный запрос с тем же ключом не найдёт строку в RESERVED.
+     *
+     * @return created_at захваченной строки; пусто, если ключа нет, он чужой или уже не в RESERVED
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE transfer.transfer_operations
+               SET status = 'IN_PROGRESS', recipient = :recipient, amount = :amount
+             WHERE operation_id = :operationId AND username = :username AND status = 'RESERVED'
+            RETURNING created_at
+            """, nativeQuery = true)
+    Optional<LocalDateTime> startReserved(@Param("operationId") Long operationId,
+                                          @Param("username") String username,
+                                          @Param("recipient") String recipient,
+                                          @Param("amount") BigDecimal amount);
+
+    /**
+     * Асинхронный режим: RESERVED → RECEIVED, перевод принят, но ещё не выполнялся.
+     *
+     * @return created_at принятой строки; пусто, если ключа нет, он чужой или уже не в RESERVED
+     */
+    @Query(value = """
+            UPDATE transfer.transfer_operations
+               SET status = 'RECEIVED', recipient = :recipient, amount = :amount
+             WHERE operation_id = :operationId AND username = :username AND status = 'RESERVED'
+            RETURNING created_at
+            """, nativeQuery = true)
+    Optional<LocalDateTime> acceptReserved(@Param("operationId") Long operationId,
+                                           @Param("username") String username,
+                                           @Param("recipient") String recipient,
+                                           @Param("amount") BigDecimal amount);
+
+    /**
+     * Асинхронный режим, ключ сгенерирован клиентом: вставка сразу в RECEIVED.
+     *
+     * @return 0, если перевод с таким ключом уже есть (повтор запроса)
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO transfer.transfer_operations(operation_id, username, recipient, amount, status,
+                                                     created_at, notification_attempts, notification_attempts_at)
+            VALUES (:operationId, :username, :recipient, :amount, 'RECEIVED', now(), 0, now())
+            ON CONFLICT (operation_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertReceivedIfAbsent(@Param("operationId") Long operationId,
+                               @Param("username") String username,
+                               @Param("recipient") String recipient,
+                               @Param("amount") BigDecimal amount);
+
+    /**
+     * RECEIVED → IN_PROGRESS в собственной транзакции: принятый перевод запускает ровно один исполнитель.
+     *
+     * @return перевод после перехода; пусто, если его уже взял другой исполнитель
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE transfer.transfer_operations
+               SET status = 'IN_PROGRESS'
+             WHERE operation_id = :operationId AND status = 'RECEIVED'
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<TransferOperation> startReceived(@Param("operationId") Long operationId);
+
+    /**
+     * Принятые, но не запущенные переводы (экземпляр, принявший их, мог остановиться).
+     * Пакетные переводы возобновляет {@link com.mybank.transfer.service.BulkTransferExecutor}.
+     */
+    @Query(value = """
+            SELECT operation_id
+              FROM transfer.transfer_operations
+             WHERE status = 'RECEIVED' AND created_at < :cutoff AND batch_id IS NULL
+             ORDER BY created_at
+             LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findStaleReceived(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Захватывает переводы, зависшие в IN_PROGRESS дольше {@code cutoff} (экземпляр остановился между
+     * захватом и записью результата), для повторной отправки в accounts-service. Захват — аренда на
+     * {@code leaseSeconds} в next_attempt_at: другой экземпляр возьмёт тот же перевод только после неё.
+     *
+     * @return захваченные переводы, самые старые первыми
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE transfer.transfer_operations
+               SET next_attempt_at = now() + make_interval(secs => :leaseSeconds)
+             WHERE operation_id IN (SELECT operation_id
+                                      FROM transfer.transfer_operations
+                                     WHERE status = 'IN_PROGRESS' AND created_at < :cutoff AND next_attempt_at <= now()
+                                     ORDER BY created_at
+                                     LIMIT :limit
+                                       FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<TransferOperation> claimStuckInProgress(@Param("cutoff") LocalDateTime cutoff,
+                                                 @Param("leaseSeconds") long leaseSeconds,
+                                                 @Param("limit") int limit);
+
+    /**
+     * IN_PROGRESS → UPDATED. Вызывается и внутри транзакции transfer, и из асинхронного исполнителя.
+     * next_attempt_at сбрасывается: после аренды {@link #claimStuckInProgress} уведомление ушло бы с задержкой.
+     *
+     * @return число изменённых строк (0 — операция не в IN_PROGRESS)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE transfer.transfer_operations
+               SET status = 'UPDATED', completed_at = now(), next_attempt_at = now()
+             WHERE operation_id = :operationId AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int markUpdated(@Param("operationId") Long operationId);
+
+    /**
+     * IN_PROGRESS → FAILED.
+     *
+     * @return число изменённых строк (0 — операция не в IN_PROGRESS)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE transfer.transfer_operations
+               SET status = 'FAILED', completed_at = now(), error_message = :error
+             WHERE operation_id = :operationId AND status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int markFailed(@Param("operationId") Long operationId, @Param("error") String error);
+
+    /**
+     * Удаляет не больше {@code limit} резервов ключей, созданных раньше {@code cutoff}, самые старые первыми.
+     * Строки, которые прямо сейчас захватывает {@link #startReserved}, пропускаются (SKIP LOCKED).
+     *
+     * @return число удалённых строк
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM transfer.transfer_operations
+             WHERE operation_id IN (SELECT operation_id
+                                      FROM transfer.transfer_operations
+                                     WHERE status = 'RESERVED' AND created_at < :cutoff
+                                     ORDER BY created_at
+                                     LIMIT :limit
+                                       FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int deleteExpiredReservations(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
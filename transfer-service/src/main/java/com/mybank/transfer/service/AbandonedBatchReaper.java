@@ -0,0 +1,51 @@
+package com.mybank.transfer.service;
+
+import com.mybank.transfer.repository.TransferBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Отменяет пакеты, застрявшие в INGESTING дольше {@code application.bulk.ingest-ttl}: экземпляр остановился
+ * посреди загрузки, и ни принять, ни отменить пакет уже некому. Сохранённые строки пакета удаляются
+ * ({@link TransferBatchRepository#abort}), ни один перевод не выполняется. Если загрузка на самом деле ещё идёт,
+ * она закончится ошибкой: принять отменённый пакет нельзя.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AbandonedBatchReaper {
+
+    private final TransferBatchRepository batchRepository;
+
+    @Value("${application.bulk.ingest-ttl:PT1H}")
+    private Duration ttl;
+
+    @Value("${application.bulk.abort-batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${application.bulk.abort-delay-ms:60000}",
+            initialDelayString = "${application.bulk.abort-delay-ms:60000}")
+    public void sweep() {
+        abortAbandoned(LocalDateTime.now().minus(ttl));
+    }
+
+    /**
+     * @return сколько пакетов отменено
+     */
+    int abortAbandoned(LocalDateTime cutoff) {
+        int aborted = 0;
+        for (Long batchId : batchRepository.findAbandoned(cutoff, batchSize)) {
+            if (batchRepository.abort(batchId, "Загрузка не завершилась за " + ttl)) {
+                aborted++;
+                log.warn("🧹 Batch {} aborted: ingesting since before {}", batchId, cutoff);
+            }
+        }
+        return aborted;
+    }
+}
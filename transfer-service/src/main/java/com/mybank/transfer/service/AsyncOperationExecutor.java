@@ -0,0 +1,168 @@
+package com.mybank.transfer.service;
+
+import com.mybank.transfer.dto.TransferOperationRequest;
+import com.mybank.transfer.dto.OperationStatus;
+import com.mybank.transfer.model.TransferOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронный режим {@code POST /transfer/transfer?async=true}: запрос только принимает перевод и сразу
+ * отвечает 202, вызов accounts-service выполняется здесь, на виртуальных потоках
+ * (одновременно не больше {@code application.async.concurrency}). Клиент ждёт результат через
+ * {@code GET /transfer/operation/{id}?waitMs=...} — long-poll на {@link DeferredResult}, без занятого потока.
+ * <p>
+ * Принятые операции, которые так и не запустились (например, экземпляр остановился), периодически
+ * отправляются на выполнение повторно; двойной запуск исключён переходом RECEIVED → IN_PROGRESS.
+ * Переводы, зависшие в IN_PROGRESS дольше {@code application.async.recover-after} (экземпляр остановился
+ * во время вызова accounts-service), отправляются в accounts-service повторно с тем же operationId —
+ * это касается и синхронных переводов с клиентским id, и строк пакетной загрузки.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AsyncOperationExecutor {
+
+    private final TransferService transferService;
+    private final OperationWaiters waiters;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("transfer-async-", 0).factory());
+
+    @Value("${application.async.concurrency:64}")
+    private int concurrency;
+
+    @Value("${application.async.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @Value("${application.async.resubmit-after:PT30S}")
+    private Duration resubmitAfter;
+
+    @Value("${application.async.resubmit-batch-size:100}")
+    private int resubmitBatchSize;
+
+    @Value("${application.async.recover-after:PT5M}")
+    private Duration recoverAfter;
+
+    @Value("${application.async.recover-batch-size:100}")
+    private int recoverBatchSize;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(concurrency);
+    }
+
+    /**
+     * Принимает операцию и ставит её в очередь выполнения (повтор уже принятой не запускается второй раз).
+     */
+    public void accept(String username, TransferOperationRequest request) {
+        if (transferService.accept(username, request)) {
+            submit(request.operationId());
+        }
+    }
+
+    /**
+     * Текущее состояние операции; если она ещё выполняется и {@code waitMs > 0} — ответ после её завершения
+     * или по истечении {@code waitMs} (не больше {@code max-wait-ms}).
+     */
+    public DeferredResult<ResponseEntity<TransferOperation>> await(Long operationId, long waitMs) {
+        long timeout = Math.clamp(waitMs, 0, maxWaitMs);
+        Supplier<ResponseEntity<TransferOperation>> current = () -> ResponseEntity.ok(transferService.getOperation(operationId));
+        DeferredResult<ResponseEntity<TransferOperation>> result = new DeferredResult<>(timeout, current);
+
+        TransferOperation op = transferService.getOperation(operationId);
+        if (timeout == 0 || !isRunning(op.getStatus())) {
+            result.setResult(ResponseEntity.ok(op));
+            return result;
+        }
+
+        Runnable onDone = () -> result.setResult(current.get());
+        waiters.register(operationId, onDone);
+        result.onCompletion(() -> waiters.unregister(operationId, onDone));
+        // Операция могла завершиться между чтением и регистрацией
+        if (!isRunning(transferService.getOperation(operationId).getStatus())) {
+            result.setResult(current.get());
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${application.async.resubmit-delay-ms:30000}",
+            initialDelayString = "${application.async.resubmit-delay-ms:30000}")
+    public void resubmitStale() {
+        List<Long> stale = transferService.findStaleAccepted(LocalDateTime.now().minus(resubmitAfter), resubmitBatchSize);
+        if (!stale.isEmpty()) {
+            log.warn("⏳ Resubmitting {} accepted operations that were not started", stale.size());
+            stale.forEach(this::submit);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.async.recover-delay-ms:60000}",
+            initialDelayString = "${application.async.recover-delay-ms:60000}")
+    public void recoverStuck() {
+        List<TransferOperation> stuck = transferService.claimStuck(LocalDateTime.now().minus(recoverAfter),
+                recoverAfter, recoverBatchSize);
+        if (!stuck.isEmpty()) {
+            log.warn("♻️ Recovering {} transfers stuck in IN_PROGRESS", stuck.size());
+            stuck.forEach(op -> executor.execute(() -> recover(op)));
+        }
+    }
+
+    private void submit(Long operationId) {
+        executor.execute(() -> run(operationId));
+    }
+
+    private void run(Long operationId) {
+        boolean executed = true;
+        permits.acquireUninterruptibly();
+        try {
+            executed = transferService.executeAccepted(operationId);
+        } catch (Exception e) {
+            // FAILED уже записан и залогирован в TransferService
+        } finally {
+            permits.release();
+        }
+        if (executed) {
+            waiters.signal(operationId);
+        }
+    }
+
+    private void recover(TransferOperation op) {
+        boolean completed = false;
+        permits.acquireUninterruptibly();
+        try {
+            completed = transferService.recoverInProgress(op);
+        } catch (Exception e) {
+            log.error("❌ Recovery of {} failed: {}", op.getOperationId(), e.getMessage());
+        } finally {
+            permits.release();
+        }
+        if (completed) {
+            waiters.signal(op.getOperationId());
+        }
+    }
+
+    private static boolean isRunning(OperationStatus status) {
+        return status == OperationStatus.RECEIVED || status == OperationStatus.IN_PROGRESS;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
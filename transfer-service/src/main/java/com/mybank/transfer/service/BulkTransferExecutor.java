@@ -0,0 +1,152 @@
+package com.mybank.transfer.service;
+
+import com.mybank.transfer.repository.TransferBatchRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Выполняет переводы принятых пакетов порциями по {@code application.bulk.chunk-size}: порция запускается
+ * на виртуальных потоках, следующая читается, когда предыдущая закончилась. Вызовов accounts-service
+ * одновременно не больше {@code application.bulk.parallelism} на все пакеты экземпляра — одиночные
+ * переводы и асинхронный режим свою очередь не теряют.
+ * <p>
+ * Выполненный пакет переводится в COMPLETED. Пакеты, оставшиеся в ACCEPTED спустя {@code application.bulk.resume-after}
+ * после загрузки (экземпляр остановился), запускаются снова; двойной запуск перевода исключён переходом
+ * RECEIVED → IN_PROGRESS.
+ * <p>
+ * Пока circuit breaker accounts-service открыт, пакет не выполняется дальше: оставшиеся переводы остаются в RECEIVED
+ * и будут выполнены при возобновлении. Перевод без ответа accounts-service остаётся в IN_PROGRESS до восстановления
+ * ({@link AsyncOperationExecutor}), поэтому кратковременный сбой не делает строки пакета FAILED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkTransferExecutor {
+
+    private final TransferService transferService;
+    private final TransferBatchRepository batchRepository;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("transfer-bulk-", 0).factory());
+
+    /** Имя circuit breaker accounts-service (как в {@code AccountsClient}) */
+    private static final String ACCOUNTS = "accounts-service";
+
+    @Value("${application.bulk.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${application.bulk.parallelism:16}")
+    private int parallelism;
+
+    @Value("${application.bulk.resume-after:PT10M}")
+    private Duration resumeAfter;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(parallelism);
+    }
+
+    /**
+     * Запускает выполнение пакета, если этот экземпляр его ещё не выполняет.
+     */
+    public void submit(long batchId) {
+        if (running.add(batchId)) {
+            executor.execute(() -> run(batchId));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.bulk.resume-delay-ms:60000}",
+            initialDelayString = "${application.bulk.resume-delay-ms:60000}")
+    public void resumeStalled() {
+        List<Long> stalled = batchRepository.findStalled(LocalDateTime.now().minus(resumeAfter));
+        stalled.stream()
+                .filter(batchId -> !running.contains(batchId))
+                .forEach(batchId -> {
+                    log.warn("⏳ Resuming unfinished batch {}", batchId);
+                    submit(batchId);
+                });
+    }
+
+    private void run(long batchId) {
+        long startedAt = System.nanoTime();
+        int executed = 0;
+        try {
+            long afterId = 0;
+            List<Long> chunk;
+            while (!(chunk = batchRepository.findReceived(batchId, afterId, chunkSize)).isEmpty()) {
+                if (!isAccountsAvailable()) {
+                    log.warn("⏸️ Batch {} paused after {} transfers: accounts-service circuit breaker is open",
+                            batchId, executed);
+                    return;
+                }
+                executeChunk(chunk);
+                executed += chunk.size();
+                afterId = chunk.getLast();
+            }
+            boolean completed = batchRepository.markCompleted(batchId);
+            log.info("🏁 Batch {} executed: {} transfers in {} ms, completed={}",
+                    batchId, executed, Duration.ofNanos(System.nanoTime() - startedAt).toMillis(), completed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("🛑 Batch {} interrupted after {} transfers", batchId, executed);
+        } catch (Exception e) {
+            log.error("❌ Batch {} stopped after {} transfers: {}", batchId, executed, e.getMessage(), e);
+        } finally {
+            running.remove(batchId);
+        }
+    }
+
+    private void executeChunk(List<Long> operationIds) throws InterruptedException {
+        List<Callable<Void>> tasks = operationIds.stream()
+                .<Callable<Void>>map(id -> () -> {
+                    execute(id);
+                    return null;
+                })
+                .toList();
+        executor.invokeAll(tasks);
+    }
+
+    private void execute(Long operationId) {
+        permits.acquireUninterruptibly();
+        try {
+            // Breaker открылся посреди порции — перевод остаётся в RECEIVED, а не уходит в IN_PROGRESS без вызова
+            if (isAccountsAvailable()) {
+                transferService.executeAccepted(operationId);
+            }
+        } catch (Exception e) {
+            // Исход записан и залогирован в TransferService
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isAccountsAvailable() {
+        CircuitBreaker.State state = circuitBreakerRegistry.circuitBreaker(ACCOUNTS).getState();
+        return state != CircuitBreaker.State.OPEN && state != CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
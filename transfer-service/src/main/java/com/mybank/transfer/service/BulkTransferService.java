@@ -0,0 +1,194 @@
+package com.mybank.transfer.service;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mybank.common.id.PooledIdAllocator;
+import com.mybank.outbox.OutboxMetrics;
+import com.mybank.transfer.dto.BulkTransferLine;
+import com.mybank.transfer.dto.OperationStatus;
+import com.mybank.transfer.dto.TransferBatchResponse;
+import com.mybank.transfer.dto.TransferOperationRequest;
+import com.mybank.transfer.outbox.TransferOutboxHandler;
+import com.mybank.transfer.repository.TransferBatchRepository;
+import com.mybank.transfer.repository.TransferBatchRepository.BatchRow;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетные переводы (зарплатные ведомости): файл читается построчно, без загрузки целиком, каждая строка
+ * проверяется, прошедшие проверку сохраняются порциями JDBC batch сразу в RECEIVED — без /operation-key.
+ * Выполнять переводы пакета начинает {@link BulkTransferExecutor}, только когда файл дочитан до конца;
+ * если загрузка оборвалась, сохранённые строки удаляются и ни один перевод не выполняется.
+ * Загрузку, оборванную остановкой экземпляра, отменяет {@link AbandonedBatchReaper}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkTransferService {
+
+    public enum Format { CSV, NDJSON }
+
+    private final TransferBatchRepository batchRepository;
+    private final BulkTransferExecutor bulkTransferExecutor;
+    private final PooledIdAllocator operationIdAllocator;
+    private final OutboxMetrics outboxMetrics;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${application.bulk.insert-batch-size:500}")
+    private int insertBatchSize;
+
+    @Value("${application.bulk.max-rows:100000}")
+    private int maxRows;
+
+    @Value("${application.bulk.max-errors:100}")
+    private int maxErrors;
+
+    /**
+     * Читает загрузку и сохраняет переводы пакета.
+     *
+     * @throws IllegalArgumentException строк больше {@code application.bulk.max-rows}; пакет отменяется целиком
+     */
+    public TransferBatchResponse ingest(String username, Format format, InputStream body) throws IOException {
+        long batchId = batchRepository.create(username);
+        log.info("📦 Batch {} ingesting: user={}, format={}", batchId, username, format);
+
+        int total = 0;
+        int rejected = 0;
+        List<String> errors = new ArrayList<>();
+        List<TransferOperationRequest> chunk = new ArrayList<>(insertBatchSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = stripBom(line).strip();
+                if (line.isEmpty() || (lineNo == 1 && format == Format.CSV && isCsvHeader(line))) {
+                    continue;
+                }
+                if (++total > maxRows) {
+                    throw new IllegalArgumentException("В пакете больше " + maxRows + " строк");
+                }
+
+                String error;
+                BulkTransferLine parsed = null;
+                try {
+                    parsed = format == Format.CSV ? parseCsv(line) : objectMapper.readValue(line, BulkTransferLine.class);
+                    error = validate(username, parsed);
+                } catch (JacksonException e) {
+                    error = "некорректный JSON";
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < maxErrors) {
+                        errors.add("строка " + lineNo + ": " + error);
+                    }
+                    continue;
+                }
+
+                chunk.add(new TransferOperationRequest(operationIdAllocator.nextId(), parsed.recipient(), parsed.amount()));
+                if (chunk.size() == insertBatchSize) {
+                    flush(batchId, username, chunk);
+                }
+            }
+            flush(batchId, username, chunk);
+        } catch (IOException | RuntimeException e) {
+            batchRepository.abort(batchId, e.getMessage());
+            log.warn("🛑 Batch {} aborted after {} rows: {}", batchId, total, e.getMessage());
+            throw e;
+        }
+
+        if (!batchRepository.markAccepted(batchId, total, rejected, errors.isEmpty() ? null : String.join("\n", errors))) {
+            // Загрузка шла дольше application.bulk.ingest-ttl, пакет уже отменён: дочищаем строки после отмены
+            batchRepository.abort(batchId, null);
+            throw new IllegalStateException("Пакет " + batchId + " отменён: загрузка не завершилась вовремя");
+        }
+        log.info("📦 Batch {} accepted: rows={}, rejected={}", batchId, total, rejected);
+        if (total > rejected) {
+            bulkTransferExecutor.submit(batchId);
+        } else {
+            batchRepository.markCompleted(batchId);
+        }
+        return getBatch(batchId, username);
+    }
+
+    public TransferBatchResponse getBatch(long batchId, String username) {
+        BatchRow batch = batchRepository.find(batchId, username)
+                .orElseThrow(() -> new IllegalArgumentException("Пакет не найден: " + batchId));
+        Map<String, Long> operations = batchRepository.countByStatus(batchId);
+        long accepted = operations.values().stream().mapToLong(Long::longValue).sum();
+        long pending = operations.getOrDefault(OperationStatus.RECEIVED.name(), 0L)
+                + operations.getOrDefault(OperationStatus.IN_PROGRESS.name(), 0L);
+
+        String status = switch (batch.status()) {
+            case TransferBatchRepository.ACCEPTED -> pending > 0 ? "RUNNING" : TransferBatchRepository.COMPLETED;
+            default -> batch.status();
+        };
+        List<String> errors = batch.errors() == null ? List.of() : List.of(batch.errors().split("\n"));
+        return new TransferBatchResponse(batch.batchId(), status, batch.totalRows(), accepted, batch.rejectedRows(),
+                operations, errors, batch.createdAt(), batch.ingestedAt());
+    }
+
+    // ==================== PRIVATE ====================
+
+    private void flush(long batchId, String username, List<TransferOperationRequest> chunk) {
+        batchRepository.insertOperations(batchId, username, chunk);
+        outboxMetrics.created(TransferOutboxHandler.TABLE, OperationStatus.RECEIVED.name(), chunk.size());
+        chunk.clear();
+    }
+
+    private String validate(String username, BulkTransferLine line) {
+        if (line == null) {
+            return "ожидается объект";
+        }
+        String violation = validator.validate(line).stream()
+                .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .map(ConstraintViolation::getMessage)
+                .findFirst()
+                .orElse(null);
+        if (violation != null) {
+            return violation;
+        }
+        if (line.recipient().equals(username)) {
+            return "перевод самому себе";
+        }
+        return null;
+    }
+
+    private static BulkTransferLine parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 2) {
+            throw new IllegalArgumentException("ожидается recipient,amount");
+        }
+        try {
+            return new BulkTransferLine(fields[0].strip(), new BigDecimal(fields[1].strip()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("некорректная сумма");
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.toLowerCase().startsWith("recipient");
+    }
+
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+}
@@ -3,15 +3,23 @@ package com.mybank.transfer.service;
 import com.mybank.transfer.client.AccountsClient;
 import com.mybank.transfer.client.NotificationsClient;
 import com.mybank.transfer.dto.*;
+import com.mybank.transfer.exception.InsufficientFundsException;
 import com.mybank.transfer.exception.InvalidOperationKeyException;
 import com.mybank.transfer.model.TransferOperation;
+import com.mybank.transfer.outbox.TransferOutboxHandler;
 import com.mybank.transfer.repository.TransferOperationRepository;
+import com.mybank.common.id.PooledIdAllocator;
+import com.mybank.outbox.OutboxMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -21,13 +29,24 @@ public class TransferService {
     private final TransferOperationRepository operationRepository;
     private final AccountsClient accountsClient;
     private final NotificationsClient notificationsClient;
+    private final OutboxMetrics outboxMetrics;
+    private final PooledIdAllocator operationIdAllocator;
+
+    /**
+     * Нижняя граница ключей, сгенерированных клиентом: Snowflake-id (мс от эпохи сервиса в старших битах)
+     * больше 2^52 уже через ~12 дней после эпохи, sequence до таких значений не доходит.
+     */
+    static final long CLIENT_GENERATED_MIN_ID = 1L << 52;
+
+    /** Ответы accounts-service, после которых операция точно не применена: 404, 409, 422 */
+    private static final Set<Integer> REJECTION_STATUSES = Set.of(404, 409, 422);
 
 
     /**
      * Генерирует новый ключ операции
      */
     public OperationKeyResponse generateOperationKey(String username) {
-        Long operationId = operationRepository.getNextOperationId();
+        Long operationId = operationIdAllocator.nextId();
         TransferOperation op = TransferOperation.builder()
                 .operationId(operationId)
                 .username(username)
@@ -38,14 +57,125 @@ public class TransferService {
                 .notificationAttemptsAt(LocalDateTime.now())
                 .build();
         operationRepository.save(op);
+        outboxMetrics.created(TransferOutboxHandler.TABLE, OperationStatus.RESERVED.name());
         return new OperationKeyResponse(operationId);
     }
 
-    @Transactional
+    /**
+     * Синхронное выполнение без общей транзакции: каждый шаг (RESERVED → IN_PROGRESS, затем UPDATED или FAILED)
+     * коммитится отдельно, а вызов accounts-service с его ретраями и таймаутами идёт без занятого соединения.
+     */
     public void transfer(String username, TransferOperationRequest request) {
         executeOperation(username, request);
     }
 
+    /**
+     * Асинхронный режим: только принимает перевод (RESERVED → RECEIVED) в короткой транзакции,
+     * выполняет его {@link AsyncOperationExecutor} после коммита.
+     *
+     * @return true — перевод принят этим запросом; false — повтор уже принятого перевода с клиентским ключом
+     */
+    @Transactional
+    public boolean accept(String username, TransferOperationRequest request) {
+        Long operationId = request.operationId();
+        if (isClientGenerated(operationId)) {
+            int inserted = operationRepository.insertReceivedIfAbsent(
+                    operationId, username, request.recipient(), request.amount());
+            if (inserted == 1) {
+                outboxMetrics.created(TransferOutboxHandler.TABLE, OperationStatus.RECEIVED.name());
+                return true;
+            }
+            TransferOperation existing = operationRepository.findById(operationId).orElseThrow();
+            if (!existing.getUsername().equals(username)) {
+                throw new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
+            }
+            log.info("🔁 Duplicate operation ignored: {}", operationId);
+            return false;
+        }
+
+        var acceptedFrom = operationRepository.acceptReserved(
+                operationId, username, request.recipient(), request.amount());
+        if (acceptedFrom.isEmpty()) {
+            throw unclaimedKey(operationId, username);
+        }
+        outboxMetrics.transition(TransferOutboxHandler.TABLE, OperationStatus.RESERVED.name(),
+                OperationStatus.RECEIVED.name(), acceptedFrom.get());
+        log.info("📥 Operation accepted: {}", operationId);
+        return true;
+    }
+
+    /**
+     * Выполняет принятый перевод вне общей транзакции: RECEIVED → IN_PROGRESS, вызов accounts-service,
+     * UPDATED или FAILED. Каждый переход коммитится сразу, соединение на время вызова не занято.
+     *
+     * @return false — перевод уже запустил другой исполнитель
+     */
+    public boolean executeAccepted(Long operationId) {
+        var started = operationRepository.startReceived(operationId);
+        if (started.isEmpty()) {
+            return false;
+        }
+        TransferOperation op = started.get();
+        processOperation(op.getUsername(),
+                new TransferOperationRequest(operationId, op.getRecipient(), op.getAmount()), null);
+        return true;
+    }
+
+    /**
+     * Принятые раньше {@code cutoff}, но так и не запущенные переводы.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findStaleAccepted(LocalDateTime cutoff, int limit) {
+        return operationRepository.findStaleReceived(cutoff, limit);
+    }
+
+    /**
+     * Переводы, зависшие в IN_PROGRESS раньше {@code cutoff}; каждый захватывается на {@code lease}.
+     */
+    public List<TransferOperation> claimStuck(LocalDateTime cutoff, Duration lease, int limit) {
+        return operationRepository.claimStuckInProgress(cutoff, lease.toSeconds(), limit);
+    }
+
+    /**
+     * Повторно отправляет в accounts-service перевод, зависший в IN_PROGRESS, с тем же operationId.
+     * accounts-service идемпотентен по operationId: уже применённый перевод второй раз не применится,
+     * а просто будет подтверждён. Недоступный accounts-service оставляет перевод в IN_PROGRESS
+     * до следующего прохода — неизвестно, применился ли он.
+     *
+     * @return true — перевод завершён (UPDATED или FAILED)
+     */
+    public boolean recoverInProgress(TransferOperation op) {
+        Long operationId = op.getOperationId();
+        log.warn("♻️ Recovering transfer: user={}, recipient={}, amount={}, operationId={}",
+                op.getUsername(), op.getRecipient(), op.getAmount(), operationId);
+        try {
+            accountsClient.transfer(new TransferConsumeRequest(
+                    operationId,
+                    op.getUsername(),
+                    op.getRecipient(),
+                    op.getAmount()
+            ));
+        } catch (Exception e) {
+            if (!isRejected(e)) {
+                log.warn("⏳ Recovery of {} postponed: {}", operationId, e.getMessage());
+                return false;
+            }
+            if (operationRepository.markFailed(operationId, e.getMessage()) == 1) {
+                outboxMetrics.transition(TransferOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                        OperationStatus.FAILED.name(), op.getCreatedAt());
+                outboxMetrics.terminal(TransferOutboxHandler.TABLE, OperationStatus.FAILED.name());
+            }
+            log.error("❌ Recovered operation FAILED: id={}, error={}", operationId, e.getMessage());
+            return true;
+        }
+        if (operationRepository.markUpdated(operationId) == 1) {
+            outboxMetrics.transition(TransferOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                    OperationStatus.UPDATED.name(), op.getCreatedAt());
+        }
+        log.info("✅ Recovered operation SUCCESS: {}", operationId);
+        return true;
+    }
+
     @Transactional(readOnly = true)
     public TransferOperation getOperation(Long operationId) {
         return operationRepository.findById(operationId)
@@ -57,51 +187,133 @@ public class TransferService {
 
     private void executeOperation(String username, TransferOperationRequest request) {
         Long operationId = request.operationId();
+        if (isClientGenerated(operationId)) {
+            executeClientOperation(username, request);
+            return;
+        }
 
-        var existingOpt = operationRepository.findById(operationId);
-        if (existingOpt.isPresent()) {
-            TransferOperation op = existingOpt.get();
-            // username всегда должен совпадать
-            if (!op.getUsername().equals(username)) {
-                throw new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
-            }
-            if (op.getStatus() == OperationStatus.RESERVED) {
-                op.setRecipient(request.recipient());
-                op.setAmount(request.amount());
-                processOperation(op);
-                return;
-            }
+        var startedFrom = operationRepository.startReserved(
+                operationId, username, request.recipient(), request.amount());
+        if (startedFrom.isPresent()) {
+            processOperation(username, request, startedFrom.get());
+            return;
+        }
+
+        throw unclaimedKey(operationId, username);
+    }
+
+    /**
+     * Ключ не захвачен — читаем строку только для того, чтобы выбрать ошибку.
+     */
+    private InvalidOperationKeyException unclaimedKey(Long operationId, String username) {
+        boolean foreign = operationRepository.findById(operationId)
+                .map(op -> !op.getUsername().equals(username))
+                .orElse(false);
+        if (foreign) {
+            return new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
+        }
+        return new InvalidOperationKeyException("Operation key не зарезервирован: " + operationId);
+    }
+
+    /**
+     * Перевод с ключом, сгенерированным клиентом (без /operation-key): строка вставляется сразу в IN_PROGRESS
+     * и коммитится до вызова accounts-service, дальше — как обычный перевод ({@link #processOperation}).
+     * Повтор с тем же ключом видит строку: выполненный перевод не повторяется, упавший (FAILED) перезапускается
+     * тем же пользователем, а accounts-service идемпотентен по operationId.
+     */
+    private void executeClientOperation(String username, TransferOperationRequest request) {
+        Long operationId = request.operationId();
+        int inserted = operationRepository.insertInProgressIfAbsent(
+                operationId, username, request.recipient(), request.amount());
+        if (inserted == 1) {
+            outboxMetrics.created(TransferOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name());
+            processOperation(username, request, null);
+            return;
         }
-        throw new InvalidOperationKeyException("Operation key не зарезервирован: " + operationId);
+        if (operationRepository.restartFailed(operationId, username) == 1) {
+            log.info("🔁 Retrying failed operation: {}", operationId);
+            processOperation(username, request, null);
+            return;
+        }
+        TransferOperation op = operationRepository.findById(operationId)
+                .orElseThrow(() -> new InvalidOperationKeyException("Operation key не зарезервирован: " + operationId));
+        // username всегда должен совпадать
+        if (!op.getUsername().equals(username)) {
+            throw new InvalidOperationKeyException("OperationId принадлежит другому пользователю: " + operationId);
+        }
+        // Повтор запроса с клиентским ключом — операция уже выполнена
+        if (isCompleted(op.getStatus())) {
+            log.info("🔁 Duplicate operation ignored: {}", operationId);
+            return;
+        }
+        throw new InvalidOperationKeyException("Операция уже выполняется: " + operationId);
     }
 
-    private void processOperation(TransferOperation operation) {
-        operation.setStatus(OperationStatus.IN_PROGRESS);
-        operationRepository.save(operation);
+    /**
+     * Перевод уже переведён в IN_PROGRESS ({@link TransferOperationRepository#startReserved},
+     * {@link TransferOperationRepository#startReceived} или {@link TransferOperationRepository#insertInProgressIfAbsent});
+     * дальше только вызов accounts-service и условный перевод в UPDATED или FAILED. FAILED — только при отказе
+     * accounts-service по существу ({@link #isRejected}); без ответа исход неизвестен, и строка остаётся в IN_PROGRESS
+     * до {@link #recoverInProgress}. {@code reservedAt} — для метрики RESERVED → IN_PROGRESS, null, если RESERVED не было.
+     */
+    private void processOperation(String username, TransferOperationRequest request, LocalDateTime reservedAt) {
+        Long operationId = request.operationId();
+        outboxMetrics.transition(TransferOutboxHandler.TABLE, OperationStatus.RESERVED.name(),
+                OperationStatus.IN_PROGRESS.name(), reservedAt);
+        long startedAt = System.nanoTime();
 
         log.info("🚀 Executing transfer: user={}, recipient={}, amount={}, operationId={}",
-                operation.getUsername(), operation.getRecipient(),
-                operation.getAmount(), operation.getOperationId());
+                username, request.recipient(), request.amount(), operationId);
 
         try {
             accountsClient.transfer(new TransferConsumeRequest(
-                    operation.getOperationId(),
-                    operation.getUsername(),
-                    operation.getRecipient(),
-                    operation.getAmount()
-
+                    operationId,
+                    username,
+                    request.recipient(),
+                    request.amount()
             ));
-            operation.setStatus(OperationStatus.UPDATED);
-            operation.setCompletedAt(LocalDateTime.now());
-            operationRepository.save(operation);
-            log.info("✅ Operation SUCCESS: {}", operation.getOperationId());
+            if (operationRepository.markUpdated(operationId) == 1) {
+                outboxMetrics.transition(TransferOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                        OperationStatus.UPDATED.name(), Duration.ofNanos(System.nanoTime() - startedAt));
+            }
+            log.info("✅ Operation SUCCESS: {}", operationId);
         } catch (Exception e) {
-            operation.setStatus(OperationStatus.FAILED);
-            operation.setCompletedAt(LocalDateTime.now());
-            operation.setErrorMessage(e.getMessage());
-            operationRepository.save(operation);
-            log.error("❌ Operation FAILED: id={}, error={}", operation.getOperationId(), e.getMessage(), e);
+            if (!isRejected(e)) {
+                // Ответа нет (таймаут, 5xx, открытый circuit breaker) — accounts-service мог уже применить операцию.
+                // Строка остаётся в IN_PROGRESS, восстановление повторит её с тем же operationId.
+                log.warn("⏳ Operation outcome unknown, left IN_PROGRESS: id={}, error={}", operationId, e.getMessage());
+                throw e;
+            }
+            if (operationRepository.markFailed(operationId, e.getMessage()) == 1) {
+                outboxMetrics.transition(TransferOutboxHandler.TABLE, OperationStatus.IN_PROGRESS.name(),
+                        OperationStatus.FAILED.name(), Duration.ofNanos(System.nanoTime() - startedAt));
+                outboxMetrics.terminal(TransferOutboxHandler.TABLE, OperationStatus.FAILED.name());
+            }
+            log.error("❌ Operation FAILED: id={}, error={}", operationId, e.getMessage());
             throw e;
         }
     }
+
+    /**
+     * Окончательный отказ accounts-service: нет средств, нет счёта, конфликт ключа. Операция точно не применена.
+     * Всё остальное (таймаут, 5xx, открытый circuit breaker) — исход неизвестен.
+     */
+    static boolean isRejected(Exception e) {
+        return e instanceof InsufficientFundsException
+                || e instanceof HttpClientErrorException clientError
+                && REJECTION_STATUSES.contains(clientError.getStatusCode().value());
+    }
+
+    /**
+     * Ключ сгенерирован клиентом (Snowflake), а не sequence: такие значения sequence не достигает.
+     */
+    static boolean isClientGenerated(Long operationId) {
+        return operationId >= CLIENT_GENERATED_MIN_ID;
+    }
+
+    private static boolean isCompleted(OperationStatus status) {
+        return status == OperationStatus.UPDATED
+                || status == OperationStatus.NOTIFIED
+                || status == OperationStatus.UNNOTIFIED;
+    }
 }
\ No newline at end of file
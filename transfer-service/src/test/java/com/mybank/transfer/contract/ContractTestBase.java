@@ -6,6 +6,8 @@ import com.mybank.transfer.dto.TransferOperationRequest;
 import com.mybank.transfer.dto.OperationKeyResponse;
 import com.mybank.transfer.outbox.OutboxProcessor;
 import com.mybank.transfer.service.TransferService;
+import com.mybank.transfer.service.ReservationReaper;
+import com.mybank.common.id.PooledIdAllocator;
 import io.restassured.module.mockmvc.RestAssuredMockMvc;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +40,12 @@ public abstract class ContractTestBase {
     @MockitoBean
     OutboxProcessor outboxProcessor;
 
+    @MockitoBean
+    PooledIdAllocator operationIdAllocator;
+
+    @MockitoBean
+    ReservationReaper reservationReaper;
+
 
     @BeforeEach
     void setup() {
@@ -0,0 +1,247 @@
+package com.mybank.transfer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mybank.transfer.client.AccountsClient;
+import com.mybank.transfer.client.NotificationsClient;
+import com.mybank.transfer.config.TestSecurityItConfig;
+import com.mybank.transfer.dto.TransferConsumeRequest;
+import com.mybank.transfer.service.BulkTransferExecutor;
+import com.mybank.transfer.template.BaseIntegrationTest;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "application.bulk.insert-batch-size=3",
+        "application.bulk.chunk-size=2",
+        "application.bulk.parallelism=2",
+        "application.bulk.max-rows=50"
+})
+@AutoConfigureMockMvc
+@Import(TestSecurityItConfig.class)
+class BulkTransferControllerIT extends BaseIntegrationTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired CircuitBreakerRegistry circuitBreakerRegistry;
+    @Autowired BulkTransferExecutor bulkTransferExecutor;
+
+    @MockitoBean
+    AccountsClient accountsClient;
+    @MockitoBean
+    NotificationsClient notificationsClient;
+
+    @Test
+    void csvUpload_shouldRejectInvalidRows_andExecuteValidOnes() throws Exception {
+
+        doNothing().when(accountsClient).transfer(any());
+
+        String csv = """
+                recipient,amount
+                bob,100.00
+                carol,50
+                alice,10.00
+                dave,-1
+                erin
+                frank,abc
+                gina,1.001
+
+                bob,7.50
+                carol,0.01
+                dave,12.34
+                """;
+
+        String json = mockMvc.perform(post("/transfer/batches")
+                        .with(user("alice"))
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.totalRows").value(10))
+                .andExpect(jsonPath("$.acceptedRows").value(5))
+                .andExpect(jsonPath("$.rejectedRows").value(5))
+                .andExpect(jsonPath("$.errors[0]").value("строка 4: перевод самому себе"))
+                .andExpect(jsonPath("$.errors[2]").value("строка 6: ожидается recipient,amount"))
+                .andReturn().getResponse().getContentAsString();
+        long batchId = objectMapper.readTree(json).get("batchId").asLong();
+
+        JsonNode batch = awaitCompleted(batchId, "alice");
+        assertThat(batch.get("operations").get("RECEIVED")).isNull();
+        assertThat(batch.get("operations").get("FAILED")).isNull();
+        verify(accountsClient, times(5)).transfer(any());
+        // Выполненный пакет сохраняется как COMPLETED и больше не попадает в возобновление
+        awaitStoredStatus(batchId, "COMPLETED");
+    }
+
+    @Test
+    void ndjsonUpload_whenAccountsFailsForOneRow_shouldMarkItFailed() throws Exception {
+
+        doNothing().when(accountsClient).transfer(any());
+        doThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND, "unknown recipient"))
+                .when(accountsClient).transfer(argThat((TransferConsumeRequest r) -> "ghost".equals(r.recipient())));
+
+        String ndjson = """
+                {"recipient":"bob","amount":10.00}
+                {"recipient":"ghost","amount":20.00}
+                {"recipient":"carol","amount":
+                {"recipient":"dave","amount":30.00}
+                {"recipient":"erin","amount":40.00}
+                """;
+
+        String json = mockMvc.perform(post("/transfer/batches")
+                        .with(user("bulk-ndjson"))
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.acceptedRows").value(4))
+                .andExpect(jsonPath("$.errors[0]").value("строка 3: некорректный JSON"))
+                .andReturn().getResponse().getContentAsString();
+        long batchId = objectMapper.readTree(json).get("batchId").asLong();
+
+        JsonNode batch = awaitCompleted(batchId, "bulk-ndjson");
+        assertThat(batch.get("operations").get("FAILED").asLong()).isEqualTo(1);
+        assertThat(jdbc.queryForObject(
+                "SELECT error_message FROM transfer.transfer_operations WHERE batch_id = ? AND recipient = 'ghost'",
+                String.class, batchId)).isEqualTo("404 unknown recipient");
+    }
+
+    @Test
+    void upload_whileAccountsBreakerOpen_shouldKeepRowsReceived_andResumeLater() throws Exception {
+
+        doNothing().when(accountsClient).transfer(any());
+        CircuitBreaker breaker = circuitBreakerRegistry.circuitBreaker("accounts-service");
+        breaker.transitionToForcedOpenState();
+        try {
+            String json = mockMvc.perform(post("/transfer/batches")
+                            .with(user("bulk-breaker"))
+                            .contentType("text/csv")
+                            .content("bob,1.00\ncarol,2.00\ndave,3.00\n"))
+                    .andExpect(status().isAccepted())
+                    .andReturn().getResponse().getContentAsString();
+            long batchId = objectMapper.readTree(json).get("batchId").asLong();
+
+            // Пакет приостановлен, а не выполнен в FAILED: строки ждут в RECEIVED
+            Thread.sleep(500);
+            assertThat(storedStatus(batchId)).isEqualTo("ACCEPTED");
+            assertThat(jdbc.queryForList(
+                    "SELECT status FROM transfer.transfer_operations WHERE batch_id = ?", String.class, batchId))
+                    .containsOnly("RECEIVED")
+                    .hasSize(3);
+            verify(accountsClient, never()).transfer(any());
+
+            breaker.transitionToClosedState();
+            bulkTransferExecutor.submit(batchId);
+
+            JsonNode batch = awaitCompleted(batchId, "bulk-breaker");
+            assertThat(batch.get("operations").get("FAILED")).isNull();
+            verify(accountsClient, times(3)).transfer(any());
+        } finally {
+            breaker.transitionToClosedState();
+        }
+    }
+
+    @Test
+    void upload_overMaxRows_shouldAbortWithoutExecuting() throws Exception {
+
+        String csv = "bob,1.00\n".repeat(51);
+
+        mockMvc.perform(post("/transfer/batches")
+                        .with(user("bulk-limit"))
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isBadRequest());
+
+        Long batchId = jdbc.queryForObject(
+                "SELECT max(batch_id) FROM transfer.transfer_batches WHERE username = 'bulk-limit'", Long.class);
+        assertThat(jdbc.queryForObject(
+                "SELECT status FROM transfer.transfer_batches WHERE batch_id = ?", String.class, batchId))
+                .isEqualTo("ABORTED");
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM transfer.transfer_operations WHERE batch_id = ?", Long.class, batchId))
+                .isZero();
+        verify(accountsClient, never()).transfer(any());
+    }
+
+    @Test
+    void getBatch_ofAnotherUser_shouldReturn400() throws Exception {
+
+        String json = mockMvc.perform(post("/transfer/batches")
+                        .with(user("bulk-owner"))
+                        .contentType("text/csv")
+                        .content("bob,oops\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andReturn().getResponse().getContentAsString();
+        long batchId = objectMapper.readTree(json).get("batchId").asLong();
+
+        mockMvc.perform(get("/transfer/batches/{id}", batchId).with(user("mallory")))
+                .andExpect(status().isBadRequest());
+        // Пакет без переводов завершается сразу
+        assertThat(storedStatus(batchId)).isEqualTo("COMPLETED");
+    }
+
+    private JsonNode awaitCompleted(long batchId, String username) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (true) {
+            String json = mockMvc.perform(get("/transfer/batches/{id}", batchId).with(user(username)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode batch = objectMapper.readTree(json);
+            if ("COMPLETED".equals(batch.get("status").asText())) {
+                return batch;
+            }
+            assertThat(System.nanoTime()).as("batch %d not completed: %s", batchId, json).isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private void awaitStoredStatus(long batchId, String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (!expected.equals(storedStatus(batchId))) {
+            assertThat(System.nanoTime()).as("batch %d not %s", batchId, expected).isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    private String storedStatus(long batchId) {
+        return jdbc.queryForObject(
+                "SELECT status FROM transfer.transfer_batches WHERE batch_id = ?", String.class, batchId);
+    }
+
+    private static RequestPostProcessor user(String username) {
+        return jwt().jwt(j -> j
+                .claim("preferred_username", username)
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+    }
+}
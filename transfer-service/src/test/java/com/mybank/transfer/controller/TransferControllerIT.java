@@ -5,8 +5,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mybank.transfer.client.AccountsClient;
 import com.mybank.transfer.client.NotificationsClient;
 import com.mybank.transfer.config.TestSecurityItConfig;
+import com.mybank.transfer.exception.InsufficientFundsException;
+import com.mybank.transfer.exception.ServiceUnavailableException;
+import com.mybank.transfer.service.TransferService;
 import com.mybank.transfer.dto.TransferOperationRequest;
 import com.mybank.transfer.template.BaseIntegrationTest;
+import com.mybank.transfer.dto.OperationStatus;
+import com.mybank.transfer.repository.TransferOperationRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -16,16 +21,32 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -35,7 +56,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class TransferControllerIT extends BaseIntegrationTest {
 
     @Autowired MockMvc mockMvc;
+    @Autowired TransferService transferService;
     @Autowired ObjectMapper objectMapper;
+    @Autowired TransferOperationRepository operationRepository;
 
     @MockitoBean
     AccountsClient accountsClient;
@@ -191,4 +214,251 @@ class TransferControllerIT extends BaseIntegrationTest {
         mockMvc.perform(get("/transfer/operation-key").with(auth))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    void operate_withClientGeneratedId_shouldSkipReservation_andIgnoreReplay() throws Exception {
+
+        doNothing().when(accountsClient).transfer(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+
+        // Ключ сгенерирован клиентом (Snowflake) — без GET /operation-key
+        long operationId = (1L << 52) + System.nanoTime() % 1_000_000;
+        var request = new TransferOperationRequest(operationId, "bob", new BigDecimal("100.00"));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/transfer/transfer")
+                            .with(auth)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isNoContent());
+        }
+
+        // Повтор не выполняется второй раз
+        verify(accountsClient, times(1)).transfer(any());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED));
+    }
+
+    @Test
+    void transfer_withClientGeneratedId_shouldPersistRowBeforeAccounts_andRetryFailed() throws Exception {
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+
+        long operationId = (1L << 52) + 2_000_000 + System.nanoTime() % 1_000_000;
+        var request = new TransferOperationRequest(operationId, "bob", new BigDecimal("100.00"));
+
+        // Строка уже есть в IN_PROGRESS, когда идёт вызов accounts-service; первый вызов отклонён
+        List<OperationStatus> seenByAccounts = new ArrayList<>();
+        doAnswer(inv -> {
+            seenByAccounts.add(operationRepository.findById(operationId).orElseThrow().getStatus());
+            if (seenByAccounts.size() == 1) {
+                throw new InsufficientFundsException("Недостаточно средств", BigDecimal.ZERO, new BigDecimal("100.00"));
+            }
+            return null;
+        }).when(accountsClient).transfer(any());
+
+        mockMvc.perform(post("/transfer/transfer")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.FAILED));
+
+        // Повтор тем же пользователем перезапускает упавший перевод с тем же ключом
+        mockMvc.perform(post("/transfer/transfer")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNoContent());
+
+        // Чужой пользователь с тем же ключом получает отказ, accounts-service не вызывается
+        var carol = jwt().jwt(j -> j
+                .claim("preferred_username", "carol")
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+        mockMvc.perform(post("/transfer/transfer")
+                        .with(carol)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(seenByAccounts).containsExactly(OperationStatus.IN_PROGRESS, OperationStatus.IN_PROGRESS);
+        verify(accountsClient, times(2)).transfer(any());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> {
+                    assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED);
+                    assertThat(op.getUsername()).isEqualTo("alice");
+                });
+    }
+
+    @Test
+    void transfer_concurrentlyWithSameReservedKey_shouldExecuteOnce() throws Exception {
+
+        // Первый запрос держит строку, пока «идёт» вызов accounts-service
+        doAnswer(inv -> {
+            Thread.sleep(300);
+            return null;
+        }).when(accountsClient).transfer(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+
+        String keyJson = mockMvc.perform(get("/transfer/operation-key").with(auth))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        long operationId = objectMapper.readTree(keyJson).get("operationId").asLong();
+
+        String body = objectMapper.writeValueAsString(
+                new TransferOperationRequest(operationId, "bob", new BigDecimal("100.00")));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> responses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            responses.add(pool.submit(() -> mockMvc.perform(post("/transfer/transfer")
+                            .with(auth)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andReturn()
+                    .getResponse()
+                    .getStatus()));
+        }
+        List<Integer> statuses = new ArrayList<>();
+        for (Future<Integer> f : responses) {
+            statuses.add(f.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertThat(statuses).containsExactlyInAnyOrder(204, 400);
+        verify(accountsClient, times(1)).transfer(any());
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED));
+    }
+
+    @Test
+    void transfer_async_shouldReturn202_andLongPollShouldWaitForResult() throws Exception {
+
+        doAnswer(inv -> {
+            Thread.sleep(300);
+            return null;
+        }).when(accountsClient).transfer(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+
+        String keyJson = mockMvc.perform(get("/transfer/operation-key").with(auth))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        long operationId = objectMapper.readTree(keyJson).get("operationId").asLong();
+
+        var request = new TransferOperationRequest(operationId, "bob", new BigDecimal("100.00"));
+        mockMvc.perform(post("/transfer/transfer")
+                        .param("async", "true")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/transfer/operation/" + operationId));
+
+        // Ответ приходит, когда перевод завершился, а не по таймауту
+        long startedAt = System.nanoTime();
+        MvcResult pending = mockMvc.perform(get("/transfer/operation/{id}", operationId)
+                        .param("waitMs", "10000")
+                        .with(auth))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UPDATED"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(5000);
+
+        // Повтор асинхронного запроса с тем же ключом — ключ уже не в RESERVED
+        mockMvc.perform(post("/transfer/transfer")
+                        .param("async", "true")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+        verify(accountsClient, times(1)).transfer(any());
+    }
+
+    @Test
+    void transfer_async_whenAccountsFails_shouldPersistFailed() throws Exception {
+
+        doThrow(new InsufficientFundsException("Недостаточно средств", BigDecimal.ZERO, new BigDecimal("5.00")))
+                .when(accountsClient).transfer(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+
+        long operationId = (1L << 52) + 1_000_000 + System.nanoTime() % 1_000_000;
+        var request = new TransferOperationRequest(operationId, "bob", new BigDecimal("5.00"));
+        mockMvc.perform(post("/transfer/transfer")
+                        .param("async", "true")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted());
+
+        MvcResult pending = mockMvc.perform(get("/transfer/operation/{id}", operationId)
+                        .param("waitMs", "10000")
+                        .with(auth))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.errorMessage").value("Недостаточно средств"));
+    }
+
+    @Test
+    void transfer_whenAccountsUnavailable_shouldStayInProgress_untilRecovered() throws Exception {
+
+        doThrow(new ServiceUnavailableException("accounts down")).when(accountsClient).transfer(any());
+
+        var auth = jwt().jwt(j -> j
+                .claim("preferred_username", "alice")
+                .claim("clientRoles", "transfer.write")
+        ).authorities(new SimpleGrantedAuthority("ROLE_transfer.write"));
+
+        long operationId = (1L << 52) + 3_000_000 + System.nanoTime() % 1_000_000;
+        var request = new TransferOperationRequest(operationId, "bob", new BigDecimal("5.00"));
+        mockMvc.perform(post("/transfer/transfer")
+                        .with(auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable());
+
+        // Ответа от accounts-service не было — исход неизвестен, FAILED не пишется
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.IN_PROGRESS));
+
+        doNothing().when(accountsClient).transfer(any());
+        assertThat(transferService.recoverInProgress(operationRepository.findById(operationId).orElseThrow())).isTrue();
+        assertThat(operationRepository.findById(operationId))
+                .get()
+                .satisfies(op -> assertThat(op.getStatus()).isEqualTo(OperationStatus.UPDATED));
+        verify(accountsClient, times(2)).transfer(any());
+    }
 }
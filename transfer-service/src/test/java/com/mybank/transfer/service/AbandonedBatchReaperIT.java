@@ -0,0 +1,88 @@
+package com.mybank.transfer.service;
+
+import com.mybank.transfer.client.AccountsClient;
+import com.mybank.transfer.client.NotificationsClient;
+import com.mybank.transfer.config.TestSecurityItConfig;
+import com.mybank.transfer.dto.TransferOperationRequest;
+import com.mybank.transfer.repository.TransferBatchRepository;
+import com.mybank.transfer.template.BaseIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "application.bulk.ingest-ttl=PT1H")
+@Import(TestSecurityItConfig.class)
+class AbandonedBatchReaperIT extends BaseIntegrationTest {
+
+    private static final AtomicLong OPERATION_IDS = new AtomicLong(8_000_000);
+
+    @Autowired AbandonedBatchReaper reaper;
+    @Autowired TransferBatchRepository batchRepository;
+    @Autowired JdbcTemplate jdbc;
+
+    @MockitoBean AccountsClient accountsClient;
+    @MockitoBean NotificationsClient notificationsClient;
+
+    @Test
+    void abortAbandoned_shouldAbortOnlyOldIngestingBatches_andRejectLateAccept() {
+        long abandoned = batch(2);
+        long fresh = batch(1);
+        long accepted = batch(1);
+        assertThat(batchRepository.markAccepted(accepted, 1, 0, null)).isTrue();
+        jdbc.update("UPDATE transfer.transfer_batches SET created_at = now() - interval '2 hours' WHERE batch_id IN (?, ?)",
+                abandoned, accepted);
+
+        assertThat(reaper.abortAbandoned(LocalDateTime.now().minusHours(1))).isEqualTo(1);
+
+        assertThat(status(abandoned)).isEqualTo(TransferBatchRepository.ABORTED);
+        assertThat(operations(abandoned)).isZero();
+        assertThat(status(fresh)).isEqualTo(TransferBatchRepository.INGESTING);
+        assertThat(operations(fresh)).isEqualTo(1);
+        assertThat(status(accepted)).isEqualTo(TransferBatchRepository.ACCEPTED);
+        assertThat(operations(accepted)).isEqualTo(1);
+
+        // Загрузка, которая на самом деле ещё шла: дописанные строки дочищаются, принять пакет нельзя
+        insert(abandoned, 1);
+        assertThat(batchRepository.markAccepted(abandoned, 3, 0, null)).isFalse();
+        assertThat(batchRepository.abort(abandoned, null)).isTrue();
+        assertThat(operations(abandoned)).isZero();
+        assertThat(jdbc.queryForObject("SELECT errors FROM transfer.transfer_batches WHERE batch_id = ?",
+                String.class, abandoned)).startsWith("Загрузка не завершилась");
+
+        // Принятый пакет не отменяется
+        assertThat(batchRepository.abort(accepted, "late")).isFalse();
+        assertThat(operations(accepted)).isEqualTo(1);
+    }
+
+    private long batch(int rows) {
+        long batchId = batchRepository.create("alice");
+        insert(batchId, rows);
+        return batchId;
+    }
+
+    private void insert(long batchId, int rows) {
+        List<TransferOperationRequest> operations = IntStream.range(0, rows)
+                .mapToObj(i -> new TransferOperationRequest(OPERATION_IDS.incrementAndGet(), "bob", new BigDecimal("1.00")))
+                .toList();
+        batchRepository.insertOperations(batchId, "alice", operations);
+    }
+
+    private String status(long batchId) {
+        return jdbc.queryForObject("SELECT status FROM transfer.transfer_batches WHERE batch_id = ?", String.class, batchId);
+    }
+
+    private long operations(long batchId) {
+        return jdbc.queryForObject("SELECT count(*) FROM transfer.transfer_operations WHERE batch_id = ?", Long.class, batchId);
+    }
+}
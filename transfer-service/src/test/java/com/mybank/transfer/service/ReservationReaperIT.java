@@ -0,0 +1,83 @@
+package com.mybank.transfer.service;
+
+import com.mybank.transfer.client.AccountsClient;
+import com.mybank.transfer.client.NotificationsClient;
+import com.mybank.transfer.config.TestSecurityItConfig;
+import com.mybank.transfer.outbox.TransferOutboxHandler;
+import com.mybank.transfer.repository.TransferOperationRepository;
+import com.mybank.transfer.template.BaseIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "application.reservation.batch-size=2",
+        "application.reservation.max-batches-per-run=2"
+})
+@Import(TestSecurityItConfig.class)
+class ReservationReaperIT extends BaseIntegrationTest {
+
+    @Autowired ReservationReaper reaper;
+    @Autowired TransferService transferService;
+    @Autowired TransferOperationRepository operationRepository;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired MeterRegistry meterRegistry;
+
+    @MockitoBean AccountsClient accountsClient;
+    @MockitoBean NotificationsClient notificationsClient;
+
+    @BeforeEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM transfer.transfer_operations");
+    }
+
+    @Test
+    void expire_shouldRemoveOnlyOldReservations_inBoundedBatches() {
+        List<Long> abandoned = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            abandoned.add(reserve("alice"));
+        }
+        long fresh = reserve("alice");
+        long completed = (1L << 52) + 1;
+        jdbc.update("""
+                INSERT INTO transfer.transfer_operations(operation_id, username, recipient, amount, status, created_at, notification_attempts, notification_attempts_at)
+                VALUES (?, 'alice', 'bob', 10.00, 'UPDATED', now(), 0, now())
+                """, completed);
+
+        jdbc.update("UPDATE transfer.transfer_operations SET created_at = now() - interval '2 hours' WHERE operation_id <> ?", fresh);
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        double expiredBefore = expiredCount();
+
+        // 2 пакета по 2 за запуск — пятый резерв остаётся до следующего запуска
+        assertThat(reaper.expire(cutoff)).isEqualTo(4);
+        assertThat(reaper.expire(cutoff)).isEqualTo(1);
+        assertThat(reaper.expire(cutoff)).isZero();
+
+        assertThat(operationRepository.findAllById(abandoned)).isEmpty();
+        assertThat(operationRepository.findById(fresh)).isPresent();
+        assertThat(operationRepository.findById(completed)).isPresent();
+        assertThat(expiredCount() - expiredBefore).isEqualTo(5);
+    }
+
+    private long reserve(String username) {
+        return transferService.generateOperationKey(username).operationId();
+    }
+
+    private double expiredCount() {
+        var counter = meterRegistry.find("outbox.terminal")
+                .tags("table", TransferOutboxHandler.TABLE.name(), "status", ReservationReaper.EXPIRED)
+                .counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.mybank.transfer.service;
+
+import com.mybank.transfer.client.AccountsClient;
+import com.mybank.transfer.client.NotificationsClient;
+import com.mybank.transfer.config.TestSecurityItConfig;
+import com.mybank.transfer.dto.OperationStatus;
+import com.mybank.transfer.dto.TransferConsumeRequest;
+import com.mybank.transfer.exception.InsufficientFundsException;
+import com.mybank.transfer.exception.ServiceUnavailableException;
+import com.mybank.transfer.model.TransferOperation;
+import com.mybank.transfer.repository.TransferOperationRepository;
+import com.mybank.transfer.template.BaseIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "application.async.recover-delay-ms=3600000")
+@Import(TestSecurityItConfig.class)
+class StuckOperationRecoveryIT extends BaseIntegrationTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    @Autowired TransferService transferService;
+    @Autowired TransferOperationRepository operationRepository;
+    @Autowired JdbcTemplate jdbc;
+
+    @MockitoBean AccountsClient accountsClient;
+    @MockitoBean NotificationsClient notificationsClient;
+
+    @BeforeEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM transfer.transfer_operations");
+    }
+
+    @Test
+    void stuckInProgress_shouldBeResentWithSameOperationId_andMarkedUpdated() {
+        long stuck = (1L << 52) + 11;
+        long fresh = (1L << 52) + 12;
+        long completed = (1L << 52) + 13;
+        insert(stuck, "IN_PROGRESS", "10 minutes");
+        insert(fresh, "IN_PROGRESS", "0 minutes");
+        insert(completed, "UPDATED", "10 minutes");
+        doNothing().when(accountsClient).transfer(any());
+
+        List<TransferOperation> claimed = transferService.claimStuck(LocalDateTime.now().minusMinutes(5), LEASE, 10);
+        assertThat(claimed).extracting(TransferOperation::getOperationId).containsExactly(stuck);
+        // Захваченный перевод арендован — повторный проход его не берёт
+        assertThat(transferService.claimStuck(LocalDateTime.now().minusMinutes(5), LEASE, 10)).isEmpty();
+
+        assertThat(transferService.recoverInProgress(claimed.getFirst())).isTrue();
+
+        TransferOperation recovered = operationRepository.findById(stuck).orElseThrow();
+        assertThat(recovered.getStatus()).isEqualTo(OperationStatus.UPDATED);
+        assertThat(recovered.getCompletedAt()).isNotNull();
+        verify(accountsClient, times(1)).transfer(new TransferConsumeRequest(
+                stuck, "alice", "bob", recovered.getAmount()));
+        assertThat(operationRepository.findById(fresh).orElseThrow().getStatus())
+                .isEqualTo(OperationStatus.IN_PROGRESS);
+        // Уведомление о переводе уходит сразу, без ожидания аренды
+        assertThat(jdbc.queryForObject(
+                "SELECT next_attempt_at <= now() FROM transfer.transfer_operations WHERE operation_id = ?",
+                Boolean.class, stuck)).isTrue();
+    }
+
+    @Test
+    void stuckInProgress_whenAccountsUnavailable_shouldStayInProgress() {
+        long stuck = (1L << 52) + 21;
+        insert(stuck, "IN_PROGRESS", "10 minutes");
+        doThrow(new ServiceUnavailableException("accounts down")).when(accountsClient).transfer(any());
+
+        List<TransferOperation> claimed = transferService.claimStuck(LocalDateTime.now().minusMinutes(5), LEASE, 10);
+        assertThat(claimed).hasSize(1);
+
+        assertThat(transferService.recoverInProgress(claimed.getFirst())).isFalse();
+        assertThat(operationRepository.findById(stuck).orElseThrow().getStatus())
+                .isEqualTo(OperationStatus.IN_PROGRESS);
+    }
+
+    @Test
+    void stuckInProgress_whenAccountsRejects_shouldBeMarkedFailed() {
+        long stuck = (1L << 52) + 31;
+        insert(stuck, "IN_PROGRESS", "10 minutes");
+        doThrow(new InsufficientFundsException("Недостаточно средств", BigDecimal.ZERO, new BigDecimal("10.00")))
+                .when(accountsClient).transfer(any());
+
+        List<TransferOperation> claimed = transferService.claimStuck(LocalDateTime.now().minusMinutes(5), LEASE, 10);
+
+        assertThat(transferService.recoverInProgress(claimed.getFirst())).isTrue();
+        TransferOperation failed = operationRepository.findById(stuck).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(OperationStatus.FAILED);
+        assertThat(failed.getErrorMessage()).isEqualTo("Недостаточно средств");
+    }
+
+    private void insert(long operationId, String status, String age) {
+        jdbc.update("""
+                INSERT INTO transfer.transfer_operations(operation_id, username, recipient, amount, status, created_at, notification_attempts, notification_attempts_at)
+                VALUES (?, 'alice', 'bob', 10.00, ?, now() - ?::interval, 0, now())
+                """, operationId, status, age);
+    }
+}
@@ -0,0 +1,103 @@
+package com.mybank.transfer.service;
+
+import com.mybank.transfer.client.AccountsClient;
+import com.mybank.transfer.client.NotificationsClient;
+import com.mybank.transfer.config.TestSecurityItConfig;
+import com.mybank.transfer.dto.TransferOperationRequest;
+import com.mybank.transfer.dto.OperationStatus;
+import com.mybank.transfer.model.TransferOperation;
+import com.mybank.transfer.repository.TransferOperationRepository;
+import com.mybank.transfer.template.BaseIntegrationTest;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Медленный accounts-service при маленьком пуле: пока идёт удалённый вызов, соединение не занято,
+ * поэтому 2 соединений хватает на {@value #THREADS} одновременных переводов без таймаутов пула.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=" + TransferServiceConnectionPoolIT.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=1000"
+})
+@Import(TestSecurityItConfig.class)
+class TransferServiceConnectionPoolIT extends BaseIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferServiceConnectionPoolIT.class);
+
+    static final int POOL_SIZE = 2;
+    private static final int THREADS = 20;
+    private static final long ACCOUNTS_LATENCY_MS = 500;
+
+    @Autowired TransferService transferService;
+    @Autowired TransferOperationRepository operationRepository;
+    @Autowired DataSource dataSource;
+
+    @MockitoBean AccountsClient accountsClient;
+    @MockitoBean NotificationsClient notificationsClient;
+
+    @Test
+    void slowAccounts_shouldNotExhaustPool() throws Exception {
+        var pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        AtomicInteger maxActiveDuringCall = new AtomicInteger();
+        doAnswer(inv -> {
+            maxActiveDuringCall.accumulateAndGet(pool.getActiveConnections(), Math::max);
+            Thread.sleep(ACCOUNTS_LATENCY_MS);
+            return null;
+        }).when(accountsClient).transfer(any());
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            ids.add(transferService.generateOperationKey("alice").operationId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long id : ids) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                transferService.transfer("alice",
+                        new TransferOperationRequest(id, "bob", new BigDecimal("1.00")));
+                return null;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(1, TimeUnit.MINUTES);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        executor.shutdown();
+
+        assertThat(operationRepository.findAllById(ids))
+                .hasSize(THREADS)
+                .extracting(TransferOperation::getStatus)
+                .containsOnly(OperationStatus.UPDATED);
+        // С соединением, занятым на весь вызов, переводы шли бы по POOL_SIZE за раз
+        assertThat(elapsedMs).isLessThan(THREADS * ACCOUNTS_LATENCY_MS / POOL_SIZE);
+
+        log.info("📊 {} переводов при задержке accounts {} мс и пуле {}: {} мс, активных соединений во время вызова ≤ {}",
+                THREADS, ACCOUNTS_LATENCY_MS, POOL_SIZE, elapsedMs, maxActiveDuringCall.get());
+    }
+}
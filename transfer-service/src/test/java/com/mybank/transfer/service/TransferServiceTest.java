@@ -4,9 +4,10 @@ import com.mybank.transfer.client.AccountsClient;
 import com.mybank.transfer.client.NotificationsClient;
 import com.mybank.transfer.dto.TransferConsumeRequest;
 import com.mybank.transfer.dto.TransferOperationRequest;
-import com.mybank.transfer.dto.OperationStatus;
 import com.mybank.transfer.model.TransferOperation;
 import com.mybank.transfer.repository.TransferOperationRepository;
+import com.mybank.common.id.PooledIdAllocator;
+import com.mybank.outbox.OutboxMetrics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -24,6 +25,8 @@ class TransferServiceTest {
     @Mock TransferOperationRepository repository;
     @Mock AccountsClient accountsClient;
     @Mock NotificationsClient notificationsClient;
+    @Mock OutboxMetrics outboxMetrics;
+    @Mock PooledIdAllocator operationIdAllocator;
     @InjectMocks TransferService service;
 
     @Test
@@ -36,21 +39,13 @@ class TransferServiceTest {
     void operate() {
         var request = new TransferOperationRequest(1L, "bob", new BigDecimal(100));
 
-        var existing = TransferOperation.builder()
-                .operationId(1L)
-                .username("alice")
-                .recipient("bob")
-                .amount(new BigDecimal("100.00"))
-                .status(OperationStatus.RESERVED)
-                .createdAt(LocalDateTime.now())
-                .notificationAttemptsAt(LocalDateTime.now())
-                .notificationAttempts(0)
-                .build();
-
-        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        when(repository.startReserved(1L, "alice", "bob", new BigDecimal(100)))
+                .thenReturn(Optional.of(LocalDateTime.now()));
 
         service.transfer("alice",request);
-        verify(repository, times(2)).save(any(TransferOperation.class));
+        verify(repository).markUpdated(1L);
+        verify(repository, never()).findById(any());
+        verify(repository, never()).save(any(TransferOperation.class));
         verify(accountsClient).transfer(any(TransferConsumeRequest.class));
     }
 }